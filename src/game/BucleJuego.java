@@ -0,0 +1,389 @@
+package game;
+
+import game.rendimiento.Metricas;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bucle principal del juego con paso de simulación fijo.
+ * <p>
+ * La simulación avanza siempre en ticks de la misma duración, de modo que la velocidad del
+ * juego no depende de lo rápido que sea el equipo ni de lo que tarde cada frame. El tiempo real
+ * se va sumando a un acumulador y se ejecutan tantos ticks como quepan en él; lo que sobra
+ * (menos de un tick) se usa para interpolar al dibujar entre los dos últimos estados.
+ * <p>
+ * Los frames se dibujan a su propio ritmo, independiente del de los ticks. Si el equipo no da
+ * abasto con la simulación, en cada vuelta se ejecutan como mucho {@code maxTicksPorFrame}
+ * ticks y el retraso restante se descarta, para no entrar en una espiral en la que cada vuelta
+ * acumula más ticks pendientes que la anterior.
+ * <p>
+ * Cuando la simulación indica que está en reposo (nada cambia y no hay teclas pulsadas), el
+ * hilo se duerme hasta que alguien llama a {@link #despertar()}, normalmente al llegar una
+ * entrada del jugador. Mientras tanto no se ejecutan ticks ni se dibujan frames; por seguridad
+ * se despierta solo una vez por segundo para comprobar que sigue en reposo.
+ * <p>
+ * El bucle corre en su propio hilo ({@value #NOMBRE_HILO}) y tiene un ciclo de vida:
+ * {@link #iniciar()}, {@link #pausar()}, {@link #reanudar()} y {@link #detener()}. En pausa
+ * el hilo queda dormido sin latido hasta que se reanuda o se detiene.
+ * <p>
+ * Los ritmos se configuran con las propiedades del sistema {@code skillseekers.ticks} (ticks por
+ * segundo), {@code skillseekers.fps} (frames por segundo; por defecto el refresco de la
+ * pantalla) y {@code skillseekers.ticks.maximoPorFrame}.
+ */
+public class BucleJuego {
+    private static final int TICKS_POR_DEFECTO = 120;
+    private static final int FPS_POR_DEFECTO = 60;
+    private static final int MAX_TICKS_POR_FRAME_POR_DEFECTO = 8;
+    private static final long NANOS_POR_SEGUNDO = 1_000_000_000L;
+    private static final long NANOS_LATIDO_REPOSO = NANOS_POR_SEGUNDO;
+    /** Nombre del hilo del bucle. */
+    public static final String NOMBRE_HILO = "SkillSeekers-Juego";
+
+    /**
+     * Estado del ciclo de vida del bucle.
+     */
+    public enum Estado {
+        /** Creado y aún sin iniciar. */
+        NUEVO,
+        /** Ejecutando ticks y dibujando frames. */
+        EN_MARCHA,
+        /** Hilo dormido hasta que se reanude o se detenga. */
+        EN_PAUSA,
+        /** Terminado; no puede volver a iniciarse. */
+        DETENIDO
+    }
+
+    /**
+     * Lo que el bucle hace avanzar y dibuja.
+     */
+    public interface Simulacion {
+        /**
+         * Avanza la simulación un tick de duración fija.
+         */
+        void tick();
+
+        /**
+         * Dibuja un frame, si ha cambiado algo visible desde el anterior.
+         *
+         * @param alfa Fracción de tick transcurrida desde el último, entre 0 y 1, para
+         *             interpolar entre el estado anterior y el actual.
+         * @return true si se ha dibujado el frame; false si se ha omitido por no haber cambios.
+         */
+        boolean renderizar(double alfa);
+
+        /**
+         * Indica si la simulación puede dormirse hasta que llegue una entrada.
+         *
+         * @return true si los próximos ticks no cambiarían nada.
+         */
+        default boolean isEnReposo() {
+            return false;
+        }
+    }
+
+    private final Simulacion simulacion;
+    private final int ticksPorSegundo;
+    private final int framesPorSegundo;
+    private final int maxTicksPorFrame;
+    private final long nanosPorTick;
+    private final long nanosPorFrame;
+
+    private volatile double ticksMedidos;
+    private volatile double framesMedidos;
+    private volatile long ticksDescartados;
+    private volatile long framesOmitidos;
+    private volatile long nanosEnReposo;
+    private volatile Thread hiloBucle;
+    private volatile Estado estado = Estado.NUEVO;
+    private volatile long nanosEnPausa;
+
+    /**
+     * Crea el bucle con los ritmos configurados en las propiedades del sistema.
+     *
+     * @param simulacion Simulación que se avanza y dibuja.
+     */
+    public BucleJuego(Simulacion simulacion) {
+        this(simulacion,
+                Integer.getInteger("skillseekers.ticks", TICKS_POR_DEFECTO),
+                Integer.getInteger("skillseekers.fps", refrescoPantalla()),
+                Integer.getInteger("skillseekers.ticks.maximoPorFrame", MAX_TICKS_POR_FRAME_POR_DEFECTO));
+    }
+
+    /**
+     * Crea el bucle.
+     *
+     * @param simulacion       Simulación que se avanza y dibuja.
+     * @param ticksPorSegundo  Ticks de simulación por segundo.
+     * @param framesPorSegundo Frames por segundo como máximo.
+     * @param maxTicksPorFrame Ticks que se ejecutan como mucho entre dos frames.
+     */
+    public BucleJuego(Simulacion simulacion, int ticksPorSegundo, int framesPorSegundo, int maxTicksPorFrame) {
+        if (ticksPorSegundo <= 0 || framesPorSegundo <= 0 || maxTicksPorFrame <= 0) {
+            throw new IllegalArgumentException("Los ritmos del bucle deben ser positivos");
+        }
+        this.simulacion = simulacion;
+        this.ticksPorSegundo = ticksPorSegundo;
+        this.framesPorSegundo = framesPorSegundo;
+        this.maxTicksPorFrame = maxTicksPorFrame;
+        this.nanosPorTick = NANOS_POR_SEGUNDO / ticksPorSegundo;
+        this.nanosPorFrame = NANOS_POR_SEGUNDO / framesPorSegundo;
+    }
+
+    /**
+     * Obtiene la frecuencia de refresco de la pantalla principal, o un valor por defecto si no
+     * se conoce.
+     */
+    private static int refrescoPantalla() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return FPS_POR_DEFECTO;
+        }
+        int refresco = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode().getRefreshRate();
+        return refresco == DisplayMode.REFRESH_RATE_UNKNOWN ? FPS_POR_DEFECTO : refresco;
+    }
+
+    /**
+     * Arranca el hilo del bucle.
+     *
+     * @throws IllegalStateException si el bucle ya se había iniciado.
+     */
+    public synchronized void iniciar() {
+        if (estado != Estado.NUEVO) {
+            throw new IllegalStateException("El bucle ya se ha iniciado");
+        }
+        estado = Estado.EN_MARCHA;
+        hiloBucle = new Thread(this::ejecutar, NOMBRE_HILO);
+        hiloBucle.start();
+    }
+
+    /**
+     * Pausa el bucle: deja de ejecutar ticks y de dibujar hasta que se reanude.
+     * No hace nada si no está en marcha.
+     */
+    public synchronized void pausar() {
+        if (estado == Estado.EN_MARCHA) {
+            estado = Estado.EN_PAUSA;
+        }
+    }
+
+    /**
+     * Reanuda el bucle pausado. El tiempo que ha estado en pausa no se simula.
+     * No hace nada si no está en pausa.
+     */
+    public synchronized void reanudar() {
+        if (estado == Estado.EN_PAUSA) {
+            estado = Estado.EN_MARCHA;
+            despertar();
+        }
+    }
+
+    /**
+     * Detiene el bucle para siempre. El hilo termina tras acabar el tick o frame en curso.
+     */
+    public synchronized void detener() {
+        estado = Estado.DETENIDO;
+        despertar();
+    }
+
+    /**
+     * Espera a que termine el hilo del bucle tras {@link #detener()}.
+     *
+     * @param milisegundos Tiempo máximo de espera.
+     * @return true si el hilo ha terminado (o nunca llegó a iniciarse).
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    public boolean esperarFin(long milisegundos) throws InterruptedException {
+        Thread hilo = hiloBucle;
+        if (hilo == null) {
+            return true;
+        }
+        hilo.join(milisegundos);
+        return !hilo.isAlive();
+    }
+
+    /**
+     * Obtiene el estado del ciclo de vida del bucle.
+     *
+     * @return El estado actual.
+     */
+    public Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * Ejecuta el bucle en su hilo hasta que se detenga.
+     */
+    private void ejecutar() {
+        long anterior = System.nanoTime();
+        long acumulado = 0;
+        long siguienteFrame = anterior;
+        long inicioMedida = anterior;
+        int ticksMedida = 0;
+        int framesMedida = 0;
+
+        while (estado != Estado.DETENIDO) {
+            if (estado == Estado.EN_PAUSA) {
+                long inicioPausa = System.nanoTime();
+                LockSupport.park(this);
+                anterior = System.nanoTime();
+                nanosEnPausa += anterior - inicioPausa;
+                acumulado = 0;
+                siguienteFrame = anterior;
+                continue;
+            }
+            long ahora = System.nanoTime();
+            acumulado += ahora - anterior;
+            anterior = ahora;
+
+            int ticks = 0;
+            while (acumulado >= nanosPorTick) {
+                if (ticks == maxTicksPorFrame) {
+                    // No da tiempo a ponerse al día: se descarta el retraso en lugar de arrastrarlo
+                    ticksDescartados += acumulado / nanosPorTick;
+                    acumulado %= nanosPorTick;
+                    break;
+                }
+                simulacion.tick();
+                acumulado -= nanosPorTick;
+                ticks++;
+            }
+            ticksMedida += ticks;
+
+            if (ahora - siguienteFrame >= 0) {
+                if (simulacion.renderizar((double) acumulado / nanosPorTick)) {
+                    framesMedida++;
+                } else {
+                    framesOmitidos++;
+                }
+                siguienteFrame += nanosPorFrame;
+                if (ahora - siguienteFrame >= 0) {
+                    siguienteFrame = ahora + nanosPorFrame;
+                }
+            }
+
+            if (ahora - inicioMedida >= NANOS_POR_SEGUNDO) {
+                double segundos = (double) (ahora - inicioMedida) / NANOS_POR_SEGUNDO;
+                ticksMedidos = ticksMedida / segundos;
+                framesMedidos = framesMedida / segundos;
+                inicioMedida = ahora;
+                ticksMedida = 0;
+                framesMedida = 0;
+            }
+
+            if (simulacion.isEnReposo()) {
+                long inicioReposo = System.nanoTime();
+                LockSupport.parkNanos(this, NANOS_LATIDO_REPOSO);
+                // El tiempo dormido no se simula: al despertar se sigue desde ahora y se dibuja enseguida
+                anterior = System.nanoTime();
+                nanosEnReposo += anterior - inicioReposo;
+                acumulado = 0;
+                siguienteFrame = anterior;
+                continue;
+            }
+
+            // Se duerme hasta lo primero que toque: el siguiente tick o el siguiente frame
+            long fin = System.nanoTime();
+            long espera = Math.min(nanosPorTick - acumulado - (fin - anterior), siguienteFrame - fin);
+            if (espera > 0) {
+                LockSupport.parkNanos(this, espera);
+                Metricas.getInstancia().registrar(Metricas.ESPERA, System.nanoTime() - fin);
+            }
+        }
+    }
+
+    /**
+     * Despierta el bucle si está en reposo. Se puede llamar desde cualquier hilo.
+     */
+    public void despertar() {
+        Thread hilo = hiloBucle;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+        }
+    }
+
+    /**
+     * Obtiene el ritmo de simulación configurado.
+     *
+     * @return Ticks por segundo.
+     */
+    public int getTicksPorSegundo() {
+        return ticksPorSegundo;
+    }
+
+    /**
+     * Obtiene el ritmo de dibujo configurado.
+     *
+     * @return Frames por segundo como máximo.
+     */
+    public int getFramesPorSegundo() {
+        return framesPorSegundo;
+    }
+
+    /**
+     * Obtiene los ticks ejecutados por segundo, medidos durante el último segundo.
+     *
+     * @return Ticks por segundo reales.
+     */
+    public double getTicksMedidos() {
+        return ticksMedidos;
+    }
+
+    /**
+     * Obtiene los frames dibujados por segundo, medidos durante el último segundo.
+     *
+     * @return Frames por segundo reales.
+     */
+    public double getFramesMedidos() {
+        return framesMedidos;
+    }
+
+    /**
+     * Obtiene los ticks que se han descartado porque la simulación iba con retraso.
+     *
+     * @return Número de ticks descartados desde que empezó el bucle.
+     */
+    public long getTicksDescartados() {
+        return ticksDescartados;
+    }
+
+    /**
+     * Obtiene los frames que no se han dibujado porque nada había cambiado.
+     *
+     * @return Número de frames omitidos desde que empezó el bucle.
+     */
+    public long getFramesOmitidos() {
+        return framesOmitidos;
+    }
+
+    /**
+     * Obtiene el tiempo que el bucle ha pasado dormido en reposo.
+     *
+     * @return Tiempo acumulado en nanosegundos.
+     */
+    public long getNanosEnReposo() {
+        return nanosEnReposo;
+    }
+
+    /**
+     * Obtiene el tiempo que el bucle ha pasado en pausa.
+     *
+     * @return Tiempo acumulado en nanosegundos.
+     */
+    public long getNanosEnPausa() {
+        return nanosEnPausa;
+    }
+
+    /**
+     * Resume los ritmos configurados y medidos del bucle.
+     *
+     * @return Texto con los ticks y frames por segundo.
+     */
+    public String getInforme() {
+        return String.format("ticks %.1f/s (objetivo %d), frames %.1f/s (objetivo %d), ticks descartados %d,"
+                        + " frames omitidos %d, en reposo %d ms, en pausa %d ms",
+                ticksMedidos, ticksPorSegundo, framesMedidos, framesPorSegundo, ticksDescartados,
+                framesOmitidos, nanosEnReposo / 1_000_000, nanosEnPausa / 1_000_000);
+    }
+}
@@ -0,0 +1,119 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola circular sin bloqueos para pasar las teclas del hilo de eventos (único productor) al
+ * hilo del juego (único consumidor), que la vacía una vez por tick.
+ * <p>
+ * Cada evento guarda la tecla, si se ha pulsado o soltado, la opción elegida al pulsar intro y
+ * el instante en que se encoló, en arrays prealocados: encolar y vaciar no crean objetos. El
+ * productor publica cada evento con una escritura ordenada del contador de escritos, y el
+ * consumidor libera los huecos del mismo modo con el de leídos. Si la cola está llena, el
+ * evento se descarta y se cuenta; con teclas a ritmo humano no debería ocurrir.
+ */
+public final class ColaEntrada {
+
+    /**
+     * Recibe los eventos al vaciar la cola.
+     */
+    public interface Consumidor {
+        /**
+         * Procesa un evento de la cola.
+         *
+         * @param tecla     Código de la tecla.
+         * @param pulsada   true si se pulsó, false si se soltó.
+         * @param respuesta Opción elegida al pulsar intro, o -1.
+         * @param instante  Instante de {@link System#nanoTime()} en que se encoló.
+         */
+        void aceptar(int tecla, boolean pulsada, int respuesta, long instante);
+    }
+
+    private final int mascara;
+    private final int[] teclas;
+    private final int[] respuestas;
+    private final long[] instantes;
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong leidos = new AtomicLong();
+    // Copia de leidos que guarda el productor para no leer el contador del consumidor en cada evento
+    private long leidosVistos;
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * Crea la cola.
+     *
+     * @param capacidad Número máximo de eventos pendientes; debe ser potencia de dos.
+     */
+    public ColaEntrada(int capacidad) {
+        if (capacidad <= 0 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser potencia de dos: " + capacidad);
+        }
+        mascara = capacidad - 1;
+        teclas = new int[capacidad];
+        respuestas = new int[capacidad];
+        instantes = new long[capacidad];
+    }
+
+    /**
+     * Encola un evento. Solo debe llamarse desde el hilo productor.
+     *
+     * @param tecla     Código de la tecla.
+     * @param pulsada   true si se ha pulsado, false si se ha soltado.
+     * @param respuesta Opción elegida al pulsar intro, o -1.
+     * @return false si la cola estaba llena y el evento se ha descartado.
+     */
+    public boolean ofrecer(int tecla, boolean pulsada, int respuesta) {
+        long escrito = escritos.get();
+        if (escrito - leidosVistos > mascara) {
+            leidosVistos = leidos.get();
+            if (escrito - leidosVistos > mascara) {
+                descartados.incrementAndGet();
+                return false;
+            }
+        }
+        int hueco = (int) escrito & mascara;
+        teclas[hueco] = pulsada ? tecla : ~tecla;
+        respuestas[hueco] = respuesta;
+        instantes[hueco] = System.nanoTime();
+        escritos.lazySet(escrito + 1);
+        return true;
+    }
+
+    /**
+     * Pasa al consumidor todos los eventos encolados hasta ahora, en orden. Solo debe llamarse
+     * desde el hilo consumidor.
+     *
+     * @param consumidor Receptor de los eventos.
+     * @return Número de eventos procesados.
+     */
+    public int vaciar(Consumidor consumidor) {
+        long leido = leidos.get();
+        long hasta = escritos.get();
+        for (long i = leido; i < hasta; i++) {
+            int hueco = (int) i & mascara;
+            int tecla = teclas[hueco];
+            boolean pulsada = tecla >= 0;
+            consumidor.aceptar(pulsada ? tecla : ~tecla, pulsada, respuestas[hueco], instantes[hueco]);
+        }
+        leidos.lazySet(hasta);
+        return (int) (hasta - leido);
+    }
+
+    /**
+     * Indica si no hay eventos pendientes.
+     *
+     * @return true si la cola está vacía.
+     */
+    public boolean isVacia() {
+        return leidos.get() == escritos.get();
+    }
+
+    /**
+     * Obtiene el número de eventos descartados por encontrar la cola llena.
+     *
+     * @return Número de eventos descartados.
+     */
+    public long getDescartados() {
+        return descartados.get();
+    }
+}
@@ -1,5 +1,6 @@
 package game;
 
+import game.rendimiento.Metricas;
 import idiomas.Idioma;
 import pantallas.GUI;
 
@@ -22,6 +23,7 @@ public class Dialogos extends JPanel {
 
     private JButton seleccionActual;
     private final List<JButton> respuestas = new ArrayList<>();
+    private List<String> opciones = new ArrayList<>();
     int panelWidth = GUI.getAnchoPantalla() / 2;
     int panelHeight = GUI.getAltoPantalla() / 4;
 
@@ -62,6 +64,7 @@ public class Dialogos extends JPanel {
      * @param opciones Una lista de opciones de respuesta para el jugador.
      */
     public void setOpciones(List<String> opciones) {
+        this.opciones = opciones;
         respuestas.clear();
         for (String opcion : opciones) {
             respuestas.add(new JButton(opcion));
@@ -90,6 +93,40 @@ public class Dialogos extends JPanel {
         return seleccionActual;
     }
 
+    /**
+     * Obtiene la opción seleccionada como posición en la lista de opciones sin barajar, la que se
+     * pasó a {@link #setOpciones(List)}.
+     *
+     * @return La posición de la opción, o -1 si no hay ninguna seleccionada.
+     */
+    public int getIndiceSeleccion() {
+        return seleccionActual == null ? -1 : opciones.indexOf(seleccionActual.getText());
+    }
+
+    /**
+     * Selecciona una opción como si el jugador hubiera pulsado su botón. Se usa al reproducir
+     * una grabación, ya que los botones se barajan de forma distinta en cada partida.
+     *
+     * @param indice Posición de la opción en la lista sin barajar, o -1 para no dejar ninguna
+     *               seleccionada.
+     */
+    public void seleccionarOpcion(int indice) {
+        if (indice < 0 || indice >= opciones.size()) {
+            if (seleccionActual != null) {
+                seleccionActual.setBackground(new Color(0, 0, 0, 0));
+                seleccionActual.setForeground(Color.white);
+            }
+            seleccionActual = null;
+            return;
+        }
+        for (JButton boton : respuestas) {
+            if (boton.getText().equals(opciones.get(indice))) {
+                boton.doClick(0);
+                return;
+            }
+        }
+    }
+
     /**
      * Configura los botones de las opciones de respuesta en el panel de diálogo.
      * Añade los botones con el texto de cada opción y asigna la acción de selección.
@@ -141,6 +178,7 @@ public class Dialogos extends JPanel {
      */
     @Override
     protected void paintComponent(Graphics g) {
+        long inicio = System.nanoTime();
         super.paintComponent(g);
 //        if (mostrarDialogo) {
         Graphics2D g2d = (Graphics2D) g;
@@ -230,6 +268,7 @@ public class Dialogos extends JPanel {
         int exitTextX = (panelWidth - exitTextWidth) / 2;
         int exitTextY = panelHeight + fm.getHeight() - 40;
         g2d.drawString(exitMessage, exitTextX, exitTextY);
+        Metricas.getInstancia().registrar(Metricas.PINTAR_DIALOGOS, System.nanoTime() - inicio);
     }
 }
 
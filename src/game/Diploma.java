@@ -211,9 +211,5 @@ public class Diploma extends JPanel {
 
         // Dividir el texto por los saltos de línea explícitos
         g2d.drawImage(finalDiploma, panelWidth / 2 - finalDiploma.getWidth() / 4, panelHeight / 2 - finalDiploma.getHeight() / 4, finalDiploma.getWidth() / 2, finalDiploma.getHeight() / 2, null);
-
-        revalidate();
-        repaint();
-
     }
 }
@@ -9,53 +9,144 @@ import game.entidades.npc.NPC;
 import game.entidades.npc.NPCVisual;
 import game.entidades.pj.Personaje;
 import game.entidades.pj.PersonajeVisual;
+import game.mapa.DibujoMapa;
 import game.mapa.Mapa;
+import game.mapa.MapaRepository;
 import game.mapa.MapaVisual;
+import game.mapa.PrecargaMapas;
+import game.notificaciones.Disparadores;
 import game.notificaciones.c_notificacion;
 import game.notificaciones.v_notificacion;
+import game.render.Compositor;
+import game.render.Fotograma;
+import game.render.Pintable;
+import game.render.RenderizadoActivo;
+import game.rendimiento.Metricas;
+import game.rendimiento.PanelRendimiento;
+import game.simulacion.Grabacion;
+import game.simulacion.GrabadorEntrada;
+import game.simulacion.ReproductorEntrada;
+import game.simulacion.SimulacionMundo;
 import idiomas.Idioma;
 import pantallas.GUI;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Clase principal del juego, encargada de gestionar la lógica de juego, actualización y visualización.
  * Controla la interacción entre el mapa, los personajes y las notificaciones.
  */
-public class Juego extends JLayeredPane implements Runnable {
+public class Juego extends JLayeredPane implements BucleJuego.Simulacion, Fotograma.Fuente {
+    // Distancia a partir de la cual un cambio de coordenadas es un salto (cambio de mapa) y no se interpola
+    private static final int SALTO_MAXIMO = 64;
 
     private int Mapa_CoordX;
     private int Mapa_CoordY;
+    // Coordenadas al empezar el último tick y coordenadas interpoladas del último frame
+    private int anteriorCoordX, anteriorCoordY;
+    private int camaraX, camaraY;
+    // Último frame publicado por el hilo del juego; las vistas dibujan solo a partir de él
+    private volatile Fotograma fotograma = Fotograma.VACIO;
+
+    // Seguimiento de lo que se ve, para no pintar frames iguales al anterior
+    private final AtomicBoolean cambioPendiente = new AtomicBoolean(true);
+    private Image ultimaSkin;
+    private boolean ultimaInterfaz;
+    private boolean ultimoFrameDibujado = true;
 
     private c_notificacion controlNotis;
     private v_notificacion notisPanel;
     private ubicaciones modeloNotis;
     private MenuJuego menuPanel;
     private Dialogos dialogoPanel;
-    private boolean mostrarMenu = false;
+    // Se cambia en el hilo de eventos y se lee en el del juego
+    private volatile boolean mostrarMenu = false;
+
+    private final BucleJuego bucle = new BucleJuego(this);
+    // Panel de rendimiento (F3) y clave del refresco periódico mientras se ve
+    private final PanelRendimiento panelRendimiento = new PanelRendimiento(bucle);
+    private final String claveRendimiento = "rendimiento@" + System.identityHashCode(this);
+    // El bucle se pausa con el menú abierto o con la ventana minimizada o sin foco
+    private boolean ventanaMinimizada = false;
+    private boolean ventanaInactiva = false;
+    // Grabación (skillseekers.grabar) y reproducción (skillseekers.reproducir) de las teclas
+    private volatile long ticksCompletados;
+    private GrabadorEntrada grabador;
+    private Grabacion reproduccion;
+    private int siguienteEvento;
+    private Window ventana;
+    private final WindowAdapter oyenteVentana = new WindowAdapter() {
+        @Override
+        public void windowIconified(WindowEvent e) {
+            ventanaMinimizada = true;
+            actualizarPausa();
+        }
+
+        @Override
+        public void windowDeiconified(WindowEvent e) {
+            ventanaMinimizada = false;
+            actualizarPausa();
+        }
+
+        @Override
+        public void windowActivated(WindowEvent e) {
+            ventanaInactiva = false;
+            actualizarPausa();
+        }
 
-    private Thread hilo;
+        @Override
+        public void windowDeactivated(WindowEvent e) {
+            ventanaInactiva = true;
+            // Sin foco no llegan las teclas soltadas: se encolan como si se hubieran soltado
+            for (int tecla : new int[]{KeyEvent.VK_W, KeyEvent.VK_S, KeyEvent.VK_A, KeyEvent.VK_D}) {
+                colaEntrada.ofrecer(tecla, false, -1);
+            }
+            actualizarPausa();
+        }
+    };
+    // Las teclas del mundo llegan al hilo del juego por la cola y solo ese hilo toca keysConfig
     private final KeysConfig keysConfig = new KeysConfig();
-    private KeyAdapter teclas;
+    private final ColaEntrada colaEntrada = new ColaEntrada(256);
+    private final ColaEntrada.Consumidor consumidorEntrada = this::procesarEntrada;
+    private NPC interlocutor;
     private final Partidas partidaActual;
     private final gestorPartidas gestorPartidas = new gestorPartidas();
 
     private final MapaVisual mapaPanel;
-    private NPCVisual npcPanel;
+    // Mapa que se dibuja en los frames; solo lo cambia el hilo del juego
+    private DibujoMapa mapaDibujado;
+    private final NPCVisual npcPanel = new NPCVisual();
+    // NPCs que se ven en el lugar actual, o null si no se ve ninguno
+    private List<NPC> npcsVisibles;
+
+    // Con el compositor, mapa, NPCs, personaje y notificaciones se dibujan en un único componente
+    private final Compositor compositor;
+    // Renderizado activo opcional: el hilo del juego presenta los frames sin esperar a Swing
+    private final RenderizadoActivo renderizadoActivo;
 
     private Personaje prota;
     private List<NPC> npcs;
     private boolean[] npclist;
     private final CreadorNPC Creador = new CreadorNPC();
 
-    private final Mapa mapa = new Mapa("/mapas/sk2.tmx");
-    private final Mapa casaPequeña = new Mapa("/mapas/casa2.tmx");
-    private final Mapa casaGrande = new Mapa("/mapas/casa1.tmx");
+    private final MapaRepository mapas = MapaRepository.getInstancia();
+    private final PrecargaMapas precarga = new PrecargaMapas(mapas);
+    private final Mapa mapa = mapas.obtener("/mapas/sk2.tmx");
     private Mapa mapaActual = mapa;
 
     private GUI gui;
@@ -68,26 +159,66 @@ public class Juego extends JLayeredPane implements Runnable {
     public Juego(Partidas p) {
         this.partidaActual = p;
         this.setLayout(null);
-        addKeyListener(keysConfig);
+        // Cualquier tecla saca al juego del reposo; F3 y F4 son para el rendimiento
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_F3) {
+                    alternarPanelRendimiento();
+                } else if (e.getKeyCode() == KeyEvent.VK_F4) {
+                    exportarMetricas();
+                }
+                marcarCambio();
+            }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                marcarCambio();
+            }
+        });
         setFocusable(true);
 
         mapaPanel = new MapaVisual(mapaActual);
-        mapaPanel.setBackground(new Color(125, 219, 206));
+        mapaPanel.getDibujo().setFondo(new Color(125, 219, 206));
         mapaPanel.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
         mapaPanel.setVisible(true);
-        this.add(mapaPanel, Integer.valueOf(1)); // Fondo
+        mapaDibujado = mapaPanel.getDibujo();
+        npcPanel.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
+        npcPanel.setOpaque(false);
+        npcPanel.setVisible(true);
+        if (Boolean.parseBoolean(System.getProperty("skillseekers.compositor", "true"))) {
+            compositor = new Compositor(this);
+            compositor.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
+            this.add(compositor, Integer.valueOf(1));
+        } else {
+            compositor = null;
+        }
+        if (compositor != null && "activo".equals(System.getProperty("skillseekers.renderizado"))
+                && !GraphicsEnvironment.isHeadless()) {
+            renderizadoActivo = new RenderizadoActivo(compositor);
+            renderizadoActivo.setAlExponer(this::marcarCambio);
+            renderizadoActivo.getLienzo().setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
+            this.add(renderizadoActivo.getLienzo(), Integer.valueOf(1), 0);
+        } else {
+            renderizadoActivo = null;
+        }
+        if (compositor == null) {
+            this.add(mapaPanel, Integer.valueOf(1)); // Fondo
+        }
         if (p.getNivel() == 6) {
             Mapa_CoordX = 18;
             Mapa_CoordY = 84;
             cambiarMapa("mazmorra", -1);
+            publicarFotograma(Mapa_CoordX, Mapa_CoordY);
             finalizarjuego();
         } else {
             prota = new Personaje(this);
-            PersonajeVisual pjPanel = new PersonajeVisual(prota);
+            PersonajeVisual pjPanel = new PersonajeVisual();
             modeloNotis = new ubicaciones(prota.getNivel());
             notisPanel = new v_notificacion();
+            notisPanel.setAlCambiar(this::marcarCambio);
             controlNotis = new c_notificacion(modeloNotis, notisPanel);
-            controlNotis.setupKeyListener(this);
+            controlNotis.setJuego(this);
             if (partidaActual.getCoordX() == 0 && partidaActual.getCoordY() == 0) {
                 Mapa_CoordY = modeloNotis.getSpawnSeleccionado().get("coordY");
                 Mapa_CoordX = modeloNotis.getSpawnSeleccionado().get("coordX");
@@ -106,33 +237,67 @@ public class Juego extends JLayeredPane implements Runnable {
             pjPanel.setVisible(true);
 
             dialogoPanel = new Dialogos();
+            dialogoPanel.addComponentListener(alMostrarOcultar());
 
-            mostrarNPC(0);
+            cargarNPC(0);
 
-            this.add(npcPanel, Integer.valueOf(2)); // NPC's
-            this.add(pjPanel, Integer.valueOf(3)); // Personaje
-            this.add(notisPanel, Integer.valueOf(4)); // Notificaciones
+            ponerCapa(npcPanel, Compositor.CAPA_NPC, 2); // NPC's
+            ponerCapa(pjPanel, Compositor.CAPA_PERSONAJE, 3); // Personaje
+            ponerCapa(notisPanel, Compositor.CAPA_NOTIFICACIONES, 4); // Notificaciones
+            panelRendimiento.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
+            ponerCapa(panelRendimiento, Compositor.CAPA_RENDIMIENTO, 4); // Rendimiento
             this.add(dialogoPanel, Integer.valueOf(5)); // Dialogos
 
+            // Las teclas del mundo pasan al hilo del juego por la cola de entrada. El menú (escape
+            // fuera de un diálogo) se abre y se cierra aquí: con el menú abierto el juego está en pausa
             addKeyListener(new KeyAdapter() {
 
                 @Override
                 public void keyPressed(KeyEvent e) {
-                    if (!getDialogoPanel().isVisible()) {
-                        if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                            mostrarMenu = !mostrarMenu;
-                            menuPanel.setVisible(mostrarMenu);
-                        }
+                    int tecla = e.getKeyCode();
+                    if (tecla == KeyEvent.VK_ESCAPE && !getDialogoPanel().isVisible()) {
+                        mostrarMenu = !mostrarMenu;
+                        menuPanel.setVisible(mostrarMenu);
+                        actualizarPausa();
+                    } else if (ReproductorEntrada.bit(tecla) != 0) {
+                        int respuesta = tecla == KeyEvent.VK_ENTER ? dialogoPanel.getIndiceSeleccion() : -1;
+                        colaEntrada.ofrecer(tecla, true, respuesta);
+                        marcarCambio();
                     }
+                }
 
+                @Override
+                public void keyReleased(KeyEvent e) {
+                    if (ReproductorEntrada.bit(e.getKeyCode()) != 0) {
+                        colaEntrada.ofrecer(e.getKeyCode(), false, -1);
+                        marcarCambio();
+                    }
                 }
             });
             crearMenuPanel();
+            prepararGrabacion();
 
+            publicarFotograma(Mapa_CoordX, Mapa_CoordY);
             startGame();
         }
     }
 
+    /**
+     * Muestra una vista del juego: como capa del compositor o, si no se usa, como panel
+     * transparente apilado en su capa del {@link JLayeredPane}.
+     *
+     * @param vista          Vista a mostrar.
+     * @param capaCompositor Capa del compositor en la que se dibuja.
+     * @param capaPanel      Capa del {@link JLayeredPane} en la que se apila.
+     */
+    private <T extends JComponent & Pintable> void ponerCapa(T vista, int capaCompositor, int capaPanel) {
+        if (compositor != null) {
+            compositor.setCapa(capaCompositor, vista);
+        } else if (vista != null) {
+            this.add(vista, Integer.valueOf(capaPanel));
+        }
+    }
+
     /**
      * Crea el panel del menú del juego con las acciones para las opciones del menú.
      */
@@ -142,15 +307,74 @@ public class Juego extends JLayeredPane implements Runnable {
                 e -> irAlMenuPrincipal(),     // Acción para ir al menú principal
                 e -> guardarYSalir()          // Acción para guardar y salir
         );
+        menuPanel.addComponentListener(alMostrarOcultar());
         this.add(menuPanel, Integer.valueOf(6));
     }
 
+    /**
+     * Crea un oyente que avisa de un cambio cuando el componente se muestra u oculta.
+     */
+    private ComponentAdapter alMostrarOcultar() {
+        return new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                marcarCambio();
+            }
+
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                marcarCambio();
+            }
+        };
+    }
+
     /**
      * Cierra el menú del juego.
      */
     private void cerrarMenu() {
         mostrarMenu = false;
         menuPanel.setVisible(false);
+        actualizarPausa();
+    }
+
+    /**
+     * Pausa o reanuda el bucle del juego según el menú y el estado de la ventana.
+     */
+    private void actualizarPausa() {
+        if (mostrarMenu || ventanaMinimizada || ventanaInactiva) {
+            // En pausa no se presentan frames: el lienzo activo no debe tapar el menú
+            if (renderizadoActivo != null && mostrarMenu) {
+                renderizadoActivo.setMostrado(false);
+            }
+            bucle.pausar();
+        } else {
+            bucle.reanudar();
+            marcarCambio();
+        }
+    }
+
+    /**
+     * Al añadirse a la ventana empieza a escuchar sus eventos para pausar el juego.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ventana = SwingUtilities.getWindowAncestor(this);
+        if (ventana != null) {
+            ventana.addWindowListener(oyenteVentana);
+        }
+    }
+
+    /**
+     * Al quitarse de la ventana deja de escuchar sus eventos.
+     */
+    @Override
+    public void removeNotify() {
+        if (ventana != null) {
+            ventana.removeWindowListener(oyenteVentana);
+            ventana = null;
+        }
+        super.removeNotify();
     }
 
     /**
@@ -160,6 +384,7 @@ public class Juego extends JLayeredPane implements Runnable {
         if (partidaActual.getNivel() != 6) {
             guardarJuego();
         }
+        detener();
         gui.Menu();
     }
 
@@ -173,28 +398,357 @@ public class Juego extends JLayeredPane implements Runnable {
     }
 
     /**
-     * Inicia el juego en un nuevo hilo para actualizar el estado y la pantalla.
+     * Inicia el hilo del juego, que actualiza el estado a ritmo fijo y pinta la pantalla
+     * (ver {@link BucleJuego}).
      */
     public void startGame() {
-        hilo = new Thread(this);
-        hilo.start();
+        bucle.iniciar();
     }
 
     /**
-     * Método ejecutado en el hilo del juego para actualizar el estado y pintar la pantalla a 60 FPS.
+     * Detiene el hilo del juego y el de precarga de mapas, y cancela las notificaciones
+     * pendientes. El juego no puede volver a iniciarse.
+     */
+    public void detener() {
+        bucle.detener();
+        precarga.cerrar();
+        Temporizador.getInstancia().cancelar(claveRendimiento);
+        if (notisPanel != null) {
+            notisPanel.vaciarNotisTemporales();
+        }
+        if (grabador != null) {
+            try {
+                grabador.close();
+            } catch (IOException e) {
+                avisar(Idioma.getRb().getString("grabacionFallida"), e);
+            }
+        }
+    }
+
+    /**
+     * Avanza el juego un tick, guardando antes las coordenadas para poder interpolar.
      */
     @Override
-    public void run() {
-        while (hilo != null) {
-            update();
-            repaint();
-            requestFocusInWindow();
+    public void tick() {
+        if (reproduccion != null) {
+            reproducirEventos();
+        }
+        colaEntrada.vaciar(consumidorEntrada);
+        anteriorCoordX = Mapa_CoordX;
+        anteriorCoordY = Mapa_CoordY;
+        long inicio = System.nanoTime();
+        update();
+        Metricas.getInstancia().registrar(Metricas.ACTUALIZAR, System.nanoTime() - inicio);
+        ticksCompletados++;
+    }
+
+    /**
+     * Prepara la grabación o la reproducción de las teclas si se han pedido con las propiedades
+     * {@code skillseekers.grabar} y {@code skillseekers.reproducir} (rutas de archivo). Al
+     * reproducir, el jugador empieza donde empezó la grabación.
+     */
+    private void prepararGrabacion() {
+        String reproducir = System.getProperty("skillseekers.reproducir");
+        if (reproducir != null) {
+            try {
+                reproduccion = Grabacion.leer(new File(reproducir));
+                if (reproduccion.getNivel() != prota.getNivel()
+                        || reproduccion.getTicksPorSegundo() != bucle.getTicksPorSegundo()) {
+                    avisar(Idioma.getRb().getString("grabacionNoFiel"), null);
+                }
+                Mapa_CoordX = reproduccion.getCoordX();
+                Mapa_CoordY = reproduccion.getCoordY();
+            } catch (IOException e) {
+                avisar(Idioma.getRb().getString("grabacionIlegible") + " " + reproducir, e);
+            }
+        }
+        String grabar = System.getProperty("skillseekers.grabar");
+        if (grabar != null) {
+            try {
+                grabador = new GrabadorEntrada(new File(grabar), bucle.getTicksPorSegundo(), prota.getNivel(),
+                        Mapa_CoordX, Mapa_CoordY, partidaActual.getLenguaje().toLowerCase());
+            } catch (IOException e) {
+                avisar(Idioma.getRb().getString("grabacionFallida"), e);
+            }
+        }
+    }
+
+    /**
+     * Procesa una tecla sacada de la cola de entrada y registra cuánto ha esperado en ella.
+     */
+    private void procesarEntrada(int tecla, boolean pulsada, int respuesta, long instante) {
+        Metricas.getInstancia().registrar(Metricas.LATENCIA_ENTRADA, System.nanoTime() - instante);
+        procesarTecla(tecla, pulsada, respuesta);
+    }
+
+    /**
+     * Aplica una tecla al mundo en el hilo del juego: actualiza las teclas de movimiento y, al
+     * pulsarla, la pasa al NPC con el que se está hablando o, si es la E, al controlador de
+     * notificaciones. Si se está grabando, la tecla se graba con el tick actual.
+     *
+     * @param tecla     Código de la tecla.
+     * @param pulsada   true si se ha pulsado, false si se ha soltado.
+     * @param respuesta Opción elegida al pulsar intro, o -1.
+     */
+    private void procesarTecla(int tecla, boolean pulsada, int respuesta) {
+        grabarTecla(tecla, pulsada, respuesta);
+        keysConfig.actualizar(tecla, pulsada);
+        if (!pulsada) {
+            return;
+        }
+        if (interlocutor != null) {
+            interlocutor.atenderTecla(tecla, respuesta);
+        } else if (tecla == KeyEvent.VK_E) {
+            controlNotis.interactuar();
+        }
+    }
+
+    /**
+     * Graba una tecla con el tick actual, si se está grabando. Si no se puede escribir, la
+     * grabación se detiene y se avisa al jugador.
+     *
+     * @param tecla     Código de la tecla.
+     * @param pulsada   true si se ha pulsado, false si se ha soltado.
+     * @param respuesta Opción elegida al pulsar intro, o -1.
+     */
+    private void grabarTecla(int tecla, boolean pulsada, int respuesta) {
+        if (grabador == null) {
+            return;
+        }
+        try {
+            grabador.registrar(ticksCompletados, tecla, pulsada, respuesta);
+        } catch (IOException e) {
+            GrabadorEntrada fallido = grabador;
+            grabador = null;
+            avisar(Idioma.getRb().getString("grabacionFallida"), e);
+            try {
+                fallido.close();
+            } catch (IOException ignorada) {
+                // Ya se ha avisado del primer error
+            }
+        }
+    }
+
+    /**
+     * Aplica las teclas grabadas hasta el tick actual, igual que si vinieran de la cola de
+     * entrada.
+     */
+    private void reproducirEventos() {
+        List<Grabacion.Evento> eventos = reproduccion.getEventos();
+        if (siguienteEvento == eventos.size()) {
+            return;
+        }
+        while (siguienteEvento < eventos.size() && eventos.get(siguienteEvento).getTick() <= ticksCompletados) {
+            Grabacion.Evento evento = eventos.get(siguienteEvento++);
+            if (evento.isPulsada() && evento.getTecla() == KeyEvent.VK_ENTER) {
+                // Solo para que se vea la opción elegida; la respuesta va en el evento
+                int respuesta = evento.getRespuesta();
+                enEDT(() -> dialogoPanel.seleccionarOpcion(respuesta));
+            }
+            procesarTecla(evento.getTecla(), evento.isPulsada(), evento.getRespuesta());
+        }
+        if (siguienteEvento == eventos.size()) {
+            avisar(Idioma.getRb().getString("reproduccionTerminada") + " (tick " + ticksCompletados + ")", null);
+        }
+    }
+
+    /**
+     * Avisa al jugador con una notificación temporal y lo deja escrito en la salida de errores,
+     * junto con la excepción que lo provoca si la hay. Los avisos con excepción se muestran con
+     * prioridad alta.
+     *
+     * @param texto Texto del aviso.
+     * @param causa Excepción que provoca el aviso, o null si no es un error.
+     */
+    private void avisar(String texto, Exception causa) {
+        if (notisPanel != null) {
+            notisPanel.mostrarNotiTemporal(texto, 5,
+                    causa == null ? v_notificacion.PRIORIDAD_NORMAL : v_notificacion.PRIORIDAD_ALTA);
+        }
+        System.err.println(causa == null ? texto : texto + ": " + causa);
+    }
+
+    /**
+     * Ejecuta una acción sobre los componentes de Swing en el hilo de eventos: directamente si
+     * ya se está en él y, si no, cuando le toque, en el orden en que se piden.
+     *
+     * @param accion Acción a ejecutar.
+     */
+    private void enEDT(Runnable accion) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            accion.run();
+        } else {
+            SwingUtilities.invokeLater(accion);
+        }
+    }
+
+    /**
+     * Muestra u oculta el panel de rendimiento. Mientras se ve se repinta dos veces por segundo
+     * aunque el juego esté en reposo.
+     */
+    private void alternarPanelRendimiento() {
+        boolean mostrar = !panelRendimiento.isVisible();
+        panelRendimiento.setVisible(mostrar);
+        if (mostrar) {
+            Temporizador.getInstancia().programarPeriodica(claveRendimiento, 500, TimeUnit.MILLISECONDS,
+                    this::marcarCambio);
+        } else {
+            Temporizador.getInstancia().cancelar(claveRendimiento);
+        }
+    }
+
+    /**
+     * Escribe los histogramas de tiempos en un archivo JSON del directorio de trabajo, junto con
+     * los ritmos del bucle y la memoria. Se hace en el hilo del temporizador.
+     */
+    public void exportarMetricas() {
+        Temporizador.getInstancia().programar(0, TimeUnit.MILLISECONDS, () -> {
+            Runtime runtime = Runtime.getRuntime();
+            Map<String, Object> extra = new LinkedHashMap<>();
+            extra.put("fecha", System.currentTimeMillis());
+            extra.put("ticksPorSegundo", bucle.getTicksMedidos());
+            extra.put("framesPorSegundo", bucle.getFramesMedidos());
+            extra.put("ticksDescartados", bucle.getTicksDescartados());
+            extra.put("framesOmitidos", bucle.getFramesOmitidos());
+            extra.put("memoriaUsada", runtime.totalMemory() - runtime.freeMemory());
+            extra.put("memoriaMaxima", runtime.maxMemory());
+            File destino = new File("rendimiento-" + System.currentTimeMillis() + ".json");
             try {
-                Thread.sleep((long) 1000 / 120);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                Metricas.getInstancia().exportarJSON(destino, extra);
+                avisar(Idioma.getRb().getString("metricasExportadas") + " " + destino.getAbsolutePath(), null);
+            } catch (IOException e) {
+                avisar(Idioma.getRb().getString("metricasFallidas"), e);
             }
+        });
+    }
+
+    /**
+     * Pinta un frame con la cámara interpolada entre el tick anterior y el actual. Si no ha
+     * cambiado nada visible (cámara, imagen del personaje, notificaciones, mapa, menú o
+     * diálogos) el frame se omite.
+     *
+     * @param alfa Fracción del tick siguiente ya transcurrida.
+     * @return true si se ha pintado el frame.
+     */
+    @Override
+    public boolean renderizar(double alfa) {
+        int x = Mapa_CoordX;
+        int y = Mapa_CoordY;
+        if (Math.abs(x - anteriorCoordX) <= SALTO_MAXIMO && Math.abs(y - anteriorCoordY) <= SALTO_MAXIMO) {
+            x = anteriorCoordX + (int) Math.round((x - anteriorCoordX) * alfa);
+            y = anteriorCoordY + (int) Math.round((y - anteriorCoordY) * alfa);
+        }
+        Image skin = prota.getSkin();
+        boolean interfaz = hayInterfaz();
+        boolean cambio = cambioPendiente.getAndSet(false);
+        if (!cambio && x == camaraX && y == camaraY && skin == ultimaSkin && interfaz == ultimaInterfaz) {
+            ultimoFrameDibujado = false;
+            return false;
+        }
+        camaraX = x;
+        camaraY = y;
+        ultimaSkin = skin;
+        ultimaInterfaz = interfaz;
+        ultimoFrameDibujado = true;
+        publicarFotograma(x, y);
+        if (!presentarActivo()) {
+            repaint();
+        }
+        requestFocusInWindow();
+        return true;
+    }
+
+    /**
+     * Publica el frame que dibujarán las vistas, con el estado actual del personaje, los NPCs
+     * visibles y las notificaciones.
+     *
+     * @param x Coordenada X del mapa, ya interpolada.
+     * @param y Coordenada Y del mapa, ya interpolada.
+     */
+    private void publicarFotograma(int x, int y) {
+        Image skin = null;
+        int pjX = 0;
+        int pjY = 0;
+        if (prota != null) {
+            skin = prota.getSkin();
+            pjX = prota.getCoordX();
+            pjY = prota.getCoordY();
         }
+        List<NPC> visibles = npcsVisibles;
+        int numNPC = visibles == null ? 0 : visibles.size();
+        Image[] skinsNPC = new Image[numNPC];
+        int[] npcX = new int[numNPC];
+        int[] npcY = new int[numNPC];
+        for (int i = 0; i < numNPC; i++) {
+            NPC n = visibles.get(i);
+            skinsNPC[i] = n.getSkin();
+            npcX[i] = n.getCoordX();
+            npcY[i] = n.getCoordY();
+        }
+        String accion = null;
+        String aviso = null;
+        if (notisPanel != null) {
+            accion = notisPanel.getAccionVisible();
+            aviso = notisPanel.getAvisoVisible();
+        }
+        fotograma = new Fotograma(mapaDibujado, x, y, skin, pjX, pjY, skinsNPC, npcX, npcY, accion, aviso);
+    }
+
+    /**
+     * Obtiene el último frame publicado.
+     *
+     * @return El frame que deben dibujar las vistas.
+     */
+    @Override
+    public Fotograma getFotograma() {
+        return fotograma;
+    }
+
+    /**
+     * El juego está en reposo si el último frame no cambió nada, no hay cambios pendientes y
+     * el jugador no está pulsando ninguna dirección (o el menú está abierto y no se mueve).
+     *
+     * @return true si el hilo del juego puede dormirse hasta la próxima entrada.
+     */
+    @Override
+    public boolean isEnReposo() {
+        // Mientras quedan teclas grabadas por reproducir, los ticks no se detienen
+        boolean reproduciendo = reproduccion != null && siguienteEvento < reproduccion.getEventos().size();
+        return !ultimoFrameDibujado && !cambioPendiente.get() && !reproduciendo && colaEntrada.isVacia()
+                && (mostrarMenu || !keysConfig.isAlgunaPulsada());
+    }
+
+    /**
+     * Avisa de que ha cambiado algo visible: el próximo frame se pinta aunque la cámara siga
+     * igual, y el hilo del juego sale del reposo. Se puede llamar desde cualquier hilo.
+     */
+    public void marcarCambio() {
+        cambioPendiente.set(true);
+        bucle.despertar();
+    }
+
+    /**
+     * Presenta el frame con el renderizado activo, si está habilitado y disponible.
+     *
+     * @return true si el frame se ha presentado; false si hay que repintar con Swing.
+     */
+    private boolean presentarActivo() {
+        if (renderizadoActivo == null || !renderizadoActivo.isDisponible()) {
+            return false;
+        }
+        // Los diálogos y el menú son componentes de Swing: mientras se ven, el lienzo se oculta
+        boolean hayInterfaz = hayInterfaz();
+        renderizadoActivo.setMostrado(!hayInterfaz);
+        return !hayInterfaz && renderizadoActivo.presentar();
+    }
+
+    /**
+     * Indica si hay a la vista algún componente de Swing por encima del juego (menú o diálogo).
+     *
+     * @return true si se ve el menú o el cuadro de diálogo.
+     */
+    private boolean hayInterfaz() {
+        return mostrarMenu || (dialogoPanel != null && dialogoPanel.isVisible());
     }
 
     /**
@@ -208,14 +762,26 @@ public class Juego extends JLayeredPane implements Runnable {
             if (controlNotis != null) {
                 controlNotis.setCoordinates(Mapa_CoordX, Mapa_CoordY);
             }
-            if (mapaPanel != null) {
-                mapaPanel.setCordenadas(Mapa_CoordX, Mapa_CoordY);
-
-
+            if (mapaActual.isPorTrozos()) {
+                mantenerZonaResidente();
             }
         }
     }
 
+    /**
+     * En mapas infinitos, mantiene cargados los trozos de capa que rodean al jugador: media
+     * pantalla en cada dirección más un margen, para que no se vea la carga al caminar.
+     */
+    private void mantenerZonaResidente() {
+        int anchoBaldosa = mapaActual.getAnchoBaldosa() * MapaVisual.ESCALA;
+        int altoBaldosa = mapaActual.getAltoBaldosa() * MapaVisual.ESCALA;
+        // El centro de la pantalla está en el centro del mapa desplazado por las coordenadas
+        int baldosaX = Math.floorDiv(mapaActual.getAnchoMapa() * anchoBaldosa / 2 - Mapa_CoordX, anchoBaldosa);
+        int baldosaY = Math.floorDiv(mapaActual.getAltoMapa() * altoBaldosa / 2 - Mapa_CoordY, altoBaldosa);
+        int radio = Math.max(GUI.getAnchoPantalla() / anchoBaldosa, GUI.getAltoPantalla() / altoBaldosa) / 2 + 4;
+        mapaDibujado.mantenerZonaResidente(baldosaX, baldosaY, radio);
+    }
+
     /**
      * Cambia el mapa actual y ajusta las coordenadas del jugador dependiendo del lugar.
      *
@@ -223,91 +789,140 @@ public class Juego extends JLayeredPane implements Runnable {
      * @param id    El identificador del NPC o evento en el mapa actual.
      */
     public void cambiarMapa(String sitio, int id) {
-        MapaVisual mv;
+        long inicio = System.nanoTime();
+        DibujoMapa dibujo;
+        Color fondo = new Color(6, 6, 6);
         switch (sitio) {
             case "pequeño":
-                Mapa_CoordX = 18;
-                Mapa_CoordY = -230;
-                mapaActual = casaPequeña;
+                Mapa_CoordX = Disparadores.PUERTA_PEQUEÑA_X;
+                Mapa_CoordY = Disparadores.PUERTA_PEQUEÑA_Y;
+                dibujo = precarga.tomar(rutaMapa(sitio));
+                mapaActual = dibujo.getMapa();
                 prota.setMapa();
-                mv = new MapaVisual(mapaActual);
-                mv.setBackground(new Color(6, 6, 6));
-                mostrarNPC(id);
+                cargarNPC(id);
                 break;
             case "grande":
-                Mapa_CoordX = 14;
-                Mapa_CoordY = -288;
-                mapaActual = casaGrande;
+                Mapa_CoordX = Disparadores.PUERTA_GRANDE_X;
+                Mapa_CoordY = Disparadores.PUERTA_GRANDE_Y;
+                dibujo = precarga.tomar(rutaMapa(sitio));
+                mapaActual = dibujo.getMapa();
                 prota.setMapa();
-                mv = new MapaVisual(mapaActual);
-                mv.setBackground(new Color(6, 6, 6));
-                mostrarNPC(id);
+                cargarNPC(id);
                 break;
             case "mazmorra":
-                if (partidaActual.getNivel() == 6) {
-                    mapaActual = new Mapa("/mapas/mazmorra5.tmx");
-                } else {
-                    mapaActual = new Mapa("/mapas/mazmorra" + prota.getNivel() + ".tmx");
+                dibujo = precarga.tomar(rutaMapa(sitio));
+                mapaActual = dibujo.getMapa();
+                if (partidaActual.getNivel() != 6) {
                     prota.setMapa();
-                    mostrarNPC(id);
+                    cargarNPC(id);
                     if (npclist == null || !mazmorraEmpezada(npclist)) {
                         npclist = new boolean[npcs.size()];
                         Arrays.fill(npclist, false);
                     }
                 }
-                mv = new MapaVisual(mapaActual);
-                mv.setBackground(new Color(6, 6, 6));
                 break;
             case "mapa":
                 Mapa_CoordX = controlNotis.getProximaSalidaX();
                 Mapa_CoordY = controlNotis.getProximaSalidaY();
                 mapaActual = mapa;
                 prota.setMapa();
-                mv = mapaPanel;
-                mv.setBackground(new Color(125, 219, 206));
+                dibujo = mapaPanel.getDibujo();
+                fondo = new Color(125, 219, 206);
                 if (prota.getNivel() == 1 || prota.getNivel() == 5) {
-                    mostrarNPC(id);
+                    cargarNPC(id);
                 } else {
-                    npcPanel = null;
+                    npcsVisibles = null;
                 }
                 break;
             default:
                 throw new IllegalArgumentException("Lugar no válido");
         }
 
-        for (Component comp : this.getComponents()) {
-            if (this.getLayer(comp) == 1 || this.getLayer(comp) == 2) {
-                this.remove(comp);
+        dibujo.setFondo(fondo);
+
+        // El mapa nuevo sale en el frame a la vez que las coordenadas nuevas
+        DibujoMapa anterior = mapaDibujado;
+        mapaDibujado = dibujo;
+        publicarFotograma(Mapa_CoordX, Mapa_CoordY);
+        marcarCambio();
+
+        // Sin compositor el mapa es un panel apilado más, y los paneles se cambian en el hilo de eventos
+        enEDT(() -> {
+            if (compositor == null) {
+                for (Component comp : this.getComponents()) {
+                    if (this.getLayer(comp) == 1 || this.getLayer(comp) == 2) {
+                        this.remove(comp);
+                    }
+                }
+                MapaVisual mv = dibujo == mapaPanel.getDibujo() ? mapaPanel : new MapaVisual(dibujo);
+                mv.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
+                mv.setVisible(true);
+                this.add(mv, Integer.valueOf(1)); // Fondo
+                this.add(npcPanel, Integer.valueOf(2));
+            }
+            // Los mapas de casas y mazmorras no se reutilizan: sueltan sus patrones. Ya no hay
+            // ningún frame publicado que los dibuje
+            if (anterior != mapaPanel.getDibujo() && anterior != dibujo) {
+                anterior.liberar();
             }
-        }
-        mv.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
-        mv.setVisible(true);
-        this.add(mv, Integer.valueOf(1)); // Fondo
-        if (npcPanel != null) {
-            this.add(npcPanel, Integer.valueOf(2));
-        }
 
-        revalidate();
-        repaint();
+            revalidate();
+            repaint();
+            precarga.registrarTransicion(System.nanoTime() - inicio);
+        });
+    }
+
+    /**
+     * Obtiene la ruta del mapa al que lleva un lugar.
+     *
+     * @param sitio El nombre del lugar ("pequeño", "grande" o "mazmorra").
+     * @return La ruta del archivo TMX, o null si el lugar no tiene un mapa propio.
+     */
+    private String rutaMapa(String sitio) {
+        // Una partida en el nivel 6 ya ha terminado el juego y no tiene personaje
+        int nivel = partidaActual.getNivel() == 6 ? 6 : prota.getNivel();
+        return SimulacionMundo.rutaMapa(sitio, nivel);
+    }
 
+    /**
+     * Empieza a preparar en segundo plano el mapa de un lugar al que el jugador se está acercando.
+     *
+     * @param sitio El nombre del lugar ("pequeño", "grande" o "mazmorra").
+     */
+    public void precargarMapa(String sitio) {
+        String ruta = rutaMapa(sitio);
+        if (ruta != null) {
+            precarga.solicitar(ruta);
+        }
     }
 
     /**
-     * Muestra los NPCs en el mapa dependiendo del nivel y la ubicación.
+     * Descarta el mapa precargado de un lugar del que el jugador se ha alejado sin entrar,
+     * soltando sus patrones y su atlas.
      *
-     * @param id El identificador de los NPCs que deben ser mostrados.
+     * @param sitio El nombre del lugar ("pequeño", "grande" o "mazmorra").
      */
-    public void mostrarNPC(int id) {
+    public void descartarPrecarga(String sitio) {
+        String ruta = rutaMapa(sitio);
+        if (ruta != null) {
+            precarga.descartar(ruta);
+        }
+    }
+
+    /**
+     * Carga los NPCs del lugar dependiendo del nivel y la ubicación.
+     *
+     * @param id El identificador de los NPCs que deben ser cargados.
+     */
+    private void cargarNPC(int id) {
         npcs = Creador.spawnearNPCs(prota.getNivel(), id, partidaActual.getLenguaje().toLowerCase());
         modeloNotis.setNpcs(npcs);
-        npcPanel = new NPCVisual(npcs, this);
-        npcPanel.setBounds(0, 0, GUI.getAnchoPantalla(), GUI.getAltoPantalla());
-        npcPanel.setOpaque(false);
-        npcPanel.setVisible(true);
+        npcsVisibles = npcs;
     }
 
     /**
-     * Gestiona la interacción con un NPC, mostrando su diálogo.
+     * Gestiona la interacción con un NPC, mostrando su diálogo. Desde aquí hasta
+     * {@link #finalizarInteraccionNPC()} las teclas pulsadas van al NPC.
      *
      * @param npc    El NPC con el que se interactúa.
      * @param numNpc El número identificador del NPC.
@@ -316,25 +931,47 @@ public class Juego extends JLayeredPane implements Runnable {
     public void interaccionNPC(NPC npc, int numNpc, String lugar) {
         if (!lugar.equals("mazmorra") || (!npclist[numNpc] && lugar.equals("mazmorra"))) {
             controlNotis.deshabilitarNPC(true);
+            interlocutor = npc;
 
             npc.setJuego(this);
             npc.setId(numNpc);
-            if (lugar.equals("mapa") || prota.getNivel() == 5) {
-                dialogoPanel.setNumNPC(-1);
-            } else {
-                dialogoPanel.setNumNPC(numNpc);
-            }
-            dialogoPanel.setVisible(true);
+            int numPanel = lugar.equals("mapa") || prota.getNivel() == 5 ? -1 : numNpc;
+            enEDT(() -> {
+                dialogoPanel.setNumNPC(numPanel);
+                dialogoPanel.setVisible(true);
+            });
 
             npc.mostrarDialogo();
-            teclas = npc.avanzarDialogo();
-            addKeyListener(teclas);
         } else {
             notisPanel.mostrarNotiTemporal((Idioma.getRb().getString("yaDerrotado")), 3);
         }
 
     }
 
+    /**
+     * Muestra un texto en el panel de diálogo y, si se indican, las opciones de respuesta.
+     *
+     * @param texto    El texto del diálogo.
+     * @param opciones Las opciones de respuesta, o null para dejar las que haya.
+     */
+    public void mostrarTextoDialogo(String texto, List<String> opciones) {
+        enEDT(() -> {
+            dialogoPanel.setTextoDialogo(texto);
+            if (opciones != null) {
+                dialogoPanel.setOpciones(opciones);
+            }
+        });
+    }
+
+    /**
+     * Termina la interacción con el NPC actual: oculta el diálogo y las teclas vuelven al mundo.
+     */
+    public void finalizarInteraccionNPC() {
+        interlocutor = null;
+        controlNotis.deshabilitarNPC(false);
+        enEDT(() -> dialogoPanel.setVisible(false));
+    }
+
     /**
      * Verifica si ya se ha comenzado la mazmorras al comprobar los NPCs derrotados.
      *
@@ -365,14 +1002,25 @@ public class Juego extends JLayeredPane implements Runnable {
      * Finaliza el juego, mostrando un diploma y regresando al menú principal.
      */
     private void finalizarjuego() {
-        hilo = null;
+        bucle.detener();
+        precarga.cerrar();
         if (notisPanel != null) {
-            notisPanel.setVisible(false);
             prota.subirNivel();
         }
-        Diploma d = new Diploma(partidaActual.getUser(), partidaActual.getLenguaje(), e -> irAlMenuPrincipal());
-        d.setVisible(true);
-        this.add(d, Integer.valueOf(8)); // Fondo
+        enEDT(() -> {
+            if (renderizadoActivo != null) {
+                renderizadoActivo.setMostrado(false);
+            }
+            if (notisPanel != null) {
+                notisPanel.setVisible(false);
+            }
+            Diploma d = new Diploma(partidaActual.getUser(), partidaActual.getLenguaje(), e -> irAlMenuPrincipal());
+            d.setVisible(true);
+            this.add(d, Integer.valueOf(8)); // Fondo
+            // El hilo del juego ya no repinta: el diploma se pinta una vez al añadirlo
+            revalidate();
+            repaint();
+        });
     }
 
     /**
@@ -413,10 +1061,6 @@ public class Juego extends JLayeredPane implements Runnable {
         return dialogoPanel;
     }
 
-    public KeyAdapter getTeclas() {
-        return teclas;
-    }
-
     public c_notificacion getControlNotis() {
         return controlNotis;
     }
@@ -441,6 +1085,10 @@ public class Juego extends JLayeredPane implements Runnable {
         return Mapa_CoordX;
     }
 
+    public BucleJuego getBucle() {
+        return bucle;
+    }
+
     public void setMapa_CoordX(int mapa_CoordX) {
         Mapa_CoordX = mapa_CoordX;
     }
@@ -453,6 +1101,10 @@ public class Juego extends JLayeredPane implements Runnable {
         return notisPanel;
     }
 
+    public PrecargaMapas getPrecarga() {
+        return precarga;
+    }
+
 }
 
 
@@ -45,6 +45,14 @@ public class KeysConfig implements KeyListener {
     public boolean isDerecha() {
         return Derecha;
     }
+    /**
+     * Indica si hay alguna tecla de movimiento pulsada.
+     *
+     * @return true si el jugador está pulsando alguna dirección.
+     */
+    public boolean isAlgunaPulsada() {
+        return Avanzar || Atras || Izquierda || Derecha;
+    }
     /**
      * Este método se invoca cuando una tecla es escrita. En este caso, no se utiliza.
      *
@@ -62,20 +70,7 @@ public class KeysConfig implements KeyListener {
      */
     @Override
     public void keyPressed(KeyEvent e) {
-
-        int tecla = e.getKeyCode();
-        if (tecla == KeyEvent.VK_W || tecla == KeyEvent.VK_UP) {
-            Avanzar = true;
-        }
-        if (tecla == KeyEvent.VK_A || tecla == KeyEvent.VK_LEFT) {
-            Izquierda = true;
-        }
-        if (tecla == KeyEvent.VK_S || tecla == KeyEvent.VK_DOWN) {
-            Atras = true;
-        }
-        if (tecla == KeyEvent.VK_D || tecla == KeyEvent.VK_RIGHT) {
-            Derecha = true;
-        }
+        actualizar(e.getKeyCode(), true);
     }
     /**
      * Este método se invoca cuando una tecla es liberada. Actualiza el estado de las
@@ -85,18 +80,28 @@ public class KeysConfig implements KeyListener {
      */
     @Override
     public void keyReleased(KeyEvent e) {
-        int tecla = e.getKeyCode();
+        actualizar(e.getKeyCode(), false);
+    }
+    /**
+     * Actualiza el estado de las teclas de movimiento con una tecla pulsada o soltada. El juego
+     * lo llama desde su propio hilo al vaciar la {@link ColaEntrada}, el mismo que lee el estado
+     * en cada tick.
+     *
+     * @param tecla   Código de la tecla.
+     * @param pulsada true si se ha pulsado, false si se ha soltado.
+     */
+    public void actualizar(int tecla, boolean pulsada) {
         if (tecla == KeyEvent.VK_W || tecla == KeyEvent.VK_UP) {
-            Avanzar = false;
+            Avanzar = pulsada;
         }
         if (tecla == KeyEvent.VK_A || tecla == KeyEvent.VK_LEFT) {
-            Izquierda = false;
+            Izquierda = pulsada;
         }
         if (tecla == KeyEvent.VK_S || tecla == KeyEvent.VK_DOWN) {
-            Atras = false;
+            Atras = pulsada;
         }
         if (tecla == KeyEvent.VK_D || tecla == KeyEvent.VK_RIGHT) {
-            Derecha = false;
+            Derecha = pulsada;
         }
     }
 
@@ -0,0 +1,170 @@
+package game;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Planificador compartido por todo el juego para las acciones con retraso: ocultar
+ * notificaciones, esperas, repeticiones periódicas...
+ * <p>
+ * Todas las acciones se ejecutan en un único hilo ({@value #NOMBRE_HILO}), que termina solo
+ * tras unos segundos sin trabajo, en lugar de crear un hilo que duerme por cada acción. Las
+ * acciones deben ser breves; si tocan componentes de Swing, deben pasar al hilo de eventos.
+ * <p>
+ * Las acciones pueden llevar una clave. Programar otra acción con la misma clave cancela la
+ * que estuviera pendiente (se agrupan en la última), y {@link #cancelar(String)} cancela la
+ * acción pendiente de una clave.
+ */
+public final class Temporizador {
+    /** Nombre del hilo del planificador. */
+    public static final String NOMBRE_HILO = "SkillSeekers-Temporizador";
+    private static final Temporizador instancia = new Temporizador();
+
+    private final ScheduledThreadPoolExecutor ejecutor;
+    private final Map<String, ScheduledFuture<?>> porClave = new ConcurrentHashMap<>();
+
+    private final AtomicLong programadas = new AtomicLong();
+    private final AtomicLong agrupadas = new AtomicLong();
+    private final AtomicLong canceladas = new AtomicLong();
+
+    private Temporizador() {
+        ejecutor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread hilo = new Thread(r, NOMBRE_HILO);
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        ejecutor.setKeepAliveTime(5, TimeUnit.SECONDS);
+        ejecutor.allowCoreThreadTimeOut(true);
+        ejecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Obtiene el planificador compartido por todo el juego.
+     *
+     * @return La instancia global del planificador.
+     */
+    public static Temporizador getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Programa una acción para dentro de un tiempo.
+     *
+     * @param retraso Tiempo de espera.
+     * @param unidad  Unidad del tiempo de espera.
+     * @param accion  Acción a ejecutar.
+     * @return La acción programada, que puede cancelarse.
+     */
+    public ScheduledFuture<?> programar(long retraso, TimeUnit unidad, Runnable accion) {
+        programadas.incrementAndGet();
+        return ejecutor.schedule(accion, retraso, unidad);
+    }
+
+    /**
+     * Programa una acción con clave para dentro de un tiempo. Si ya había una acción pendiente
+     * con esa clave, se cancela y queda solo la nueva.
+     *
+     * @param clave   Clave que identifica la acción.
+     * @param retraso Tiempo de espera.
+     * @param unidad  Unidad del tiempo de espera.
+     * @param accion  Acción a ejecutar.
+     * @return La acción programada, que puede cancelarse.
+     */
+    public ScheduledFuture<?> programar(String clave, long retraso, TimeUnit unidad, Runnable accion) {
+        ScheduledFuture<?>[] propia = new ScheduledFuture<?>[1];
+        propia[0] = programar(retraso, unidad, () -> {
+            porClave.remove(clave, propia[0]);
+            accion.run();
+        });
+        reemplazar(clave, propia[0]);
+        return propia[0];
+    }
+
+    /**
+     * Programa una acción con clave que se repite con un periodo fijo hasta que se cancele. Si ya
+     * había una acción pendiente con esa clave, se cancela y queda solo la nueva.
+     *
+     * @param clave   Clave que identifica la acción.
+     * @param periodo Tiempo entre repeticiones; la primera se ejecuta tras un periodo.
+     * @param unidad  Unidad del periodo.
+     * @param accion  Acción a ejecutar.
+     * @return La acción programada, que puede cancelarse.
+     */
+    public ScheduledFuture<?> programarPeriodica(String clave, long periodo, TimeUnit unidad, Runnable accion) {
+        programadas.incrementAndGet();
+        ScheduledFuture<?> tarea = ejecutor.scheduleAtFixedRate(accion, periodo, periodo, unidad);
+        reemplazar(clave, tarea);
+        return tarea;
+    }
+
+    /**
+     * Guarda la acción de una clave, cancelando la que hubiera antes.
+     */
+    private void reemplazar(String clave, ScheduledFuture<?> tarea) {
+        ScheduledFuture<?> anterior = porClave.put(clave, tarea);
+        // La acción puede haber terminado ya (retraso 0): entonces no debe quedar registrada
+        if (tarea.isDone()) {
+            porClave.remove(clave, tarea);
+        }
+        if (anterior != null && anterior.cancel(false)) {
+            agrupadas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Cancela la acción pendiente de una clave, si la hay.
+     *
+     * @param clave Clave de la acción.
+     * @return true si había una acción pendiente y se ha cancelado.
+     */
+    public boolean cancelar(String clave) {
+        ScheduledFuture<?> tarea = porClave.remove(clave);
+        if (tarea != null && tarea.cancel(false)) {
+            canceladas.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si hay una acción pendiente con una clave.
+     *
+     * @param clave Clave de la acción.
+     * @return true si la acción aún no se ha ejecutado ni cancelado.
+     */
+    public boolean isPendiente(String clave) {
+        ScheduledFuture<?> tarea = porClave.get(clave);
+        return tarea != null && !tarea.isDone();
+    }
+
+    /**
+     * Obtiene el número de acciones programadas desde que empezó el juego.
+     *
+     * @return Número de acciones programadas.
+     */
+    public long getProgramadas() {
+        return programadas.get();
+    }
+
+    /**
+     * Obtiene el número de acciones canceladas al programar otra con la misma clave.
+     *
+     * @return Número de acciones agrupadas.
+     */
+    public long getAgrupadas() {
+        return agrupadas.get();
+    }
+
+    /**
+     * Obtiene el número de acciones canceladas con {@link #cancelar(String)}.
+     *
+     * @return Número de acciones canceladas.
+     */
+    public long getCanceladas() {
+        return canceladas.get();
+    }
+}
@@ -20,6 +20,7 @@ public class CreadorNPC {
     private List<Map<String, Object>> pueblosJSON;
     private List<Map<String, Object>> dialogosJSON;
     private List<Map<String, Object>> preguntasJSON;
+    private boolean conSkins = true;
     /**
      * Método principal que genera una lista de NPCs a partir de los datos de pueblos, casas y diálogos.
      * <p>
@@ -32,6 +33,20 @@ public class CreadorNPC {
      * @return una lista de NPCs generados en el pueblo y casa especificados.
      */
     public List<NPC> spawnearNPCs(int idPueblo, int idCasa, String URL) {
+        return spawnearNPCs(idPueblo, idCasa, URL, true);
+    }
+    /**
+     * Genera los NPCs como {@link #spawnearNPCs(int, int, String)}, pudiendo crearlos sin imagen
+     * para usarlos solo en la lógica del juego (por ejemplo, en la simulación sin pantalla).
+     *
+     * @param idPueblo el ID del pueblo donde se deben generar los NPCs.
+     * @param idCasa el ID de la casa donde se deben generar los NPCs. Si es -1, no se selecciona una casa específica.
+     * @param URL la URL que se utiliza para acceder a los archivos JSON correspondientes a diálogos y preguntas.
+     * @param conSkins si es false, los NPCs se crean sin cargar sus imágenes.
+     * @return una lista de NPCs generados en el pueblo y casa especificados.
+     */
+    public List<NPC> spawnearNPCs(int idPueblo, int idCasa, String URL, boolean conSkins) {
+        this.conSkins = conSkins;
         ObjectMapper objectMapper = new ObjectMapper();
         try {
             pueblosJSON = objectMapper.readValue(new File(Objects.requireNonNull(CreadorNPC.class.getResource("/basedatos/casas/casas.json")).toURI()), List.class);
@@ -72,7 +87,7 @@ public class CreadorNPC {
                                     int coordY = coordenadas.get("coordY");
                                     List<List<String>> dialogos = new ArrayList<>();
                                     dialogos.add(obtenerDialogosPorNpcId(npcId));
-                                    lista.add(NPCFactory.crearNPC("bueno", coordX, coordY, dialogos));
+                                    lista.add(NPCFactory.crearNPC("bueno", coordX, coordY, dialogos, conSkins));
                                 }
                             }
                         }
@@ -88,9 +103,9 @@ public class CreadorNPC {
                         int coordY = coordenadas.get("coordY");
                         List<List<String>> dialogos = obtenerPreguntasPorNpcId(npcId);
                         if(puebloId == 5){
-                            lista.add(NPCFactory.crearNPC("boss", coordX, coordY, dialogos));
+                            lista.add(NPCFactory.crearNPC("boss", coordX, coordY, dialogos, conSkins));
                         }else {
-                            lista.add(NPCFactory.crearNPC("malo", coordX, coordY, dialogos));
+                            lista.add(NPCFactory.crearNPC("malo", coordX, coordY, dialogos, conSkins));
                         }
                     }
                 }
@@ -4,7 +4,6 @@ import game.Juego;
 import game.entidades.Entidad;
 
 import java.awt.*;
-import java.awt.event.KeyAdapter;
 import java.util.List;
 /**
  * Clase abstracta que representa a un NPC (personaje no jugable) en el juego.
@@ -46,27 +45,54 @@ public abstract class NPC extends Entidad {
     public void setJuego(Juego j) {
         this.juego = j;
     }
+    /**
+     * Obtiene la posición del diálogo actual.
+     *
+     * @return el índice del diálogo o la pregunta que toca mostrar.
+     */
+    public int getIndice() {
+        return indice;
+    }
+    /**
+     * Obtiene el número de diálogos del NPC.
+     *
+     * @return el número de diálogos (o de preguntas, en los NPC malos).
+     */
+    public int getNumDialogos() {
+        return dialogos.size();
+    }
+    /**
+     * Pasa al siguiente diálogo sin mostrarlo.
+     */
+    public void siguienteDialogo() {
+        indice += 1;
+    }
+    /**
+     * Vuelve al primer diálogo sin tocar la interfaz, como al finalizar la interacción.
+     */
+    public void reiniciarDialogo() {
+        indice = 0;
+    }
     /**
      * Método abstracto para mostrar el diálogo del NPC.
      * Este método debe ser especializado por cada tipo de NPC.
      */
     public abstract void mostrarDialogo(); // Especializado por tipo de NPC.
     /**
-     * Método abstracto para avanzar en el diálogo.
-     * Este método debe ser especializado por cada tipo de NPC.
+     * Método abstracto para avanzar en el diálogo con una tecla pulsada durante la interacción.
+     * Este método debe ser especializado por cada tipo de NPC. Se llama desde el hilo del juego.
      *
-     * @return un {@link KeyAdapter} que gestiona el avance del diálogo mediante las teclas.
+     * @param tecla el código de la tecla pulsada.
+     * @param respuesta la opción elegida al pulsar intro (posición en las opciones sin barajar), o -1.
      */
-    public abstract KeyAdapter avanzarDialogo();
+    public abstract void atenderTecla(int tecla, int respuesta);
     /**
      * Finaliza la interacción con el NPC, reseteando el índice del diálogo,
      * ocultando el panel de diálogo y deshabilitando las acciones relacionadas.
      */
     protected void finalizarInteraccion() {
-        indice = 0;
-        juego.getDialogoPanel().setVisible(false);
-        juego.removeKeyListener(juego.getTeclas());
-        juego.getControlNotis().deshabilitarNPC(false);
+        reiniciarDialogo();
+        juego.finalizarInteraccionNPC();
     }
 
 }
@@ -2,7 +2,6 @@ package game.entidades.npc;
 
 
 import java.awt.*;
-import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.List;
 /**
@@ -32,7 +31,7 @@ public class NPCBueno extends NPC {
     @Override
     public void mostrarDialogo() {
         if (indice < dialogos.size()) {
-            juego.getDialogoPanel().setTextoDialogo(dialogos.get(indice));
+            juego.mostrarTextoDialogo(dialogos.get(indice), null);
             indice += 1;
 
         } else {
@@ -41,28 +40,19 @@ public class NPCBueno extends NPC {
     }
 
     /**
-     * Devuelve un objeto {@link KeyAdapter} para gestionar las teclas del jugador durante la
-     * interacción con el NPC. El diálogo avanza al presionar la tecla espacio, y
-     * finaliza la interacción si se presiona la tecla escape.
+     * Gestiona las teclas del jugador durante la interacción con el NPC. El diálogo avanza al
+     * presionar la tecla espacio, y finaliza la interacción si se presiona la tecla escape.
      *
-     * @return Un objeto {@link KeyAdapter} que maneja las teclas para avanzar en el diálogo o finalizar la interacción.
+     * @param tecla El código de la tecla pulsada.
+     * @param respuesta No se usa: los NPC buenos no hacen preguntas.
      */
     @Override
-    public KeyAdapter avanzarDialogo() {
-        KeyAdapter teclasDialogo = new KeyAdapter() {
-            @Override
-            public void keyPressed(KeyEvent e) {
-                if (juego.getDialogoPanel().isVisible()){
-                    if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                        finalizarInteraccion();
-
-                    } else if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-                        mostrarDialogo();
-                    }
-                }
+    public void atenderTecla(int tecla, int respuesta) {
+        if (tecla == KeyEvent.VK_ESCAPE) {
+            finalizarInteraccion();
 
-            }
-        };
-        return teclasDialogo;
+        } else if (tecla == KeyEvent.VK_SPACE) {
+            mostrarDialogo();
+        }
     }
-}
\ No newline at end of file
+}
@@ -24,32 +24,60 @@ public class NPCFactory {
      * @throws IllegalArgumentException Si el tipo de NPC proporcionado no es válido.
      */
     public static NPC crearNPC(String tipo, int coordX, int coordY, List<List<String>> dialogos) {
-        Image skin;
+        return crearNPC(tipo, coordX, coordY, dialogos, true);
+    }
+
+    /**
+     * Crea un NPC como {@link #crearNPC(String, int, int, List)}, pudiendo omitir la carga de su
+     * imagen. Sin imagen, el NPC no se puede dibujar, pero sirve para la lógica del juego y para
+     * la simulación sin pantalla, que así no necesita leer imágenes.
+     *
+     * @param tipo El tipo de NPC a crear (puede ser "bueno", "malo" o "boss").
+     * @param coordX La coordenada X donde se ubicará el NPC en el mapa.
+     * @param coordY La coordenada Y donde se ubicará el NPC en el mapa.
+     * @param dialogos Los diálogos del NPC, como en {@link #crearNPC(String, int, int, List)}.
+     * @param conSkin Si es false, el NPC se crea sin imagen (skin null).
+     * @return Un objeto NPC del tipo especificado.
+     * @throws IllegalArgumentException Si el tipo de NPC proporcionado no es válido.
+     */
+    public static NPC crearNPC(String tipo, int coordX, int coordY, List<List<String>> dialogos, boolean conSkin) {
         switch (tipo) {
             case "bueno":
-                try {
-                    skin = ImageIO.read(Objects.requireNonNull(CreadorNPC.class.getResource("/images/skins/npc/bueno/npc_bueno_" + (int) Math.floor(Math.random() * 8) + ".png")));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                return new NPCBueno(skin, coordX, coordY, dialogos.get(0)); // Obtiene el primer conjunto de diálogos que está solo en la primera posicion
+                // Obtiene el primer conjunto de diálogos que está solo en la primera posicion
+                return new NPCBueno(conSkin ? cargarSkin(tipo) : null, coordX, coordY, dialogos.get(0));
             case "malo":
             case "boss":
-                try {
-                    // Carga la imagen adecuada dependiendo de si es un "boss" o un "malo"
-                    if(tipo.equals("boss")){
-                        skin = ImageIO.read(Objects.requireNonNull(CreadorNPC.class.getResource("/images/skins/npc/malo/npc_boss.png")));
-                    }else{
-                        skin = ImageIO.read(Objects.requireNonNull(CreadorNPC.class.getResource("/images/skins/npc/malo/npc_malo_" + (int) Math.floor(Math.random() * 4) + ".png")));
-                    }
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
                 /* Pasa como dialogos la lista de la primera posicion, elimina el primer conjunto de diálogos y pasa el resto
                    de listas que corresponden a las posibles respuestas de cada dialogo.*/
-                return new NPCMalo(skin, coordX, coordY, dialogos.get(0), dialogos);
+                return new NPCMalo(conSkin ? cargarSkin(tipo) : null, coordX, coordY, dialogos.get(0), dialogos);
             default:
                 throw new IllegalArgumentException("Tipo de NPC desconocido: " + tipo);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Carga una imagen al azar para un tipo de NPC; el "boss" siempre tiene la misma.
+     *
+     * @param tipo El tipo de NPC ("bueno", "malo" o "boss").
+     * @return La imagen del NPC.
+     */
+    private static Image cargarSkin(String tipo) {
+        String ruta;
+        switch (tipo) {
+            case "bueno":
+                ruta = "/images/skins/npc/bueno/npc_bueno_" + (int) Math.floor(Math.random() * 8) + ".png";
+                break;
+            case "boss":
+                ruta = "/images/skins/npc/malo/npc_boss.png";
+                break;
+            default:
+                ruta = "/images/skins/npc/malo/npc_malo_" + (int) Math.floor(Math.random() * 4) + ".png";
+                break;
+        }
+        try {
+            return ImageIO.read(Objects.requireNonNull(CreadorNPC.class.getResource(ruta)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
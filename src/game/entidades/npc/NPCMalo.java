@@ -1,10 +1,9 @@
 package game.entidades.npc;
 
+import game.notificaciones.v_notificacion;
 import idiomas.Idioma;
 
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.List;
 /**
@@ -39,8 +38,7 @@ public class NPCMalo extends NPC {
     public void mostrarDialogo() {
         if(!juego.getNpclist()[id]) { // Verifica si el NPC ya ha sido derrotado
             if (indice < dialogos.size()) {
-                juego.getDialogoPanel().setTextoDialogo(dialogos.get(indice)); // Muestra el diálogo actual
-                juego.getDialogoPanel().setOpciones(respuestas.get(indice)); // Muestra las opciones de respuesta
+                juego.mostrarTextoDialogo(dialogos.get(indice), getOpciones()); // Muestra el diálogo actual y las opciones de respuesta
             } else {
                 // Marca al NPC como derrotado y muestra un mensaje
                 juego.getNpclist()[id] = true;
@@ -48,48 +46,49 @@ public class NPCMalo extends NPC {
                 juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("derrotado")), 3); // Notificación de derrota
                 // Si todos los NPCs han sido derrotados, desbloquea una puerta
                 if (mazmorraTerminada(juego.getNpclist())) {
-                    juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("nivel")), 5); // Notificación de nivel completado
+                    juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("nivel")), 5, v_notificacion.PRIORIDAD_ALTA); // Notificación de nivel completado
                     juego.habilitarPuerta();// Desbloquea la puerta
                 }
             }
         }
     }
     /**
-     * Devuelve un {@link KeyAdapter} que captura las teclas presionadas durante la interacción con el NPC.
+     * Gestiona las teclas pulsadas durante la interacción con el NPC.
      * Si la tecla presionada es "ESCAPE", finaliza la interacción. Si es "ENTER", valida la respuesta seleccionada
      * por el jugador y avanza en los diálogos si la respuesta es correcta.
      *
-     * @return Un {@link KeyAdapter} para manejar las interacciones de teclado.
+     * @param tecla El código de la tecla pulsada.
+     * @param respuesta La opción seleccionada (posición en {@link #getOpciones()}), o -1 si no hay ninguna.
      */
     @Override
-    public KeyAdapter avanzarDialogo() {
-        KeyAdapter teclasDialogo = new KeyAdapter() {
-            @Override
-            public void keyPressed(KeyEvent e) {
-                if (juego.getDialogoPanel().isVisible()){
-                    if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                        finalizarInteraccion(); // Finaliza la interacción si se presiona ESCAPE
+    public void atenderTecla(int tecla, int respuesta) {
+        if (tecla == KeyEvent.VK_ESCAPE) {
+            finalizarInteraccion(); // Finaliza la interacción si se presiona ESCAPE
 
-                    } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
-                        JButton respuesta = juego.getDialogoPanel().getSeleccionActual(); // Obtiene la respuesta seleccionada
-                        if(respuesta != null) {
-                            String resp = respuesta.getText(); // Obtiene el texto de la respuesta
-                            if (validarRespuesta(resp)) {
-                                indice += 1;
-                                mostrarDialogo(); // Avanza al siguiente diálogo
+        } else if (tecla == KeyEvent.VK_ENTER) {
+            List<String> opciones = getOpciones();
+            if (respuesta >= 0 && respuesta < opciones.size()) {
+                String resp = opciones.get(respuesta); // Obtiene el texto de la respuesta
+                if (validarRespuesta(resp)) {
+                    siguienteDialogo();
+                    mostrarDialogo(); // Avanza al siguiente diálogo
 
-                            } else {
-                                juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("incorrecto")),5); // Muestra notificación de respuesta incorrecta
-                                finalizarInteraccion(); // Finaliza la interacción
-                            }
-                        }else{
-                            juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("incompleto")),3);  // Muestra notificación si no se ha seleccionado respuesta
-                        }
-                    }
+                } else {
+                    juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("incorrecto")),5); // Muestra notificación de respuesta incorrecta
+                    finalizarInteraccion(); // Finaliza la interacción
                 }
+            } else {
+                juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("incompleto")),3);  // Muestra notificación si no se ha seleccionado respuesta
             }
-        };
-        return teclasDialogo;
+        }
+    }
+    /**
+     * Obtiene las opciones de respuesta que se muestran con la pregunta actual.
+     *
+     * @return La lista de opciones; la primera es la correcta.
+     */
+    public List<String> getOpciones() {
+        return respuestas.get(indice);
     }
     /**
      * Valida si la respuesta seleccionada por el jugador es correcta.
@@ -98,7 +97,7 @@ public class NPCMalo extends NPC {
      * @return {@code true} si la respuesta es correcta, {@code false} si no lo es.
      */
     public boolean validarRespuesta(String respuesta){
-        return respuesta.equals(respuestas.get(indice).get(0)); // La respuesta correcta es la primera en la lista
+        return respuesta.equals(getOpciones().get(0)); // La respuesta correcta es la primera en la lista
     }
 
     /**
@@ -1,33 +1,21 @@
 package game.entidades.npc;
 
-import game.Juego;
+import game.render.Fotograma;
+import game.render.Pintable;
+import game.rendimiento.Metricas;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Clase encargada de manejar la visualización de los NPCs en el mapa del juego.
  * Extiende {@link JPanel} y sobrecarga el método {@link #paintComponent(Graphics)} para dibujar los NPCs
  * en la pantalla en función de sus coordenadas y las del mapa.
  *
- * La posición de los NPCs es ajustada en base a las coordenadas del mapa, permitiendo que se muestren correctamente
- * en la vista actual del jugador.
+ * Los NPCs y la cámara se toman del {@link Fotograma}, así que los NPCs se dibujan siempre en el
+ * mismo punto del mapa que se está viendo.
  */
-public class NPCVisual extends JPanel {
-    private Juego juego;
-    private List<NPC> npcs;
-
-    /**
-     * Constructor de la clase NPCVisual.
-     *
-     * @param e Lista de NPCs a ser visualizados.
-     * @param j Instancia del juego, que contiene las coordenadas del mapa y otros parámetros.
-     */
-    public NPCVisual (List<NPC> e, Juego j){
-        juego = j;
-        npcs = e;
-    }
+public class NPCVisual extends JPanel implements Pintable {
 
     /**
      * Sobrescribe el método {@link JPanel#paintComponent(Graphics)} para dibujar los NPCs en la pantalla.
@@ -39,11 +27,26 @@ public class NPCVisual extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        for (NPC n : npcs){
+        pintar((Graphics2D) g, Fotograma.de(this), getWidth(), getHeight());
+    }
+
+    /**
+     * Dibuja los NPCs del frame sin fondo, para usarlos como capa del compositor del juego.
+     *
+     * @param g         El objeto {@link Graphics2D} en el que dibujar.
+     * @param fotograma Frame con los NPCs visibles y la cámara.
+     * @param ancho     Ancho de la zona de dibujo.
+     * @param alto      Alto de la zona de dibujo.
+     */
+    @Override
+    public void pintar(Graphics2D g, Fotograma fotograma, int ancho, int alto) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < fotograma.getNumNPC(); i++) {
             // Calcula las coordenadas relativas a la vista actual del mapa
-            int cX = -(n.getCoordX() - juego.getMapa_CoordX()) + 960;
-            int cY = -(n.getCoordY() - juego.getMapa_CoordY()) + 540;
-            g.drawImage(n.getSkin(), cX-20,cY-40,75,75,null);
+            int cX = -(fotograma.getNPCX(i) - fotograma.getCamaraX()) + 960;
+            int cY = -(fotograma.getNPCY(i) - fotograma.getCamaraY()) + 540;
+            g.drawImage(fotograma.getSkinNPC(i), cX-20,cY-40,75,75,null);
         }
+        Metricas.getInstancia().registrar(Metricas.PINTAR_NPC, System.nanoTime() - inicio);
     }
 }
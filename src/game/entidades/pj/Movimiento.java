@@ -0,0 +1,169 @@
+package game.entidades.pj;
+
+import game.mapa.CollisionGrid;
+import game.mapa.Mapa;
+
+/**
+ * Movimiento del personaje por un mapa: paso por tick y colisiones con las baldosas.
+ * <p>
+ * No depende de Swing ni de las teclas: recibe la dirección de cada tick, de modo que lo usan
+ * tanto {@link Personaje} como la simulación sin pantalla.
+ */
+public class Movimiento {
+    public static final int QUIETO = 0;
+    public static final int AVANZAR = 1;
+    public static final int ATRAS = 2;
+    public static final int IZQUIERDA = 3;
+    public static final int DERECHA = 4;
+
+    // Velocidad del personaje en píxeles por segundo, la misma sea cual sea el ritmo de ticks
+    private static final double VELOCIDAD_PX_POR_SEGUNDO = 240;
+
+    private final double pasoPorTick;
+    private double restoPaso;
+    private Mapa mapa;
+    private int coordX;
+    private int coordY;
+
+    /**
+     * Crea el movimiento sobre un mapa.
+     *
+     * @param mapa            Mapa por el que se mueve el personaje.
+     * @param ticksPorSegundo Ticks de la simulación por segundo.
+     */
+    public Movimiento(Mapa mapa, int ticksPorSegundo) {
+        this.mapa = mapa;
+        this.pasoPorTick = VELOCIDAD_PX_POR_SEGUNDO / ticksPorSegundo;
+    }
+
+    /**
+     * Obtiene la dirección de un tick a partir de las teclas pulsadas. Si hay varias, gana la
+     * primera en el orden avanzar, atrás, izquierda, derecha.
+     *
+     * @param avanzar   Si está pulsada la tecla de avanzar.
+     * @param atras     Si está pulsada la tecla de ir hacia atrás.
+     * @param izquierda Si está pulsada la tecla de ir a la izquierda.
+     * @param derecha   Si está pulsada la tecla de ir a la derecha.
+     * @return La dirección, o {@link #QUIETO} si no hay ninguna pulsada.
+     */
+    public static int direccion(boolean avanzar, boolean atras, boolean izquierda, boolean derecha) {
+        if (avanzar) {
+            return AVANZAR;
+        } else if (atras) {
+            return ATRAS;
+        } else if (izquierda) {
+            return IZQUIERDA;
+        } else if (derecha) {
+            return DERECHA;
+        }
+        return QUIETO;
+    }
+
+    /**
+     * Avanza un tick en una dirección. El paso sale de la velocidad y del ritmo de ticks,
+     * guardando la parte fraccionaria para el tick siguiente aunque el personaje esté quieto.
+     *
+     * @param direccion Dirección del tick, por ejemplo {@link #AVANZAR}.
+     * @return true si las coordenadas han cambiado.
+     */
+    public boolean mover(int direccion) {
+        restoPaso += pasoPorTick;
+        int velocidad = (int) restoPaso;
+        restoPaso -= velocidad;
+        if (direccion == QUIETO) {
+            return false;
+        }
+
+        int anchoBaldosa = mapa.getAnchoBaldosa(); // Ancho de una baldosa
+        int altoBaldosa = mapa.getAltoBaldosa(); // Alto de una baldosa
+
+        CollisionGrid colisiones = mapa.getColisiones();
+        double baldosaX_Dec = (double) ((mapa.getAnchoMapa() * 16) - coordX) / (anchoBaldosa * 2);
+        double baldosaY_Dec = (double) ((mapa.getAltoMapa() * 16) - coordY) / (altoBaldosa * 2);
+        int baldosaX;
+        int baldosaY;
+        switch (direccion) {
+            case AVANZAR:
+                baldosaX = (int) Math.floor(baldosaX_Dec);
+                baldosaY = (int) Math.floor(baldosaY_Dec) - 1;
+                if (baldosaY >= 2 && !colisiones.isBlocked(baldosaX, baldosaY)) {
+                    coordY += velocidad;
+                    return velocidad != 0;
+                }
+                return false;
+            case ATRAS:
+                baldosaX = (int) Math.floor(baldosaX_Dec);
+                baldosaY = (int) Math.floor(baldosaY_Dec) + 1;
+                if (baldosaY < mapa.getAltoMapa() - 2 && !colisiones.isBlocked(baldosaX, baldosaY)) {
+                    coordY -= velocidad;
+                    return velocidad != 0;
+                }
+                return false;
+            case IZQUIERDA:
+                baldosaX = (int) Math.ceil(baldosaX_Dec) - 1;
+                baldosaY = (int) Math.round(baldosaY_Dec);
+                if (baldosaX >= 2 && !colisiones.isBlocked(baldosaX, baldosaY)) {
+                    coordX += velocidad;
+                    return velocidad != 0;
+                }
+                return false;
+            case DERECHA:
+                baldosaX = (int) Math.ceil(baldosaX_Dec) + 1;
+                baldosaY = (int) Math.round(baldosaY_Dec);
+                if (baldosaX < mapa.getAnchoMapa() - 1 && !colisiones.isBlocked(baldosaX, baldosaY)) {
+                    coordX -= velocidad;
+                    return velocidad != 0;
+                }
+                return false;
+            default:
+                throw new IllegalArgumentException("Dirección no válida: " + direccion);
+        }
+    }
+
+    /**
+     * Cambia el mapa por el que se mueve el personaje.
+     *
+     * @param mapa El nuevo mapa.
+     */
+    public void setMapa(Mapa mapa) {
+        this.mapa = mapa;
+    }
+
+    /**
+     * Obtiene el mapa por el que se mueve el personaje.
+     *
+     * @return El mapa actual.
+     */
+    public Mapa getMapa() {
+        return mapa;
+    }
+
+    /**
+     * Coloca al personaje en unas coordenadas del mapa.
+     *
+     * @param coordX Coordenada X.
+     * @param coordY Coordenada Y.
+     */
+    public void setCoordenadas(int coordX, int coordY) {
+        this.coordX = coordX;
+        this.coordY = coordY;
+    }
+
+    /**
+     * Obtiene la coordenada X del personaje en el mapa.
+     *
+     * @return La coordenada X.
+     */
+    public int getCoordX() {
+        return coordX;
+    }
+
+    /**
+     * Obtiene la coordenada Y del personaje en el mapa.
+     *
+     * @return La coordenada Y.
+     */
+    public int getCoordY() {
+        return coordY;
+    }
+}
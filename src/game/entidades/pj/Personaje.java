@@ -3,7 +3,6 @@ package game.entidades.pj;
 import game.Juego;
 import game.KeysConfig;
 import game.entidades.Entidad;
-import game.mapa.Mapa;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -18,11 +17,14 @@ public class Personaje extends Entidad {
 
     private static KeysConfig k;
     private static Image avanza01, avanza02, atras01, atras02, izq01, izq02, dcha01, dcha02, quieto_atras, quieto_frente, quieto_dcha, quieto_izq;
-    private static int alternar = 1;
-    private static int velocidad = 2;
+    // Duración de un ciclo de la animación de caminar (dos pasos), la misma sea cual sea el ritmo de ticks
+    private static final double CICLO_ANIMACION_SEGUNDOS = 1.0 / 3;
+
+    private final double segundosPorTick;
+    private double tiempoAnimacion;
+    private final Movimiento movimiento;
     private String direccion;
     private int nivel;
-    private Mapa mapa;
     private final Juego j;
     /**
      * Obtiene el nivel del personaje.
@@ -49,6 +51,8 @@ public class Personaje extends Entidad {
         super(avanza01, 960,540);
         direccion = "Avanzar";
         this.j = j;
+        this.movimiento = new Movimiento(j.getMapaActual(), j.getBucle().getTicksPorSegundo());
+        this.segundosPorTick = 1.0 / j.getBucle().getTicksPorSegundo();
 
         Personaje.k = j.getKeysConfig();
         setearSkins();
@@ -61,7 +65,7 @@ public class Personaje extends Entidad {
      * Establece el mapa en el que el personaje se encuentra.
      */
     public void setMapa() {
-        mapa = j.getMapaActual();
+        movimiento.setMapa(j.getMapaActual());
     }
 
     /**
@@ -89,118 +93,60 @@ public class Personaje extends Entidad {
 
     /**
      * Actualiza el estado del personaje, realizando movimientos según las teclas presionadas.
-     * Calcula las nuevas posiciones del personaje basándose en las teclas y las colisiones del mapa.
+     * El movimiento y las colisiones con el mapa los resuelve {@link Movimiento}; aquí solo se
+     * leen las teclas, se copian las coordenadas al juego y se elige la imagen de la animación.
+     * Se llama una vez por tick.
      */
     public void updatePJ() {
-        int anchoBaldosa = mapa.getAnchoBaldosa(); // Ancho de una baldosa
-        int altoBaldosa = mapa.getAltoBaldosa(); // Alto de una baldosa
-
-        boolean[][] colisiones = mapa.getMatrizColisiones();
-        double baldosaX_Dec = (double) ((mapa.getAnchoMapa()*16)- j.getMapa_CoordX()) / (anchoBaldosa * 2);
-        double baldosaY_Dec = (double) ((mapa.getAltoMapa()*16)- j.getMapa_CoordY())/ (altoBaldosa * 2);
-        int baldosaX;
-        int baldosaY;
-        // Movimiento basado en las teclas presionadas
-        if (k.isAvanzar()) {
-            baldosaY = (int) Math.floor(baldosaY_Dec);
-            baldosaX = (int) Math.floor(baldosaX_Dec);
-            int baldosaY_Objetivo = baldosaY - 1;
-            Avanzar(baldosaY_Objetivo, colisiones, baldosaX);
-        } else if (k.isAtras()) {
-            baldosaX = (int) Math.floor(baldosaX_Dec);
-            baldosaY = (int) Math.floor(baldosaY_Dec);
-            int baldosaY_Objetivo = baldosaY + 1;
-            Atras(baldosaY_Objetivo, colisiones, baldosaX);
-        } else if (k.isIzquierda()) {
-            baldosaX = (int) Math.ceil(baldosaX_Dec);
-            baldosaY = (int) Math.round(baldosaY_Dec);
-            int baldosaX_Objetivo = baldosaX - 1;
-            Izquierda(baldosaX_Objetivo, colisiones, baldosaY);
-        } else if (k.isDerecha()) {
-            baldosaX = (int) Math.ceil(baldosaX_Dec);
-            baldosaY = (int) Math.round(baldosaY_Dec);
-            int baldosaX_Objetivo = baldosaX + 1;
-            Derecha(baldosaX_Objetivo, colisiones, baldosaY);
-        } else {
-            switch (direccion) {
-                case "Avanzar":
-                    Skin = quieto_frente;
-                    break;
-                case "Atras":
-                    Skin = quieto_atras;
-                    break;
-                case "Izq":
-                    Skin = quieto_izq;
-                    break;
-                case "Dcha":
-                    Skin = quieto_dcha;
-                    break;
-            }
-        }
-    }
-
-    /**
-     * Mueve al personaje hacia adelante si no hay colisiones en la dirección.
-     *
-     * @param baldosaY_Objetivo La coordenada Y del objetivo en el mapa.
-     * @param colisiones La matriz de colisiones del mapa.
-     * @param baldosaX La coordenada X del personaje en el mapa.
-     */
-    private void Avanzar(int baldosaY_Objetivo, boolean[][] colisiones, int baldosaX) {
-        if (baldosaY_Objetivo >= 2 && !colisiones[baldosaY_Objetivo][baldosaX]) {
-            j.setMapa_CoordY(j.getMapa_CoordY() + velocidad);
-        }
-        Skin = alternar > 20 ? atras01 : atras02;
-        alternar = (alternar + 1) % 40;
-        direccion = "Atras";
-    }
-    /**
-     * Mueve al personaje hacia atrás si no hay colisiones en la dirección.
-     *
-     * @param baldosaY_Objetivo La coordenada Y del objetivo en el mapa.
-     * @param colisiones La matriz de colisiones del mapa.
-     * @param baldosaX La coordenada X del personaje en el mapa.
-     */
-    private void Atras(int baldosaY_Objetivo, boolean[][] colisiones, int baldosaX) {
-        if (baldosaY_Objetivo < mapa.getAltoMapa()-2 && !colisiones[baldosaY_Objetivo][baldosaX]) {
-            j.setMapa_CoordY(j.getMapa_CoordY() - velocidad);
+        int dir = Movimiento.direccion(k.isAvanzar(), k.isAtras(), k.isIzquierda(), k.isDerecha());
+        movimiento.setCoordenadas(j.getMapa_CoordX(), j.getMapa_CoordY());
+        if (movimiento.mover(dir)) {
+            j.setMapa_CoordX(movimiento.getCoordX());
+            j.setMapa_CoordY(movimiento.getCoordY());
         }
-        Skin = alternar > 20 ? avanza01 : avanza02;
-        alternar = (alternar + 1) % 40;
-        direccion = "Avanzar";
-    }
-    /**
-     * Mueve al personaje hacia la izquierda si no hay colisiones en la dirección.
-     *
-     * @param baldosaX_Objetivo La coordenada X del objetivo en el mapa.
-     * @param colisiones La matriz de colisiones del mapa.
-     * @param baldosaY La coordenada Y del personaje en el mapa.
-     */
-    private void Izquierda(int baldosaX_Objetivo, boolean[][] colisiones, int baldosaY) {
-        if (baldosaX_Objetivo >= 2 && !colisiones[baldosaY][baldosaX_Objetivo]) {
-            j.setMapa_CoordX(j.getMapa_CoordX() + velocidad);
+        switch (dir) {
+            case Movimiento.AVANZAR:
+                animar(atras01, atras02, "Atras");
+                break;
+            case Movimiento.ATRAS:
+                animar(avanza01, avanza02, "Avanzar");
+                break;
+            case Movimiento.IZQUIERDA:
+                animar(izq01, izq02, "Izq");
+                break;
+            case Movimiento.DERECHA:
+                animar(dcha01, dcha02, "Dcha");
+                break;
+            default:
+                switch (direccion) {
+                    case "Avanzar":
+                        Skin = quieto_frente;
+                        break;
+                    case "Atras":
+                        Skin = quieto_atras;
+                        break;
+                    case "Izq":
+                        Skin = quieto_izq;
+                        break;
+                    case "Dcha":
+                        Skin = quieto_dcha;
+                        break;
+                }
         }
-        Skin = alternar > 20 ? izq01 : izq02;
-        alternar = (alternar + 1) % 40;
-        direccion = "Izq";
     }
 
     /**
-     * Mueve al personaje hacia la derecha si no hay colisiones en la dirección.
+     * Alterna entre las dos imágenes de la animación de caminar en una dirección. La animación
+     * avanza el tiempo simulado de un tick, y lo que pasa del final del ciclo se guarda para
+     * el siguiente, así que va al mismo ritmo sea cual sea el de los ticks.
      *
-     * @param baldosaX_Objetivo La coordenada X del objetivo en el mapa.
-     * @param colisiones La matriz de colisiones del mapa.
-     * @param baldosaY La coordenada Y del personaje en el mapa.
+     * @param skin01    Primera imagen de la animación.
+     * @param skin02    Segunda imagen de la animación.
+     * @param direccion Dirección en la que queda mirando el personaje.
      */
-    private void Derecha(int baldosaX_Objetivo, boolean[][] colisiones, int baldosaY) {
-        if (baldosaX_Objetivo < mapa.getAnchoMapa()-1 && !colisiones[baldosaY][baldosaX_Objetivo]) {
-            j.setMapa_CoordX(j.getMapa_CoordX() - velocidad);
-        }
-        Skin = alternar > 20 ? dcha01 : dcha02;
-        alternar = (alternar + 1) % 40;
-        direccion = "Dcha";
+    private void animar(Image skin01, Image skin02, String direccion) {
+        tiempoAnimacion = (tiempoAnimacion + segundosPorTick) % CICLO_ANIMACION_SEGUNDOS;
+        Skin = tiempoAnimacion >= CICLO_ANIMACION_SEGUNDOS / 2 ? skin01 : skin02;
+        this.direccion = direccion;
     }
 }
-
-
-
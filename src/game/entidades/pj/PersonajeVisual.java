@@ -1,23 +1,18 @@
 package game.entidades.pj;
 
+import game.render.Fotograma;
+import game.render.Pintable;
+import game.rendimiento.Metricas;
+
 import javax.swing.*;
 import java.awt.*;
 /**
  * Clase encargada de representar gráficamente al personaje en el panel de visualización del juego.
  * Esta clase extiende {@link JPanel} y se encarga de dibujar la imagen del personaje
- * en su posición actual dentro de la ventana del juego.
+ * en su posición dentro de la ventana del juego, tal como están en el {@link Fotograma}.
  */
-public class PersonajeVisual extends JPanel {
+public class PersonajeVisual extends JPanel implements Pintable {
 
-    private final Personaje pj;
-    /**
-     * Constructor de la clase {@link PersonajeVisual}.
-     *
-     * @param e Instancia del personaje que será visualizado.
-     */
-    public PersonajeVisual (Personaje e){
-        pj = e;
-    }
     /**
      * Método encargado de dibujar la imagen del personaje en el panel.
      * Este método se llama automáticamente cuando el panel necesita ser repintado.
@@ -27,7 +22,25 @@ public class PersonajeVisual extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        g.drawImage(pj.getSkin(), pj.getCoordX() - 20, pj.getCoordY() - 40, 75, 75, null);
+        pintar((Graphics2D) g, Fotograma.de(this), getWidth(), getHeight());
+    }
+
+    /**
+     * Dibuja el personaje sin fondo, para usarlo como capa del compositor del juego.
+     *
+     * @param g         El objeto {@link Graphics2D} en el que dibujar.
+     * @param fotograma Frame con la imagen y la posición del personaje.
+     * @param ancho     Ancho de la zona de dibujo.
+     * @param alto      Alto de la zona de dibujo.
+     */
+    @Override
+    public void pintar(Graphics2D g, Fotograma fotograma, int ancho, int alto) {
+        long inicio = System.nanoTime();
+        if (fotograma.getSkinPersonaje() != null) {
+            g.drawImage(fotograma.getSkinPersonaje(), fotograma.getPersonajeX() - 20,
+                    fotograma.getPersonajeY() - 40, 75, 75, null);
+        }
+        Metricas.getInstancia().registrar(Metricas.PINTAR_PERSONAJE, System.nanoTime() - inicio);
     }
 
 }
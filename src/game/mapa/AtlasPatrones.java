@@ -0,0 +1,247 @@
+package game.mapa;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Atlas con las baldosas que usa un mapa, ya escaladas y en el formato de píxel de la pantalla.
+ * <p>
+ * Las imágenes de los patrones se leen en el formato que trae el PNG, que normalmente no es
+ * el de la pantalla, y cada baldosa se escalaba al dibujarla. El atlas copia una sola vez cada
+ * baldosa usada a unas pocas páginas compatibles, al tamaño final, y guarda por gid la página y
+ * la posición de la baldosa. Dibujar una baldosa pasa a ser una copia sin escalar.
+ */
+public final class AtlasPatrones {
+    // Lado máximo de cada página del atlas en píxeles
+    private static final int LADO_PAGINA = 2048;
+
+    private final int anchoBaldosa, altoBaldosa;
+    private final List<BufferedImage> paginas = new ArrayList<>();
+    // Tabla indexada por gid: página de la baldosa (-1 si no está en el atlas) y posición en ella
+    private final int[] paginaDeGid;
+    private final int[] xDeGid;
+    private final int[] yDeGid;
+    private final boolean[] opacaDeGid;
+    private final long nanosConstruccion;
+    private final long bytes;
+
+    /**
+     * Construye el atlas.
+     *
+     * @param patrones      Patrones del mapa, ordenados por firstgid.
+     * @param imagenes      Imagen de cada patrón, en el mismo orden.
+     * @param anchoOrigen   Ancho de una baldosa en las imágenes de los patrones.
+     * @param altoOrigen    Alto de una baldosa en las imágenes de los patrones.
+     * @param escala        Factor de escala con el que se dibuja el mapa.
+     * @param usados        Gids que hay que incluir, o null para incluir todas las baldosas.
+     * @param configuracion Configuración gráfica de la pantalla, o null para usar imágenes normales.
+     */
+    AtlasPatrones(List<Mapa.Patron> patrones, BufferedImage[] imagenes, int anchoOrigen, int altoOrigen,
+                  int escala, boolean[] usados, GraphicsConfiguration configuracion) {
+        long inicio = System.nanoTime();
+        anchoBaldosa = anchoOrigen * escala;
+        altoBaldosa = altoOrigen * escala;
+
+        int maxGid = ultimoGid(patrones, imagenes, anchoOrigen, altoOrigen);
+        paginaDeGid = new int[maxGid + 1];
+        xDeGid = new int[maxGid + 1];
+        yDeGid = new int[maxGid + 1];
+        opacaDeGid = new boolean[maxGid + 1];
+        Arrays.fill(paginaDeGid, -1);
+
+        int columnasPagina = Math.max(1, LADO_PAGINA / anchoBaldosa);
+        int filasPagina = Math.max(1, LADO_PAGINA / altoBaldosa);
+        int porPagina = columnasPagina * filasPagina;
+
+        // Primero se decide qué baldosa va en cada hueco; los patrones posteriores tapan a los anteriores
+        int[] patronDeGid = new int[maxGid + 1];
+        Arrays.fill(patronDeGid, -1);
+        for (int i = 0; i < imagenes.length; i++) {
+            int firstgid = patrones.get(i).getFirstgid();
+            int baldosas = (imagenes[i].getWidth() / anchoOrigen) * (imagenes[i].getHeight() / altoOrigen);
+            for (int gid = Math.max(1, firstgid); gid < firstgid + baldosas && gid <= maxGid; gid++) {
+                patronDeGid[gid] = i;
+            }
+        }
+        int total = 0;
+        for (int gid = 1; gid <= maxGid; gid++) {
+            if (patronDeGid[gid] >= 0 && (usados == null || (gid < usados.length && usados[gid]))) {
+                total++;
+            }
+        }
+
+        Graphics2D g = null;
+        int[] pixelesBaldosa = new int[anchoOrigen * altoOrigen];
+        int hueco = 0;
+        long pixeles = 0;
+        try {
+            for (int gid = 1; gid <= maxGid; gid++) {
+                int patron = patronDeGid[gid];
+                if (patron < 0 || (usados != null && (gid >= usados.length || !usados[gid]))) {
+                    continue;
+                }
+                if (hueco % porPagina == 0) {
+                    int restantes = Math.min(porPagina, total - hueco);
+                    int ancho = Math.min(restantes, columnasPagina) * anchoBaldosa;
+                    int alto = ((restantes + columnasPagina - 1) / columnasPagina) * altoBaldosa;
+                    BufferedImage pagina = configuracion != null
+                            ? configuracion.createCompatibleImage(ancho, alto, Transparency.TRANSLUCENT)
+                            : new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+                    paginas.add(pagina);
+                    pixeles += (long) ancho * alto;
+                    if (g != null) {
+                        g.dispose();
+                    }
+                    g = pagina.createGraphics();
+                    g.setComposite(AlphaComposite.Src);
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+                }
+                int enPagina = hueco % porPagina;
+                int x = (enPagina % columnasPagina) * anchoBaldosa;
+                int y = (enPagina / columnasPagina) * altoBaldosa;
+                int id = gid - patrones.get(patron).getFirstgid();
+                int columnasPatron = imagenes[patron].getWidth() / anchoOrigen;
+                int origenX = (id % columnasPatron) * anchoOrigen;
+                int origenY = (id / columnasPatron) * altoOrigen;
+                g.drawImage(imagenes[patron], x, y, x + anchoBaldosa, y + altoBaldosa,
+                        origenX, origenY, origenX + anchoOrigen, origenY + altoOrigen, null);
+                opacaDeGid[gid] = esOpaca(imagenes[patron], origenX, origenY, anchoOrigen, altoOrigen, pixelesBaldosa);
+                paginaDeGid[gid] = paginas.size() - 1;
+                xDeGid[gid] = x;
+                yDeGid[gid] = y;
+                hueco++;
+            }
+        } finally {
+            if (g != null) {
+                g.dispose();
+            }
+        }
+        bytes = 4 * pixeles + 13L * (maxGid + 1);
+        nanosConstruccion = System.nanoTime() - inicio;
+    }
+
+    /**
+     * Calcula el mayor gid que cubren los patrones de un mapa.
+     *
+     * @param patrones    Patrones del mapa, ordenados por firstgid.
+     * @param imagenes    Imagen de cada patrón, en el mismo orden.
+     * @param anchoOrigen Ancho de una baldosa en las imágenes de los patrones.
+     * @param altoOrigen  Alto de una baldosa en las imágenes de los patrones.
+     * @return El último gid con baldosa, o 0 si los patrones están vacíos.
+     */
+    static int ultimoGid(List<Mapa.Patron> patrones, BufferedImage[] imagenes, int anchoOrigen, int altoOrigen) {
+        int maxGid = 0;
+        for (int i = 0; i < imagenes.length; i++) {
+            int baldosas = (imagenes[i].getWidth() / anchoOrigen) * (imagenes[i].getHeight() / altoOrigen);
+            maxGid = Math.max(maxGid, patrones.get(i).getFirstgid() + baldosas - 1);
+        }
+        return maxGid;
+    }
+
+    /**
+     * Comprueba si todos los píxeles de una baldosa son opacos.
+     */
+    private static boolean esOpaca(BufferedImage imagen, int x, int y, int ancho, int alto, int[] pixeles) {
+        if (!imagen.getColorModel().hasAlpha()) {
+            return true;
+        }
+        imagen.getRGB(x, y, ancho, alto, pixeles, 0, ancho);
+        for (int pixel : pixeles) {
+            if ((pixel >>> 24) != 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica si una baldosa tapa por completo lo que haya debajo. Voltear una baldosa no
+     * cambia su opacidad, así que no se miran las marcas de volteo.
+     *
+     * @param gid Identificador de la baldosa, con o sin marcas de volteo.
+     * @return true si la baldosa está en el atlas y no tiene píxeles transparentes.
+     */
+    boolean isOpaca(int gid) {
+        int id = gid & Capa.MASCARA_GID;
+        return id > 0 && id < opacaDeGid.length && opacaDeGid[id];
+    }
+
+    /**
+     * Dibuja una baldosa sin escalarla, aplicando las marcas de volteo de Tiled que lleve el gid:
+     * primero la diagonal y después la horizontal y la vertical.
+     *
+     * @param g   El objeto Graphics utilizado para dibujar.
+     * @param gid Identificador de la baldosa, con o sin marcas de volteo.
+     * @param x   Posición X de la esquina superior izquierda.
+     * @param y   Posición Y de la esquina superior izquierda.
+     */
+    void dibujar(Graphics g, int gid, int x, int y) {
+        int id = gid & Capa.MASCARA_GID;
+        if (id == 0 || id >= paginaDeGid.length || paginaDeGid[id] < 0) {
+            return;
+        }
+        BufferedImage pagina = paginas.get(paginaDeGid[id]);
+        int origenX = xDeGid[id];
+        int origenY = yDeGid[id];
+        if (id == gid) {
+            g.drawImage(pagina, x, y, x + anchoBaldosa, y + altoBaldosa,
+                    origenX, origenY, origenX + anchoBaldosa, origenY + altoBaldosa, null);
+            return;
+        }
+        Graphics2D volteado = (Graphics2D) g.create();
+        try {
+            volteado.translate(x, y);
+            if ((gid & Capa.VOLTEO_HORIZONTAL) != 0) {
+                volteado.translate(anchoBaldosa, 0);
+                volteado.scale(-1, 1);
+            }
+            if ((gid & Capa.VOLTEO_VERTICAL) != 0) {
+                volteado.translate(0, altoBaldosa);
+                volteado.scale(1, -1);
+            }
+            if ((gid & Capa.VOLTEO_DIAGONAL) != 0) {
+                volteado.transform(new AffineTransform(0, 1, 1, 0, 0, 0));
+            }
+            volteado.drawImage(pagina, 0, 0, anchoBaldosa, altoBaldosa,
+                    origenX, origenY, origenX + anchoBaldosa, origenY + altoBaldosa, null);
+        } finally {
+            volteado.dispose();
+        }
+    }
+
+    /**
+     * Obtiene el número de páginas del atlas.
+     *
+     * @return Número de imágenes del atlas.
+     */
+    public int getNumPaginas() {
+        return paginas.size();
+    }
+
+    /**
+     * Obtiene el tiempo que costó construir el atlas.
+     *
+     * @return Tiempo de construcción en nanosegundos.
+     */
+    public long getNanosConstruccion() {
+        return nanosConstruccion;
+    }
+
+    /**
+     * Obtiene la memoria que ocupan las páginas del atlas y su índice.
+     *
+     * @return Número aproximado de bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+}
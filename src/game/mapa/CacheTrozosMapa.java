@@ -0,0 +1,202 @@
+package game.mapa;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de trozos del mapa ya dibujados. Cada trozo es una región de
+ * {@code tamañoTrozo x tamañoTrozo} baldosas con todas las capas compuestas y escaladas,
+ * guardada en una imagen compatible con la pantalla. Como las capas no cambian, cada trozo
+ * se dibuja una sola vez, la primera vez que se necesita, y después cada frame copia
+ * solo las pocas imágenes que cubre la pantalla.
+ * <p>
+ * Los trozos menos usados (LRU) se descartan cuando las imágenes superan el presupuesto de
+ * píxeles. El presupuesto por defecto se puede cambiar con la propiedad del sistema
+ * {@code skillseekers.trozos.presupuesto} (en píxeles).
+ * <p>
+ * El mapa se pinta desde dos hilos: el del juego al presentar cada frame y el de eventos
+ * cuando Swing repinta (con un menú o diálogo abierto, al exponerse la ventana o sin
+ * renderizado activo). Por eso los accesos a los trozos van con el cerrojo de la caché; un
+ * trozo que falta se dibuja con el cerrojo tomado, de modo que nunca se dibuja dos veces.
+ */
+public class CacheTrozosMapa {
+    private static final long PRESUPUESTO_POR_DEFECTO = 8L * 1024 * 1024;
+
+    /**
+     * Dibuja el contenido de un trozo en su imagen.
+     */
+    interface Rasterizador {
+        /**
+         * Dibuja un trozo con su esquina superior izquierda en el origen de {@code g}.
+         *
+         * @param g       Gráficos de la imagen del trozo.
+         * @param trozoX  Columna del trozo.
+         * @param trozoY  Fila del trozo.
+         */
+        void pintar(Graphics2D g, int trozoX, int trozoY);
+    }
+
+    private final int columnasTrozos, filasTrozos;
+    private final int anchoTrozoPx, altoTrozoPx;
+    private final int anchoMapaPx, altoMapaPx;
+    private final long presupuestoPixeles;
+    private final Rasterizador rasterizador;
+    // En orden de acceso, para descartar los menos usados; se protege con el cerrojo de la caché
+    private final LinkedHashMap<Integer, BufferedImage> trozos = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long pixelesRetenidos;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong nanosRasterizado = new AtomicLong();
+
+    /**
+     * Crea la caché de un mapa.
+     *
+     * @param anchoMapaPx  Ancho del mapa ya escalado, en píxeles.
+     * @param altoMapaPx   Alto del mapa ya escalado, en píxeles.
+     * @param anchoTrozoPx Ancho de un trozo completo, en píxeles.
+     * @param altoTrozoPx  Alto de un trozo completo, en píxeles.
+     * @param rasterizador Encargado de dibujar cada trozo.
+     */
+    CacheTrozosMapa(int anchoMapaPx, int altoMapaPx, int anchoTrozoPx, int altoTrozoPx, Rasterizador rasterizador) {
+        this.anchoMapaPx = anchoMapaPx;
+        this.altoMapaPx = altoMapaPx;
+        this.anchoTrozoPx = anchoTrozoPx;
+        this.altoTrozoPx = altoTrozoPx;
+        this.columnasTrozos = (anchoMapaPx + anchoTrozoPx - 1) / anchoTrozoPx;
+        this.filasTrozos = (altoMapaPx + altoTrozoPx - 1) / altoTrozoPx;
+        this.presupuestoPixeles = Long.getLong("skillseekers.trozos.presupuesto", PRESUPUESTO_POR_DEFECTO);
+        this.rasterizador = rasterizador;
+    }
+
+    /**
+     * Obtiene la imagen de un trozo, dibujándola si no está en la caché.
+     *
+     * @param trozoX        Columna del trozo.
+     * @param trozoY        Fila del trozo.
+     * @param configuracion Configuración gráfica de la pantalla, o null para usar una imagen normal.
+     * @return La imagen del trozo; los trozos del borde pueden ser más pequeños que el resto.
+     */
+    synchronized BufferedImage obtener(int trozoX, int trozoY, GraphicsConfiguration configuracion) {
+        Integer clave = trozoY * columnasTrozos + trozoX;
+        BufferedImage imagen = trozos.get(clave);
+        if (imagen != null) {
+            aciertos.incrementAndGet();
+            return imagen;
+        }
+        fallos.incrementAndGet();
+        long inicio = System.nanoTime();
+        int ancho = Math.min(anchoTrozoPx, anchoMapaPx - trozoX * anchoTrozoPx);
+        int alto = Math.min(altoTrozoPx, altoMapaPx - trozoY * altoTrozoPx);
+        imagen = configuracion != null
+                ? configuracion.createCompatibleImage(ancho, alto, Transparency.TRANSLUCENT)
+                : new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = imagen.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.SrcOver);
+            rasterizador.pintar(g, trozoX, trozoY);
+        } finally {
+            g.dispose();
+        }
+        nanosRasterizado.addAndGet(System.nanoTime() - inicio);
+        retener(clave, imagen);
+        return imagen;
+    }
+
+    /**
+     * Guarda un trozo y descarta los menos usados si se supera el presupuesto.
+     * El trozo recién guardado nunca se descarta, aunque por sí solo supere el presupuesto.
+     */
+    private void retener(Integer clave, BufferedImage imagen) {
+        trozos.put(clave, imagen);
+        pixelesRetenidos += (long) imagen.getWidth() * imagen.getHeight();
+        Iterator<Map.Entry<Integer, BufferedImage>> it = trozos.entrySet().iterator();
+        while (pixelesRetenidos > presupuestoPixeles && trozos.size() > 1) {
+            BufferedImage antigua = it.next().getValue();
+            it.remove();
+            pixelesRetenidos -= (long) antigua.getWidth() * antigua.getHeight();
+            antigua.flush();
+        }
+    }
+
+    /**
+     * Descarta todos los trozos dibujados.
+     */
+    synchronized void vaciar() {
+        for (BufferedImage imagen : trozos.values()) {
+            imagen.flush();
+        }
+        trozos.clear();
+        pixelesRetenidos = 0;
+    }
+
+    /**
+     * Obtiene el número de columnas de trozos del mapa.
+     *
+     * @return Número de columnas.
+     */
+    int getColumnasTrozos() {
+        return columnasTrozos;
+    }
+
+    /**
+     * Obtiene el número de filas de trozos del mapa.
+     *
+     * @return Número de filas.
+     */
+    int getFilasTrozos() {
+        return filasTrozos;
+    }
+
+    /**
+     * Obtiene el número de trozos servidos desde la caché.
+     *
+     * @return Número de aciertos.
+     */
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene el número de trozos que han tenido que dibujarse.
+     *
+     * @return Número de fallos.
+     */
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    /**
+     * Obtiene el tiempo total dedicado a dibujar trozos.
+     *
+     * @return Tiempo acumulado en nanosegundos.
+     */
+    public long getNanosRasterizado() {
+        return nanosRasterizado.get();
+    }
+
+    /**
+     * Obtiene los píxeles que ocupan los trozos guardados.
+     *
+     * @return Número de píxeles retenidos.
+     */
+    public long getPixelesRetenidos() {
+        return pixelesRetenidos;
+    }
+
+    /**
+     * Obtiene el presupuesto de la caché.
+     *
+     * @return Presupuesto en píxeles.
+     */
+    public long getPresupuestoPixeles() {
+        return presupuestoPixeles;
+    }
+}
@@ -0,0 +1,68 @@
+package game.mapa;
+
+/**
+ * Capa de baldosas de un mapa. Cada celda guarda el ID global (gid) de la baldosa
+ * que se dibuja en esa posición, o 0 si la celda está vacía. Los tres bits altos del gid son
+ * las marcas de volteo de Tiled y se guardan tal cual; el ID de la baldosa es
+ * {@code gid & MASCARA_GID}.
+ * <p>
+ * La forma de almacenar los datos depende de cómo se haya cargado el mapa, por eso
+ * el resto del juego accede a las capas únicamente a través de esta interfaz.
+ */
+public interface Capa {
+    /** Marca de Tiled de baldosa volteada en horizontal. */
+    int VOLTEO_HORIZONTAL = 0x80000000;
+    /** Marca de Tiled de baldosa volteada en vertical. */
+    int VOLTEO_VERTICAL = 0x40000000;
+    /** Marca de Tiled de baldosa volteada sobre su diagonal (filas y columnas intercambiadas). */
+    int VOLTEO_DIAGONAL = 0x20000000;
+    /** Bits del gid que forman el ID de la baldosa, sin las marcas de volteo. */
+    int MASCARA_GID = 0x1FFFFFFF;
+
+    /**
+     * Obtiene el ancho de la capa en baldosas.
+     *
+     * @return El ancho de la capa.
+     */
+    int getAncho();
+
+    /**
+     * Obtiene el alto de la capa en baldosas.
+     *
+     * @return El alto de la capa.
+     */
+    int getAlto();
+
+    /**
+     * Obtiene el ID de la baldosa en una posición de la capa.
+     *
+     * @param x Columna de la baldosa.
+     * @param y Fila de la baldosa.
+     * @return El ID global de la baldosa, o 0 si la celda está vacía.
+     */
+    int getBaldosa(int x, int y);
+
+    /**
+     * Busca la siguiente celda no vacía de una fila. Las capas con pocas baldosas lo
+     * resuelven sin pasar por las celdas vacías.
+     *
+     * @param y      Fila en la que buscar.
+     * @param desdeX Primera columna a comprobar (incluida).
+     * @return La columna de la siguiente baldosa no vacía, o -1 si no hay ninguna.
+     */
+    default int siguiente(int y, int desdeX) {
+        for (int x = Math.max(desdeX, 0); x < getAncho(); x++) {
+            if (getBaldosa(x, y) != 0) {
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Estima la memoria que ocupan los datos de la capa.
+     *
+     * @return Número aproximado de bytes.
+     */
+    long getBytes();
+}
@@ -0,0 +1,53 @@
+package game.mapa;
+
+/**
+ * Capa guardada como un array plano de enteros, fila a fila.
+ */
+final class CapaDensa implements Capa {
+    private final int ancho, alto;
+    private final int[] baldosas;
+
+    /**
+     * Crea una capa a partir de sus baldosas.
+     *
+     * @param ancho    Ancho de la capa en baldosas.
+     * @param alto     Alto de la capa en baldosas.
+     * @param baldosas IDs de las baldosas, fila a fila.
+     */
+    CapaDensa(int ancho, int alto, int[] baldosas) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.baldosas = baldosas;
+    }
+
+    @Override
+    public int getAncho() {
+        return ancho;
+    }
+
+    @Override
+    public int getAlto() {
+        return alto;
+    }
+
+    @Override
+    public int getBaldosa(int x, int y) {
+        return baldosas[y * ancho + x];
+    }
+
+    @Override
+    public int siguiente(int y, int desdeX) {
+        int base = y * ancho;
+        for (int x = Math.max(desdeX, 0); x < ancho; x++) {
+            if (baldosas[base + x] != 0) {
+                return x;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long getBytes() {
+        return 4L * baldosas.length;
+    }
+}
@@ -0,0 +1,98 @@
+package game.mapa;
+
+import java.util.Arrays;
+
+/**
+ * Capa con pocas baldosas, guardada solo con sus celdas no vacías ordenadas por fila y columna.
+ * <p>
+ * Para cada fila se guarda dónde empiezan sus celdas; dentro de la fila las columnas están
+ * ordenadas, de modo que una baldosa se encuentra con una búsqueda binaria y recorrer una fila
+ * con {@link #siguiente(int, int)} no pasa por las celdas vacías.
+ */
+final class CapaDispersa implements Capa {
+    private final int ancho, alto;
+    private final int[] inicioFila;
+    private final char[] columnas;
+    private final int[] gids;
+
+    private CapaDispersa(int ancho, int alto, int[] baldosas, int noVacias) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.inicioFila = new int[alto + 1];
+        this.columnas = new char[noVacias];
+        this.gids = new int[noVacias];
+        int n = 0;
+        for (int y = 0; y < alto; y++) {
+            inicioFila[y] = n;
+            for (int x = 0; x < ancho; x++) {
+                int gid = baldosas[y * ancho + x];
+                if (gid != 0) {
+                    columnas[n] = (char) x;
+                    gids[n++] = gid;
+                }
+            }
+        }
+        inicioFila[alto] = n;
+    }
+
+    /**
+     * Elige cómo guardar una capa: dispersa si así ocupa menos de la mitad que densa,
+     * densa en otro caso.
+     *
+     * @param ancho    Ancho de la capa en baldosas.
+     * @param alto     Alto de la capa en baldosas.
+     * @param baldosas IDs de las baldosas, fila a fila.
+     * @return La capa con la representación más adecuada.
+     */
+    static Capa compactar(int ancho, int alto, int[] baldosas) {
+        if (ancho > Character.MAX_VALUE) {
+            return new CapaDensa(ancho, alto, baldosas);
+        }
+        int noVacias = 0;
+        for (int gid : baldosas) {
+            if (gid != 0) {
+                noVacias++;
+            }
+        }
+        long bytesDispersa = 4L * (alto + 1) + 6L * noVacias;
+        if (2 * bytesDispersa > 4L * baldosas.length) {
+            return new CapaDensa(ancho, alto, baldosas);
+        }
+        return new CapaDispersa(ancho, alto, baldosas, noVacias);
+    }
+
+    @Override
+    public int getAncho() {
+        return ancho;
+    }
+
+    @Override
+    public int getAlto() {
+        return alto;
+    }
+
+    @Override
+    public int getBaldosa(int x, int y) {
+        int i = Arrays.binarySearch(columnas, inicioFila[y], inicioFila[y + 1], (char) x);
+        return i >= 0 ? gids[i] : 0;
+    }
+
+    @Override
+    public int siguiente(int y, int desdeX) {
+        int desde = inicioFila[y];
+        int hasta = inicioFila[y + 1];
+        if (desde == hasta || desdeX >= ancho) {
+            return -1;
+        }
+        int i = desdeX <= 0 ? desde : Arrays.binarySearch(columnas, desde, hasta, (char) desdeX);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return i < hasta ? columnas[i] : -1;
+    }
+
+    @Override
+    public long getBytes() {
+        return 4L * inicioFila.length + 2L * columnas.length + 4L * gids.length;
+    }
+}
@@ -0,0 +1,63 @@
+package game.mapa;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Capa que lee sus baldosas directamente de una vista sobre un archivo {@code .skmap}
+ * mapeado en memoria. No copia los datos: cada consulta lee del buffer.
+ */
+final class CapaMapeada implements Capa {
+    private final int ancho, alto;
+    private final ShortBuffer cortas;
+    private final IntBuffer largas;
+
+    /**
+     * Crea una capa sobre una vista de enteros de 16 bits sin signo.
+     *
+     * @param ancho  Ancho de la capa en baldosas.
+     * @param alto   Alto de la capa en baldosas.
+     * @param vista  Vista con {@code ancho * alto} elementos.
+     */
+    CapaMapeada(int ancho, int alto, ShortBuffer vista) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.cortas = vista;
+        this.largas = null;
+    }
+
+    /**
+     * Crea una capa sobre una vista de enteros de 32 bits.
+     *
+     * @param ancho  Ancho de la capa en baldosas.
+     * @param alto   Alto de la capa en baldosas.
+     * @param vista  Vista con {@code ancho * alto} elementos.
+     */
+    CapaMapeada(int ancho, int alto, IntBuffer vista) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.cortas = null;
+        this.largas = vista;
+    }
+
+    @Override
+    public int getAncho() {
+        return ancho;
+    }
+
+    @Override
+    public int getAlto() {
+        return alto;
+    }
+
+    @Override
+    public int getBaldosa(int x, int y) {
+        int i = y * ancho + x;
+        return cortas != null ? cortas.get(i) & 0xFFFF : largas.get(i);
+    }
+
+    @Override
+    public long getBytes() {
+        return (long) ancho * alto * (cortas != null ? 2 : 4);
+    }
+}
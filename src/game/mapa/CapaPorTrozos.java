@@ -0,0 +1,231 @@
+package game.mapa;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.zip.Deflater;
+
+/**
+ * Capa de un mapa infinito de Tiled, guardada por trozos ({@code <chunk>}) de
+ * {@code tamañoTrozo x tamañoTrozo} baldosas.
+ * <p>
+ * Cada trozo se guarda comprimido: los que vienen en base64 con zlib o gzip se quedan con sus
+ * bytes comprimidos, y los demás (CSV o base64 sin comprimir) se comprimen con zlib al leerlos.
+ * Un trozo ocupa así mucho menos que sus baldosas decodificadas, y la capa no guarda nada
+ * decodificado: cada {@link DibujoMapa} mantiene en su {@link ZonaResidente} los trozos que
+ * rodean a su cámara, de modo que la memoria depende de la zona visible y no del tamaño del
+ * mundo.
+ * <p>
+ * La capa no cambia después de crearse, así que el {@link MapaRepository} puede compartirla
+ * entre hilos sin sincronizar nada.
+ */
+final class CapaPorTrozos implements Capa {
+
+    /**
+     * Baldosas de un trozo, comprimidas.
+     */
+    static final class Trozo {
+        private final int x, y;
+        private final byte[] datos;
+
+        private Trozo(int x, int y, byte[] datos) {
+            this.x = x;
+            this.y = y;
+            this.datos = datos;
+        }
+
+        /**
+         * Crea un trozo a partir del contenido de su elemento {@code <chunk>}, comprimiéndolo
+         * si no viene ya comprimido.
+         *
+         * @param x          Columna de la primera baldosa del trozo.
+         * @param y          Fila de la primera baldosa del trozo.
+         * @param texto      Contenido del elemento {@code <chunk>}.
+         * @param encoding   Codificación de la capa ("csv" o "base64").
+         * @param compresion Compresión de la capa en base64, o null si no hay.
+         * @param baldosas   Número de baldosas del trozo.
+         * @return El trozo.
+         */
+        static Trozo leer(int x, int y, String texto, String encoding, String compresion, int baldosas) {
+            if ("csv".equals(encoding)) {
+                return new Trozo(x, y, comprimir(LectorTMX.parsearCSV(texto, baldosas)));
+            }
+            if ("zlib".equals(compresion) || "gzip".equals(compresion)) {
+                return new Trozo(x, y, Base64.getMimeDecoder().decode(texto));
+            }
+            return new Trozo(x, y, comprimir(DecodificadorCapas.decodificar(texto, compresion, baldosas)));
+        }
+
+        /**
+         * Obtiene una copia del trozo movida a otra posición.
+         *
+         * @param dx Desplazamiento en columnas.
+         * @param dy Desplazamiento en filas.
+         * @return El trozo desplazado.
+         */
+        Trozo desplazar(int dx, int dy) {
+            return new Trozo(x + dx, y + dy, datos);
+        }
+    }
+
+    private final int ancho, alto;
+    private final int tamañoTrozo;
+    private final int columnasTrozos, filasTrozos;
+    private final String compresion;
+    private final Trozo[] trozos;
+
+    /**
+     * Crea una capa por trozos.
+     *
+     * @param ancho       Ancho de la capa en baldosas (múltiplo de {@code tamañoTrozo}).
+     * @param alto        Alto de la capa en baldosas (múltiplo de {@code tamañoTrozo}).
+     * @param tamañoTrozo Lado de cada trozo en baldosas.
+     * @param compresion  Compresión de la capa en el TMX, o null si no hay; los trozos leídos
+     *                    con {@link Trozo#leer} quedan guardados con {@link #compresionGuardada}.
+     * @param trozos      Trozos de la capa, con posiciones relativas al origen del mapa;
+     *                    las zonas sin trozo quedan vacías.
+     */
+    CapaPorTrozos(int ancho, int alto, int tamañoTrozo, String compresion, Iterable<Trozo> trozos) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.tamañoTrozo = tamañoTrozo;
+        this.columnasTrozos = ancho / tamañoTrozo;
+        this.filasTrozos = alto / tamañoTrozo;
+        this.compresion = compresionGuardada(compresion);
+        this.trozos = new Trozo[columnasTrozos * filasTrozos];
+        for (Trozo trozo : trozos) {
+            this.trozos[(trozo.y / tamañoTrozo) * columnasTrozos + trozo.x / tamañoTrozo] = trozo;
+        }
+    }
+
+    /**
+     * Obtiene la compresión con la que se guardan los trozos de una capa: gzip si ya venían
+     * así y zlib en cualquier otro caso.
+     *
+     * @param compresion Compresión de la capa en el TMX, o null si no hay.
+     * @return "gzip" o "zlib".
+     */
+    static String compresionGuardada(String compresion) {
+        return "gzip".equals(compresion) ? "gzip" : "zlib";
+    }
+
+    /**
+     * Comprime con zlib las baldosas de un trozo, en el mismo formato que usa Tiled.
+     *
+     * @param baldosas IDs de las baldosas, fila a fila.
+     * @return Los bytes comprimidos.
+     */
+    private static byte[] comprimir(int[] baldosas) {
+        ByteBuffer crudos = ByteBuffer.allocate(baldosas.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        crudos.asIntBuffer().put(baldosas);
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(crudos.array());
+            deflater.finish();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            byte[] bloque = new byte[512];
+            while (!deflater.finished()) {
+                salida.write(bloque, 0, deflater.deflate(bloque));
+            }
+            return salida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public int getAncho() {
+        return ancho;
+    }
+
+    @Override
+    public int getAlto() {
+        return alto;
+    }
+
+    /**
+     * Obtiene el ID de una baldosa decodificando su trozo entero. Es lento; para dibujar se usa
+     * la {@link ZonaResidente} del dibujo, que guarda decodificados los trozos cercanos.
+     */
+    @Override
+    public int getBaldosa(int x, int y) {
+        int[] datos = decodificarTrozo((y / tamañoTrozo) * columnasTrozos + x / tamañoTrozo);
+        return datos == null ? 0 : datos[(y % tamañoTrozo) * tamañoTrozo + x % tamañoTrozo];
+    }
+
+    /**
+     * Estima la memoria que ocupan los trozos comprimidos de la capa.
+     *
+     * @return Número aproximado de bytes.
+     */
+    @Override
+    public long getBytes() {
+        long bytes = 4L * trozos.length;
+        for (Trozo trozo : trozos) {
+            if (trozo != null) {
+                bytes += trozo.datos.length;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Obtiene el lado de cada trozo.
+     *
+     * @return Lado del trozo en baldosas.
+     */
+    int getTamañoTrozo() {
+        return tamañoTrozo;
+    }
+
+    /**
+     * Obtiene el número de columnas de trozos de la capa.
+     *
+     * @return Columnas de trozos.
+     */
+    int getColumnasTrozos() {
+        return columnasTrozos;
+    }
+
+    /**
+     * Obtiene el número de filas de trozos de la capa.
+     *
+     * @return Filas de trozos.
+     */
+    int getFilasTrozos() {
+        return filasTrozos;
+    }
+
+    /**
+     * Decodifica las baldosas de un trozo.
+     *
+     * @param indice Índice del trozo: {@code fila * columnasTrozos + columna}.
+     * @return IDs de las baldosas del trozo, fila a fila, o null si en esa zona no hay trozo.
+     */
+    int[] decodificarTrozo(int indice) {
+        Trozo trozo = trozos[indice];
+        return trozo == null ? null : DecodificadorCapas.descomprimir(trozo.datos, compresion, tamañoTrozo * tamañoTrozo);
+    }
+
+    /**
+     * Recorre todos los trozos decodificándolos de uno en uno, sin guardarlos. Se usa al cargar
+     * el mapa para construir la rejilla de colisiones.
+     *
+     * @param colisiones Rejilla en la que marcar las baldosas no vacías.
+     */
+    void marcarColisiones(CollisionGrid colisiones) {
+        for (int i = 0; i < trozos.length; i++) {
+            int[] datos = decodificarTrozo(i);
+            if (datos == null) {
+                continue;
+            }
+            Trozo trozo = trozos[i];
+            for (int j = 0; j < datos.length; j++) {
+                if (datos[j] != 0) {
+                    colisiones.bloquear(trozo.x + j % tamañoTrozo, trozo.y + j / tamañoTrozo);
+                }
+            }
+        }
+    }
+}
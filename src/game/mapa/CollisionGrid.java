@@ -0,0 +1,201 @@
+package game.mapa;
+
+/**
+ * Rejilla de colisiones de un mapa guardada como un bitset: un bit por baldosa, en palabras
+ * de 64 bits alineadas por fila. Las consultas de tramos y rectángulos comprueban 64
+ * baldosas por operación en lugar de recorrerlas una a una.
+ * <p>
+ * Las baldosas fuera del mapa se consideran bloqueadas. Una vez construida, la rejilla no cambia.
+ */
+public final class CollisionGrid {
+    private final int ancho, alto;
+    private final int palabrasPorFila;
+    private final long[] bits;
+
+    /**
+     * Crea una rejilla vacía.
+     *
+     * @param ancho Ancho del mapa en baldosas.
+     * @param alto  Alto del mapa en baldosas.
+     */
+    CollisionGrid(int ancho, int alto) {
+        this(ancho, alto, new long[alto * palabrasPorFila(ancho)]);
+    }
+
+    /**
+     * Crea una rejilla a partir de sus palabras, fila a fila.
+     *
+     * @param ancho Ancho del mapa en baldosas.
+     * @param alto  Alto del mapa en baldosas.
+     * @param bits  {@code alto * palabrasPorFila(ancho)} palabras; el bit {@code x % 64} de la
+     *              palabra {@code x / 64} de cada fila indica si la baldosa {@code x} está bloqueada.
+     */
+    CollisionGrid(int ancho, int alto, long[] bits) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.palabrasPorFila = palabrasPorFila(ancho);
+        if (bits.length != alto * palabrasPorFila) {
+            throw new IllegalArgumentException("Tamaño de rejilla de colisiones no válido");
+        }
+        this.bits = bits;
+    }
+
+    /**
+     * Calcula cuántas palabras de 64 bits ocupa una fila.
+     *
+     * @param ancho Ancho del mapa en baldosas.
+     * @return Número de palabras por fila.
+     */
+    static int palabrasPorFila(int ancho) {
+        return (ancho + 63) >>> 6;
+    }
+
+    /**
+     * Marca una baldosa como bloqueada. Solo se usa mientras se construye el mapa.
+     *
+     * @param x Columna de la baldosa.
+     * @param y Fila de la baldosa.
+     */
+    void bloquear(int x, int y) {
+        bits[y * palabrasPorFila + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Comprueba si una baldosa está bloqueada.
+     *
+     * @param x Columna de la baldosa.
+     * @param y Fila de la baldosa.
+     * @return true si la baldosa tiene colisión o está fuera del mapa.
+     */
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || y < 0 || x >= ancho || y >= alto) {
+            return true;
+        }
+        return (bits[y * palabrasPorFila + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Comprueba si alguna baldosa de un tramo de fila está bloqueada.
+     *
+     * @param y  Fila del tramo.
+     * @param x0 Primera columna del tramo (incluida).
+     * @param x1 Última columna del tramo (incluida).
+     * @return true si alguna baldosa del tramo tiene colisión o está fuera del mapa.
+     */
+    public boolean isRowSpanBlocked(int y, int x0, int x1) {
+        if (x0 > x1) {
+            return false;
+        }
+        if (y < 0 || y >= alto || x0 < 0 || x1 >= ancho) {
+            return true;
+        }
+        int base = y * palabrasPorFila;
+        int p0 = x0 >>> 6;
+        int p1 = x1 >>> 6;
+        long mascaraInicio = -1L << x0;
+        long mascaraFin = -1L >>> (63 - (x1 & 63));
+        if (p0 == p1) {
+            return (bits[base + p0] & mascaraInicio & mascaraFin) != 0;
+        }
+        if ((bits[base + p0] & mascaraInicio) != 0) {
+            return true;
+        }
+        for (int p = p0 + 1; p < p1; p++) {
+            if (bits[base + p] != 0) {
+                return true;
+            }
+        }
+        return (bits[base + p1] & mascaraFin) != 0;
+    }
+
+    /**
+     * Comprueba si alguna baldosa de un rectángulo está bloqueada.
+     *
+     * @param x0 Primera columna (incluida).
+     * @param y0 Primera fila (incluida).
+     * @param x1 Última columna (incluida).
+     * @param y1 Última fila (incluida).
+     * @return true si alguna baldosa del rectángulo tiene colisión o está fuera del mapa.
+     */
+    public boolean isAreaBlocked(int x0, int y0, int x1, int y1) {
+        for (int y = y0; y <= y1; y++) {
+            if (isRowSpanBlocked(y, x0, x1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Busca la siguiente baldosa bloqueada de una fila.
+     *
+     * @param y     Fila en la que buscar.
+     * @param desde Primera columna a comprobar (incluida).
+     * @return La columna de la siguiente baldosa bloqueada, o -1 si no hay ninguna.
+     */
+    public int nextBlocked(int y, int desde) {
+        if (y < 0 || y >= alto || desde >= ancho) {
+            return -1;
+        }
+        desde = Math.max(desde, 0);
+        int base = y * palabrasPorFila;
+        int p = desde >>> 6;
+        long palabra = bits[base + p] & (-1L << desde);
+        while (true) {
+            if (palabra != 0) {
+                int x = (p << 6) + Long.numberOfTrailingZeros(palabra);
+                return x < ancho ? x : -1;
+            }
+            if (++p == palabrasPorFila) {
+                return -1;
+            }
+            palabra = bits[base + p];
+        }
+    }
+
+    /**
+     * Obtiene el ancho de la rejilla en baldosas.
+     *
+     * @return El ancho de la rejilla.
+     */
+    public int getAncho() {
+        return ancho;
+    }
+
+    /**
+     * Obtiene el alto de la rejilla en baldosas.
+     *
+     * @return El alto de la rejilla.
+     */
+    public int getAlto() {
+        return alto;
+    }
+
+    /**
+     * Obtiene la memoria que ocupa el bitset.
+     *
+     * @return Número de bytes.
+     */
+    public long getBytes() {
+        return 8L * bits.length;
+    }
+
+    /**
+     * Obtiene una palabra del bitset. Solo se usa para guardar la rejilla en formato {@code .skmap}.
+     *
+     * @param i Índice de la palabra.
+     * @return La palabra.
+     */
+    long getPalabra(int i) {
+        return bits[i];
+    }
+
+    /**
+     * Obtiene el número total de palabras del bitset.
+     *
+     * @return Número de palabras.
+     */
+    int getNumPalabras() {
+        return bits.length;
+    }
+}
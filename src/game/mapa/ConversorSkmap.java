@@ -0,0 +1,132 @@
+package game.mapa;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Herramienta que convierte mapas TMX al formato binario {@code .skmap} descrito en
+ * {@link LectorSkmap}. Cada archivo se escribe junto a su TMX con la extensión cambiada.
+ * <p>
+ * Uso: {@code java game.mapa.ConversorSkmap resources/mapas} o una lista de archivos {@code .tmx}.
+ */
+public class ConversorSkmap {
+
+    /**
+     * Convierte los mapas indicados en los argumentos.
+     *
+     * @param args Archivos {@code .tmx} o directorios que los contienen.
+     * @throws Exception Si algún mapa no se puede leer o escribir.
+     */
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            File origen = new File(arg);
+            File[] planos = origen.isDirectory() ? origen.listFiles((dir, nombre) -> nombre.endsWith(".tmx")) : new File[]{origen};
+            if (planos == null) {
+                continue;
+            }
+            for (File plano : planos) {
+                File destino = new File(plano.getParentFile(), plano.getName().replaceFirst("\\.tmx$", ".skmap"));
+                convertir(plano, destino);
+                System.out.println(plano + " -> " + destino + " (" + destino.length() + " bytes)");
+            }
+        }
+    }
+
+    /**
+     * Lee un mapa TMX y lo escribe en formato {@code .skmap}.
+     *
+     * @param plano   Archivo TMX de origen.
+     * @param destino Archivo {@code .skmap} de destino.
+     * @throws Exception Si el TMX no se puede leer o el destino no se puede escribir.
+     */
+    public static void convertir(File plano, File destino) throws Exception {
+        LectorTMX tmx = new LectorTMX(plano);
+        if (tmx.isInfinito()) {
+            throw new IllegalArgumentException("Los mapas infinitos no se pueden precompilar: " + plano);
+        }
+        int ancho = tmx.getAnchoMapa();
+        int alto = tmx.getAltoMapa();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(destino)))) {
+            ByteBuffer cabecera = ByteBuffer.allocate(LectorSkmap.BYTES_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            cabecera.putInt(LectorSkmap.MAGIA).putShort(LectorSkmap.VERSION).putShort((short) 0);
+            cabecera.putLong(plano.length()).putLong(LectorSkmap.huella(plano));
+            cabecera.putInt(ancho).putInt(alto);
+            cabecera.putInt(tmx.getConjuntoPatrones().size()).putInt(tmx.getConjuntoCapas().size());
+            out.write(cabecera.array());
+
+            for (Mapa.Patron patron : tmx.getConjuntoPatrones()) {
+                byte[] nombre = patron.getRuta().getName().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer entrada = ByteBuffer.allocate(6 + nombre.length).order(ByteOrder.LITTLE_ENDIAN);
+                entrada.putInt(patron.getFirstgid()).putShort((short) nombre.length).put(nombre);
+                out.write(entrada.array());
+            }
+            rellenar(out);
+
+            for (Capa capa : tmx.getConjuntoCapas()) {
+                escribirCapa(out, capa);
+                rellenar(out);
+            }
+            escribirColisiones(out, tmx.getColisiones());
+        }
+    }
+
+    /**
+     * Escribe una capa con 2 bytes por baldosa si todos sus IDs caben, o 4 en caso contrario.
+     * Los IDs se comparan sin signo: los que llevan marcas de volteo de Tiled son negativos
+     * como int y necesitan los 4 bytes.
+     */
+    private static void escribirCapa(DataOutputStream out, Capa capa) throws IOException {
+        int ancho = capa.getAncho();
+        int alto = capa.getAlto();
+        int maximo = 0;
+        for (int y = 0; y < alto; y++) {
+            for (int x = 0; x < ancho; x++) {
+                int gid = capa.getBaldosa(x, y);
+                if (Integer.compareUnsigned(gid, maximo) > 0) {
+                    maximo = gid;
+                }
+            }
+        }
+        int bytesPorBaldosa = Integer.compareUnsigned(maximo, 0xFFFF) <= 0 ? 2 : 4;
+        ByteBuffer datos = ByteBuffer.allocate(4 + ancho * alto * bytesPorBaldosa).order(ByteOrder.LITTLE_ENDIAN);
+        datos.putInt(bytesPorBaldosa);
+        for (int y = 0; y < alto; y++) {
+            for (int x = 0; x < ancho; x++) {
+                if (bytesPorBaldosa == 2) {
+                    datos.putShort((short) capa.getBaldosa(x, y));
+                } else {
+                    datos.putInt(capa.getBaldosa(x, y));
+                }
+            }
+        }
+        out.write(datos.array());
+    }
+
+    /**
+     * Escribe las palabras de la rejilla de colisiones tal cual están en memoria.
+     */
+    private static void escribirColisiones(DataOutputStream out, CollisionGrid colisiones) throws IOException {
+        ByteBuffer datos = ByteBuffer.allocate(colisiones.getNumPalabras() * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < colisiones.getNumPalabras(); i++) {
+            datos.putLong(colisiones.getPalabra(i));
+        }
+        out.write(datos.array());
+    }
+
+    /**
+     * Rellena con ceros hasta el siguiente múltiplo de 8.
+     */
+    private static void rellenar(DataOutputStream out) throws IOException {
+        while ((out.size() & 7) != 0) {
+            out.writeByte(0);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package game.mapa;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Decodifica capas TMX guardadas en base64, sin comprimir o comprimidas con zlib o gzip.
+ * <p>
+ * Las capas son independientes entre sí, así que se decodifican en paralelo en el
+ * {@link ForkJoinPool} común: la lista se divide por la mitad hasta quedar una capa por tarea.
+ */
+@SuppressWarnings("serial")
+final class DecodificadorCapas extends RecursiveAction {
+
+    /**
+     * Datos de una capa leídos del TMX a la espera de decodificarse.
+     */
+    static final class Pendiente {
+        private final String datos;
+        private final String compresion;
+        private final int ancho, alto;
+        private int[] baldosas;
+
+        /**
+         * Crea una capa pendiente.
+         *
+         * @param datos      Texto base64 del elemento {@code <data>}.
+         * @param compresion Valor del atributo {@code compression}, o null si no hay.
+         * @param ancho      Ancho de la capa en baldosas.
+         * @param alto       Alto de la capa en baldosas.
+         */
+        Pendiente(String datos, String compresion, int ancho, int alto) {
+            this.datos = datos;
+            this.compresion = compresion;
+            this.ancho = ancho;
+            this.alto = alto;
+        }
+
+        /**
+         * Obtiene las baldosas decodificadas, fila a fila.
+         *
+         * @return IDs de las baldosas, o null si aún no se ha decodificado.
+         */
+        int[] getBaldosas() {
+            return baldosas;
+        }
+    }
+
+    private final List<Pendiente> pendientes;
+    private final int desde, hasta;
+
+    private DecodificadorCapas(List<Pendiente> pendientes, int desde, int hasta) {
+        this.pendientes = pendientes;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    /**
+     * Decodifica todas las capas pendientes en paralelo y espera a que terminen.
+     *
+     * @param pendientes Capas a decodificar.
+     */
+    static void decodificar(List<Pendiente> pendientes) {
+        if (!pendientes.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(new DecodificadorCapas(pendientes, 0, pendientes.size()));
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (hasta - desde == 1) {
+            Pendiente capa = pendientes.get(desde);
+            capa.baldosas = decodificar(capa.datos, capa.compresion, capa.ancho * capa.alto);
+        } else {
+            int mitad = (desde + hasta) >>> 1;
+            invokeAll(new DecodificadorCapas(pendientes, desde, mitad), new DecodificadorCapas(pendientes, mitad, hasta));
+        }
+    }
+
+    /**
+     * Decodifica el contenido base64 de una capa.
+     *
+     * @param datos      Texto base64; se ignoran los saltos de línea y espacios.
+     * @param compresion "zlib", "gzip" o null si los datos no están comprimidos.
+     * @param baldosas   Número de baldosas que debe contener la capa.
+     * @return IDs de las baldosas, fila a fila.
+     */
+    static int[] decodificar(String datos, String compresion, int baldosas) {
+        return descomprimir(Base64.getMimeDecoder().decode(datos), compresion, baldosas);
+    }
+
+    /**
+     * Descomprime las baldosas de una capa ya decodificada de base64.
+     *
+     * @param bytes      Bytes de la capa.
+     * @param compresion "zlib", "gzip" o null si los datos no están comprimidos.
+     * @param baldosas   Número de baldosas que debe contener la capa.
+     * @return IDs de las baldosas, fila a fila.
+     */
+    static int[] descomprimir(byte[] bytes, String compresion, int baldosas) {
+        byte[] crudos;
+        if (compresion == null || compresion.isEmpty()) {
+            crudos = bytes;
+        } else if ("zlib".equals(compresion)) {
+            crudos = inflar(bytes, baldosas * 4);
+        } else if ("gzip".equals(compresion)) {
+            crudos = descomprimirGzip(bytes, baldosas * 4);
+        } else {
+            throw new IllegalStateException("Compresión de capa no soportada: " + compresion);
+        }
+        if (crudos.length != baldosas * 4) {
+            throw new IllegalStateException("La capa tiene " + crudos.length / 4 + " baldosas, se esperaban " + baldosas);
+        }
+        int[] resultado = new int[baldosas];
+        ByteBuffer.wrap(crudos).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(resultado);
+        return resultado;
+    }
+
+    /**
+     * Descomprime datos zlib. El flujo debe dar exactamente los bytes esperados y terminar justo
+     * después: si se corta antes o trae datos de más, la capa no es válida.
+     */
+    private static byte[] inflar(byte[] comprimidos, int esperados) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(comprimidos);
+            byte[] salida = new byte[esperados];
+            int leidos = 0;
+            while (leidos < esperados && !inflater.finished()) {
+                int n = inflater.inflate(salida, leidos, esperados - leidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                leidos += n;
+            }
+            if (leidos == esperados && !inflater.finished()) {
+                // Falta leer la suma de comprobación del final; si sale algún byte, sobran datos
+                if (inflater.inflate(new byte[1]) > 0) {
+                    leidos++;
+                }
+            }
+            if (leidos != esperados || !inflater.finished()) {
+                throw new IllegalStateException("Datos zlib de capa con tamaño incorrecto");
+            }
+            return salida;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Datos zlib de capa no válidos", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Descomprime datos gzip.
+     */
+    private static byte[] descomprimirGzip(byte[] comprimidos, int esperados) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(comprimidos))) {
+            byte[] salida = new byte[esperados];
+            int leidos = in.readNBytes(salida, 0, esperados);
+            if (leidos != esperados || in.read() != -1) {
+                throw new IllegalStateException("Datos gzip de capa con tamaño incorrecto");
+            }
+            return salida;
+        } catch (IOException e) {
+            throw new IllegalStateException("Datos gzip de capa no válidos", e);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package game.mapa;
+
+import game.render.Fotograma;
+import game.render.Pintable;
+import game.rendimiento.Metricas;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Dibujo de un mapa: las imágenes de sus patrones, el atlas de baldosas, el análisis de
+ * oclusión y la caché de trozos ya dibujados. Renderiza las capas del mapa con la cámara de
+ * cada {@link Fotograma} y aplica una escala para mejorar la visualización; también puede
+ * mostrar las áreas de colisión.
+ * <p>
+ * No es un componente de Swing, así que se puede preparar fuera del hilo de eventos (lo hace
+ * {@link PrecargaMapas}); {@link MapaVisual} lo muestra como panel.
+ */
+public final class DibujoMapa implements Pintable {
+    private final Mapa mapa;
+
+    private List<Capa> conjuntoCapas;
+    private List<Mapa.Patron> conjuntoPatrones;
+    private AtlasPatrones atlas;
+    private int anchuraBaldosa;
+    private int alturaBaldosa;
+    private int scaledTileWidth;
+    private int scaledTileHeight;
+    private int scaledMapWidth;
+    private int scaledMapHeight;
+    private CacheTrozosMapa cacheTrozos;
+    // Trozos decodificados de este dibujo en los mapas infinitos; null en los demás
+    private ZonaResidente zona;
+    private GraphicsConfiguration configuracion;
+    private volatile Color fondo;
+    private boolean liberado;
+    // Por baldosa, índice de la capa más baja que se ve; las de debajo quedan tapadas por una baldosa opaca
+    private byte[] primeraCapaVisible;
+    private int baldosasOcultas;
+
+    // Lado en baldosas de cada trozo pre-dibujado del mapa
+    private static final int BALDOSAS_POR_TROZO = 16;
+
+    /**
+     * Prepara el dibujo de un mapa: reserva las imágenes de sus patrones y construye el atlas.
+     *
+     * @param mapa El mapa a dibujar.
+     */
+    public DibujoMapa(Mapa mapa) {
+        this.mapa = mapa;
+        inicializacionAtributos(this.mapa);
+    }
+
+    /**
+     * Obtiene el mapa que se dibuja.
+     *
+     * @return El mapa.
+     */
+    public Mapa getMapa() {
+        return mapa;
+    }
+
+    /**
+     * Inicializa los atributos necesarios para la visualización del mapa, como las dimensiones
+     * de las baldosas y las escalas de los tiles y del mapa.
+     *
+     * @param mapa El mapa desde el cual se obtiene la información.
+     */
+    private void inicializacionAtributos(Mapa mapa) {
+        int escala = MapaVisual.ESCALA;
+        conjuntoPatrones = mapa.getConjuntoPatrones();
+        if (mapa.isPorTrozos()) {
+            zona = new ZonaResidente(mapa);
+            conjuntoCapas = zona.getCapas();
+        } else {
+            conjuntoCapas = mapa.getConjuntoCapas();
+        }
+        anchuraBaldosa = mapa.getAnchoBaldosa();
+        alturaBaldosa = mapa.getAltoBaldosa();
+        scaledTileWidth = anchuraBaldosa * escala;
+        scaledTileHeight = alturaBaldosa * escala;
+        scaledMapWidth = (mapa.getAnchoMapa() * anchuraBaldosa * escala);
+        scaledMapHeight = (mapa.getAltoMapa() * alturaBaldosa * escala);
+        configuracion = configuracionPantalla();
+        BufferedImage[] imgPatrones = leerImgPatrones();
+        try {
+            boolean[] usados = buscarGidsUsados(
+                    AtlasPatrones.ultimoGid(conjuntoPatrones, imgPatrones, anchuraBaldosa, alturaBaldosa));
+            atlas = new AtlasPatrones(conjuntoPatrones, imgPatrones, anchuraBaldosa, alturaBaldosa,
+                    escala, usados, configuracion);
+            analizarOclusion();
+        } catch (RuntimeException | Error e) {
+            soltarPatrones(imgPatrones.length);
+            throw e;
+        }
+        // En los mapas infinitos las baldosas lejanas no están cargadas, así que no se pueden guardar dibujadas
+        if (!mapa.isPorTrozos()) {
+            int anchoTrozo = BALDOSAS_POR_TROZO * scaledTileWidth;
+            int altoTrozo = BALDOSAS_POR_TROZO * scaledTileHeight;
+            cacheTrozos = new CacheTrozosMapa(scaledMapWidth, scaledMapHeight, anchoTrozo, altoTrozo,
+                    (g, trozoX, trozoY) -> {
+                        int x0 = trozoX * BALDOSAS_POR_TROZO;
+                        int y0 = trozoY * BALDOSAS_POR_TROZO;
+                        dibujarBaldosas(g, -trozoX * anchoTrozo, -trozoY * altoTrozo,
+                                x0, y0, x0 + BALDOSAS_POR_TROZO - 1, y0 + BALDOSAS_POR_TROZO - 1);
+                    });
+        }
+    }
+
+    /**
+     * En mapas infinitos, deja decodificados solo los trozos de capa cercanos a una posición y
+     * descarta el resto. En mapas normales no hace nada. Los trozos son de este dibujo: otro
+     * dibujo del mismo mapa mantiene los suyos.
+     *
+     * @param baldosaX Columna de la posición, normalmente la del jugador.
+     * @param baldosaY Fila de la posición.
+     * @param radio    Distancia en baldosas que debe quedar cargada.
+     */
+    public void mantenerZonaResidente(int baldosaX, int baldosaY, int radio) {
+        if (zona != null) {
+            zona.mantener(baldosaX, baldosaY, radio);
+        }
+    }
+
+    /**
+     * Obtiene las capas tal como las dibuja este dibujo: en los mapas infinitos, las de su
+     * {@link ZonaResidente}.
+     *
+     * @return Las capas, en el orden del mapa.
+     */
+    List<Capa> getCapas() {
+        return conjuntoCapas;
+    }
+
+    /**
+     * Obtiene la caché de trozos pre-dibujados del mapa.
+     *
+     * @return La caché, o null si el mapa se dibuja baldosa a baldosa (mapas infinitos).
+     */
+    public CacheTrozosMapa getCacheTrozos() {
+        return cacheTrozos;
+    }
+
+    /**
+     * Obtiene el atlas con las baldosas del mapa.
+     *
+     * @return El atlas del mapa.
+     */
+    public AtlasPatrones getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * Obtiene las imágenes de los patrones (tilesets) de la {@link TilesetCache}, en el mismo
+     * orden que {@code conjuntoPatrones}. Solo se usan para construir el atlas, pero se mantienen
+     * reservadas hasta {@link #liberar()} para que volver a este mapa no las decodifique otra vez.
+     *
+     * @return Las imágenes de los patrones.
+     */
+    private BufferedImage[] leerImgPatrones() {
+        BufferedImage[] imgPatrones = new BufferedImage[conjuntoPatrones.size()];
+        for (int i = 0; i < imgPatrones.length; i++) {
+            try {
+                imgPatrones[i] = TilesetCache.getInstancia().adquirir(conjuntoPatrones.get(i).getRuta());
+            } catch (RuntimeException | Error e) {
+                soltarPatrones(i);
+                throw e;
+            }
+        }
+        return imgPatrones;
+    }
+
+    /**
+     * Suelta en la {@link TilesetCache} las imágenes de los primeros patrones.
+     *
+     * @param cuantos Número de patrones reservados, en el orden de {@code conjuntoPatrones}.
+     */
+    private void soltarPatrones(int cuantos) {
+        for (int i = 0; i < cuantos; i++) {
+            TilesetCache.getInstancia().liberar(conjuntoPatrones.get(i).getRuta());
+        }
+    }
+
+    /**
+     * Libera los recursos del mapa cuando deja de mostrarse: las imágenes de los patrones
+     * reservadas en la {@link TilesetCache}, los trozos pre-dibujados y, en los mapas
+     * infinitos, los trozos decodificados. Llamarlo más de una vez no tiene efecto.
+     */
+    public synchronized void liberar() {
+        if (liberado) {
+            return;
+        }
+        liberado = true;
+        soltarPatrones(conjuntoPatrones.size());
+        if (cacheTrozos != null) {
+            cacheTrozos.vaciar();
+        }
+        if (zona != null) {
+            zona.vaciar();
+        }
+    }
+
+    /**
+     * Marca los gids que aparecen en alguna capa, para no guardar en el atlas baldosas que
+     * el mapa no usa. Las baldosas volteadas cuentan como su gid sin las marcas de volteo.
+     *
+     * @param ultimoGid Mayor gid que cubren los patrones; los que lo superan no tienen baldosa.
+     * @return Gids usados, o null en los mapas infinitos, cuyas capas no están cargadas enteras.
+     */
+    private boolean[] buscarGidsUsados(int ultimoGid) {
+        if (mapa.isPorTrozos()) {
+            return null;
+        }
+        boolean[] usados = new boolean[ultimoGid + 1];
+        for (Capa capa : conjuntoCapas) {
+            for (int y = 0; y < capa.getAlto(); y++) {
+                for (int x = capa.siguiente(y, 0); x != -1; x = capa.siguiente(y, x + 1)) {
+                    int id = capa.getBaldosa(x, y) & Capa.MASCARA_GID;
+                    if (id <= ultimoGid) {
+                        usados[id] = true;
+                    }
+                }
+            }
+        }
+        return usados;
+    }
+
+    /**
+     * Busca, para cada posición del mapa, la capa más alta con una baldosa opaca. Las baldosas
+     * de las capas inferiores no se verían, así que el dibujado se las salta.
+     * <p>
+     * No se aplica a los mapas infinitos, cuyas capas no están cargadas enteras.
+     */
+    private void analizarOclusion() {
+        int numCapas = conjuntoCapas.size();
+        if (mapa.isPorTrozos() || numCapas < 2 || numCapas > Byte.MAX_VALUE) {
+            return;
+        }
+        int ancho = mapa.getAnchoMapa();
+        int alto = mapa.getAltoMapa();
+        primeraCapaVisible = new byte[ancho * alto];
+        // Las capas se recorren de abajo arriba, así que en cada celda queda la última capa opaca
+        for (int i = 1; i < numCapas; i++) {
+            Capa capa = conjuntoCapas.get(i);
+            for (int y = 0; y < alto; y++) {
+                for (int x = capa.siguiente(y, 0); x != -1; x = capa.siguiente(y, x + 1)) {
+                    if (atlas.isOpaca(capa.getBaldosa(x, y))) {
+                        primeraCapaVisible[y * ancho + x] = (byte) i;
+                    }
+                }
+            }
+        }
+        int ocultas = 0;
+        for (int i = 0; i < numCapas - 1; i++) {
+            Capa capa = conjuntoCapas.get(i);
+            for (int y = 0; y < alto; y++) {
+                for (int x = capa.siguiente(y, 0); x != -1; x = capa.siguiente(y, x + 1)) {
+                    if (i < primeraCapaVisible[y * ancho + x]) {
+                        ocultas++;
+                    }
+                }
+            }
+        }
+        baldosasOcultas = ocultas;
+    }
+
+    /**
+     * Obtiene cuántas baldosas no se dibujan por estar tapadas por una baldosa opaca de una capa superior.
+     *
+     * @return Número de baldosas descartadas al cargar el mapa.
+     */
+    public int getBaldosasOcultas() {
+        return baldosasOcultas;
+    }
+
+    /**
+     * Obtiene la configuración gráfica de la pantalla principal.
+     *
+     * @return La configuración, o null si no hay pantalla.
+     */
+    private static GraphicsConfiguration configuracionPantalla() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    /**
+     * Establece el color con el que se rellena lo que no cubre el mapa.
+     *
+     * @param fondo Color de fondo, o null para no rellenar.
+     */
+    public void setFondo(Color fondo) {
+        this.fondo = fondo;
+    }
+
+    /**
+     * Dibuja el fondo, las capas del mapa y, si es necesario, las áreas de colisión, con la
+     * cámara del frame.
+     *
+     * @param g         El objeto Graphics utilizado para dibujar.
+     * @param fotograma Frame que se dibuja.
+     * @param ancho     Ancho de la zona de dibujo.
+     * @param alto      Alto de la zona de dibujo.
+     */
+    @Override
+    public void pintar(Graphics2D g, Fotograma fotograma, int ancho, int alto) {
+        long inicio = System.nanoTime();
+        boolean mostrarColisiones = false; // Variable para que cambiar manualmente en fase de desarrollo
+        Color colorFondo = fondo;
+        if (colorFondo != null) {
+            g.setColor(colorFondo);
+            g.fillRect(0, 0, ancho, alto);
+        }
+        int offsetX = ((ancho - scaledMapWidth) / 2) + fotograma.getCamaraX();
+        int offsetY = ((alto - scaledMapHeight) / 2) + fotograma.getCamaraY();
+
+        if (conjuntoCapas != null && atlas != null) {
+            // Solo se recorren las baldosas que caen dentro de la zona a repintar
+            Rectangle zona = g.getClipBounds();
+            if (zona == null) {
+                zona = new Rectangle(0, 0, ancho, alto);
+            }
+            int primeraX = Math.max(0, Math.floorDiv(zona.x - offsetX, scaledTileWidth));
+            int primeraY = Math.max(0, Math.floorDiv(zona.y - offsetY, scaledTileHeight));
+            int ultimaX = Math.floorDiv(zona.x + zona.width - 1 - offsetX, scaledTileWidth);
+            int ultimaY = Math.floorDiv(zona.y + zona.height - 1 - offsetY, scaledTileHeight);
+
+            if (cacheTrozos != null) {
+                // Copia los trozos ya dibujados que cubren la zona visible
+                int hastaTrozoX = Math.min(Math.floorDiv(ultimaX, BALDOSAS_POR_TROZO), cacheTrozos.getColumnasTrozos() - 1);
+                int hastaTrozoY = Math.min(Math.floorDiv(ultimaY, BALDOSAS_POR_TROZO), cacheTrozos.getFilasTrozos() - 1);
+                int anchoTrozo = BALDOSAS_POR_TROZO * scaledTileWidth;
+                int altoTrozo = BALDOSAS_POR_TROZO * scaledTileHeight;
+                for (int trozoY = primeraY / BALDOSAS_POR_TROZO; trozoY <= hastaTrozoY; trozoY++) {
+                    for (int trozoX = primeraX / BALDOSAS_POR_TROZO; trozoX <= hastaTrozoX; trozoX++) {
+                        g.drawImage(cacheTrozos.obtener(trozoX, trozoY, configuracion),
+                                offsetX + trozoX * anchoTrozo, offsetY + trozoY * altoTrozo, null);
+                    }
+                }
+            } else {
+                dibujarBaldosas(g, offsetX, offsetY, primeraX, primeraY, ultimaX, ultimaY);
+            }
+
+            // Dibuja las áreas de colisión si se requiere
+            if (mostrarColisiones) {
+                CollisionGrid colisiones = mapa.getColisiones();
+                int hastaY = Math.min(ultimaY, colisiones.getAlto() - 1);
+                for (int y = primeraY; y <= hastaY; y++) {
+                    for (int x = colisiones.nextBlocked(y, primeraX); x != -1 && x <= ultimaX; x = colisiones.nextBlocked(y, x + 1)) {
+                        g.setColor(new Color(255, 0, 0, 53));
+                        g.fillRect(offsetX + x * scaledTileWidth, offsetY + y * scaledTileHeight,
+                                scaledTileWidth, scaledTileHeight);
+                    }
+                }
+            }
+        }
+        Metricas.getInstancia().registrar(Metricas.PINTAR_MAPA, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Dibuja todas las capas de un rectángulo de baldosas.
+     *
+     * @param g       El objeto Graphics utilizado para dibujar.
+     * @param offsetX Posición X en la que se dibuja la baldosa (0, 0) del mapa.
+     * @param offsetY Posición Y en la que se dibuja la baldosa (0, 0) del mapa.
+     * @param desdeX  Primera columna (incluida).
+     * @param desdeY  Primera fila (incluida).
+     * @param hastaX  Última columna (incluida); puede salirse del mapa.
+     * @param hastaY  Última fila (incluida); puede salirse del mapa.
+     */
+    private void dibujarBaldosas(Graphics g, int offsetX, int offsetY, int desdeX, int desdeY, int hastaX, int hastaY) {
+        int anchoMapa = mapa.getAnchoMapa();
+        // Dibuja cada capa del mapa
+        for (int i = 0; i < conjuntoCapas.size(); i++) {
+            Capa capa = conjuntoCapas.get(i);
+            int ultimaX = Math.min(hastaX, capa.getAncho() - 1);
+            int ultimaY = Math.min(hastaY, capa.getAlto() - 1);
+            for (int y = desdeY; y <= ultimaY; y++) {
+                // Solo se visitan las celdas no vacías de la fila
+                for (int x = capa.siguiente(y, desdeX); x != -1 && x <= ultimaX; x = capa.siguiente(y, x + 1)) {
+                    if (primeraCapaVisible != null && i < primeraCapaVisible[y * anchoMapa + x]) {
+                        continue; // Tapada por una baldosa opaca de una capa superior
+                    }
+                    // Dibuja la baldosa correspondiente en el mapa
+                    atlas.dibujar(g, capa.getBaldosa(x, y), offsetX + x * scaledTileWidth, offsetY + y * scaledTileHeight);
+                }
+            }
+        }
+    }
+}
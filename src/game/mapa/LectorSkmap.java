@@ -0,0 +1,218 @@
+package game.mapa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Lector del formato binario {@code .skmap} generado por {@link ConversorSkmap}.
+ * <p>
+ * El archivo se mapea en memoria en modo solo lectura. Tras comprobar la cabecera y que
+ * los tamaños declarados caben en el archivo, cada capa es una vista sobre el buffer
+ * mapeado: no se parsea ni se copia ninguna baldosa.
+ * <p>
+ * La cabecera guarda la longitud y el CRC-32 del TMX del que se generó, para que
+ * {@link #esVigente} pueda descartar un {@code .skmap} que ya no corresponde a su TMX aunque
+ * las fechas de modificación digan lo contrario.
+ * <p>
+ * Estructura del archivo (todo en little-endian):
+ * <pre>
+ * int   MAGIA ("SKMP")
+ * short VERSION
+ * short reservado
+ * long  longitud del TMX de origen
+ * long  CRC-32 del TMX de origen
+ * int   anchoMapa, altoMapa
+ * int   numPatrones, numCapas
+ * por patrón: int firstgid, short longitud, byte[longitud] nombre en UTF-8
+ * relleno hasta múltiplo de 8
+ * por capa:   int bytesPorBaldosa (2 o 4), ancho * alto baldosas, relleno hasta múltiplo de 8
+ * colisiones: altoMapa * palabrasPorFila longs, un bit por baldosa
+ * </pre>
+ */
+final class LectorSkmap {
+    static final int MAGIA = 0x504D4B53;
+    static final short VERSION = 2;
+    // Bytes de la cabecera hasta numCapas incluido
+    static final int BYTES_CABECERA = 40;
+
+    private int anchoMapa, altoMapa;
+    private final List<Mapa.Patron> conjuntoPatrones = new ArrayList<>();
+    private final List<Capa> conjuntoCapas = new ArrayList<>();
+    private CollisionGrid colisiones;
+
+    /**
+     * Mapea y valida el archivo indicado.
+     *
+     * @param archivo Archivo {@code .skmap}.
+     * @throws IOException        Si no se puede leer el archivo o su contenido no es válido.
+     * @throws URISyntaxException Si hay un error al obtener la URI de un patrón.
+     */
+    LectorSkmap(File archivo) throws IOException, URISyntaxException {
+        MappedByteBuffer mapeado;
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            mapeado = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        ByteBuffer buffer = mapeado.order(ByteOrder.LITTLE_ENDIAN);
+
+        comprobar(buffer, BYTES_CABECERA);
+        if (buffer.getInt() != MAGIA || buffer.getShort() != VERSION) {
+            throw new IOException("Archivo .skmap no válido: " + archivo);
+        }
+        buffer.getShort();
+        buffer.getLong();
+        buffer.getLong();
+        anchoMapa = buffer.getInt();
+        altoMapa = buffer.getInt();
+        int numPatrones = buffer.getInt();
+        int numCapas = buffer.getInt();
+        if (anchoMapa <= 0 || altoMapa <= 0 || numPatrones < 0 || numCapas < 0) {
+            throw new IOException("Cabecera .skmap no válida: " + archivo);
+        }
+        // Las capas se indexan con int, así que el mapa no puede tener más baldosas que eso
+        long baldosas = (long) anchoMapa * altoMapa;
+        if (baldosas > Integer.MAX_VALUE) {
+            throw new IOException("Mapa .skmap demasiado grande (" + anchoMapa + "x" + altoMapa + "): " + archivo);
+        }
+
+        leerPatrones(buffer, numPatrones);
+        alinear(buffer);
+        for (int i = 0; i < numCapas; i++) {
+            comprobar(buffer, 4);
+            int bytesPorBaldosa = buffer.getInt();
+            if (bytesPorBaldosa != 2 && bytesPorBaldosa != 4) {
+                throw new IOException("Tamaño de baldosa no válido en " + archivo);
+            }
+            comprobar(buffer, baldosas * bytesPorBaldosa);
+            int bytes = (int) (baldosas * bytesPorBaldosa);
+            ByteBuffer vista = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            vista.limit(bytes);
+            if (bytesPorBaldosa == 2) {
+                conjuntoCapas.add(new CapaMapeada(anchoMapa, altoMapa, vista.asShortBuffer()));
+            } else {
+                conjuntoCapas.add(new CapaMapeada(anchoMapa, altoMapa, vista.asIntBuffer()));
+            }
+            buffer.position(buffer.position() + bytes);
+            alinear(buffer);
+        }
+        leerColisiones(buffer);
+    }
+
+    /**
+     * Lee la tabla de patrones (tilesets).
+     */
+    private void leerPatrones(ByteBuffer buffer, int numPatrones) throws IOException, URISyntaxException {
+        for (int i = 0; i < numPatrones; i++) {
+            comprobar(buffer, 6);
+            int firstgid = buffer.getInt();
+            byte[] nombre = new byte[buffer.getShort() & 0xFFFF];
+            comprobar(buffer, nombre.length);
+            buffer.get(nombre);
+            File ruta = Paths.get(Objects.requireNonNull(Mapa.class.getResource("/mapas/patrones/" + new String(nombre, StandardCharsets.UTF_8))).toURI()).toFile();
+            conjuntoPatrones.add(new Mapa.Patron(ruta, firstgid));
+        }
+    }
+
+    /**
+     * Lee el bitset de colisiones, que tiene la misma disposición que {@link CollisionGrid}.
+     */
+    private void leerColisiones(ByteBuffer buffer) throws IOException {
+        long palabras = (long) altoMapa * CollisionGrid.palabrasPorFila(anchoMapa);
+        comprobar(buffer, palabras * 8);
+        long[] bits = new long[(int) palabras];
+        buffer.asLongBuffer().get(bits);
+        colisiones = new CollisionGrid(anchoMapa, altoMapa, bits);
+    }
+
+    /**
+     * Comprueba que quedan al menos {@code bytes} bytes en el buffer. Se recibe como long para
+     * que un tamaño calculado a partir de una cabecera corrupta no pueda desbordar antes de
+     * comprobarse; lo que cabe en el buffer cabe también en un int.
+     */
+    private static void comprobar(ByteBuffer buffer, long bytes) throws IOException {
+        if (bytes < 0 || bytes > Integer.MAX_VALUE || buffer.remaining() < bytes) {
+            throw new IOException("Archivo .skmap truncado");
+        }
+    }
+
+    /**
+     * Avanza la posición del buffer hasta el siguiente múltiplo de 8.
+     */
+    private static void alinear(ByteBuffer buffer) throws IOException {
+        int relleno = (8 - (buffer.position() & 7)) & 7;
+        comprobar(buffer, relleno);
+        buffer.position(buffer.position() + relleno);
+    }
+
+    /**
+     * Calcula la huella del contenido de un TMX que se guarda en la cabecera.
+     *
+     * @param plano Archivo TMX.
+     * @return CRC-32 del archivo.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    static long huella(File plano) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(plano.toPath()));
+        return crc.getValue();
+    }
+
+    /**
+     * Comprueba si un archivo {@code .skmap} se generó con esta versión del formato a partir del
+     * contenido actual de un TMX. Solo lee la cabecera; si la longitud guardada coincide, calcula
+     * además la huella del TMX.
+     *
+     * @param binario Archivo {@code .skmap}.
+     * @param plano   Archivo TMX de origen.
+     * @return true si el {@code .skmap} se puede usar en lugar del TMX.
+     * @throws IOException Si no se puede leer alguno de los dos archivos.
+     */
+    static boolean esVigente(File binario, File plano) throws IOException {
+        byte[] leidos;
+        try (InputStream in = Files.newInputStream(binario.toPath())) {
+            leidos = in.readNBytes(BYTES_CABECERA);
+        }
+        if (leidos.length < BYTES_CABECERA) {
+            return false;
+        }
+        ByteBuffer cabecera = ByteBuffer.wrap(leidos).order(ByteOrder.LITTLE_ENDIAN);
+        if (cabecera.getInt() != MAGIA || cabecera.getShort() != VERSION) {
+            return false;
+        }
+        cabecera.getShort();
+        return cabecera.getLong() == plano.length() && cabecera.getLong() == huella(plano);
+    }
+
+    int getAnchoMapa() {
+        return anchoMapa;
+    }
+
+    int getAltoMapa() {
+        return altoMapa;
+    }
+
+    List<Mapa.Patron> getConjuntoPatrones() {
+        return conjuntoPatrones;
+    }
+
+    List<Capa> getConjuntoCapas() {
+        return conjuntoCapas;
+    }
+
+    CollisionGrid getColisiones() {
+        return colisiones;
+    }
+}
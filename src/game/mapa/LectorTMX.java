@@ -0,0 +1,424 @@
+package game.mapa;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lector de archivos TMX basado en StAX. Recorre el XML en una sola pasada hacia delante,
+ * leyendo los elementos {@code <map>}, {@code <tileset>}, {@code <layer>} y {@code <data>}
+ * sin construir un árbol DOM.
+ * <p>
+ * Los identificadores de las baldosas en formato CSV se convierten directamente a enteros
+ * a partir de los caracteres del XML, sin {@code String.split} ni {@code trim}, y la rejilla
+ * de colisiones se rellena a la vez que se leen las capas llamadas "Colisiones".
+ * <p>
+ * Las capas en base64 (sin comprimir, zlib o gzip) se guardan tal cual durante la pasada y
+ * se decodifican al final en paralelo con {@link DecodificadorCapas}.
+ * <p>
+ * Los mapas infinitos ({@code infinite="1"}) guardan cada capa en trozos; estos se
+ * conservan comprimidos en una {@link CapaPorTrozos} y se decodifican bajo demanda.
+ */
+final class LectorTMX {
+    private static final String CAPA_COLISIONES = "Colisiones";
+
+    private int anchoMapa, altoMapa;
+    private final List<Mapa.Patron> conjuntoPatrones = new ArrayList<>();
+    private final List<Capa> conjuntoCapas = new ArrayList<>();
+    private CollisionGrid colisiones;
+    private boolean infinito;
+
+    // Capas en base64 que se decodifican al terminar la lectura
+    private final List<DecodificadorCapas.Pendiente> pendientes = new ArrayList<>();
+    private final List<Integer> indicesPendientes = new ArrayList<>();
+    private final List<Boolean> colisionesPendientes = new ArrayList<>();
+
+    // Estado del análisis CSV de la capa en curso
+    private int[] capaActual;
+    private boolean capaColisiones;
+    private int indice, x, y;
+    // Se acumula en long: los gids con las marcas de volteo de Tiled llegan hasta 0xFFFFFFFF
+    private long valor;
+    private boolean enNumero;
+
+    /**
+     * Lee el archivo TMX indicado.
+     *
+     * @param plano Archivo TMX que describe el mapa.
+     * @throws IOException        Si no se puede leer el archivo.
+     * @throws XMLStreamException Si el XML está mal formado.
+     * @throws URISyntaxException Si hay un error al obtener la URI de un patrón.
+     */
+    LectorTMX(File plano) throws IOException, XMLStreamException, URISyntaxException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(plano))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                leer(reader);
+                decodificarPendientes();
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Recorre los eventos del documento y va guardando mapa, patrones y capas.
+     *
+     * @param reader Lector StAX posicionado al inicio del documento.
+     */
+    private void leer(XMLStreamReader reader) throws XMLStreamException, URISyntaxException {
+        String nombreCapa = null;
+        boolean enDatos = false;
+        String compresion = null;
+        StringBuilder base64 = null;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    switch (reader.getLocalName()) {
+                        case "map":
+                            anchoMapa = Integer.parseInt(reader.getAttributeValue(null, "width"));
+                            altoMapa = Integer.parseInt(reader.getAttributeValue(null, "height"));
+                            if ("1".equals(reader.getAttributeValue(null, "infinite"))) {
+                                leerTrozos(reader);
+                                return;
+                            }
+                            colisiones = new CollisionGrid(anchoMapa, altoMapa);
+                            break;
+                        case "tileset":
+                            guardarPatron(reader);
+                            break;
+                        case "layer":
+                            nombreCapa = reader.getAttributeValue(null, "name");
+                            break;
+                        case "data":
+                            String encoding = reader.getAttributeValue(null, "encoding");
+                            if ("csv".equals(encoding)) {
+                                empezarCapa(CAPA_COLISIONES.equals(nombreCapa));
+                            } else if ("base64".equals(encoding)) {
+                                compresion = reader.getAttributeValue(null, "compression");
+                                base64 = new StringBuilder();
+                            } else {
+                                throw new IllegalStateException("Codificación de capa no soportada: " + encoding);
+                            }
+                            enDatos = true;
+                            break;
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                    if (enDatos && base64 != null) {
+                        base64.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    } else if (enDatos) {
+                        leerCSV(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (enDatos && "data".equals(reader.getLocalName())) {
+                        if (base64 != null) {
+                            aplazarCapa(base64.toString(), compresion, CAPA_COLISIONES.equals(nombreCapa));
+                            base64 = null;
+                        } else {
+                            terminarCapa();
+                        }
+                        enDatos = false;
+                    } else if ("layer".equals(reader.getLocalName())) {
+                        nombreCapa = null;
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Lee el resto de un mapa infinito, cuyas capas están divididas en elementos {@code <chunk>}.
+     * Cada trozo se guarda comprimido en cuanto se lee; al terminar se calculan los límites del
+     * mundo y se crea una {@link CapaPorTrozos} por capa. Las capas de colisiones se decodifican una vez,
+     * trozo a trozo, solo para rellenar la rejilla.
+     *
+     * @param reader Lector StAX posicionado justo después del elemento {@code <map>}.
+     */
+    private void leerTrozos(XMLStreamReader reader) throws XMLStreamException, URISyntaxException {
+        infinito = true;
+        List<List<CapaPorTrozos.Trozo>> trozosPorCapa = new ArrayList<>();
+        List<String[]> formatos = new ArrayList<>();
+        List<Boolean> esColisiones = new ArrayList<>();
+        List<CapaPorTrozos.Trozo> trozosCapa = null;
+        String nombreCapa = null;
+        StringBuilder texto = null;
+        int trozoX = 0, trozoY = 0;
+        int tamañoTrozo = 0;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    switch (reader.getLocalName()) {
+                        case "tileset":
+                            guardarPatron(reader);
+                            break;
+                        case "layer":
+                            nombreCapa = reader.getAttributeValue(null, "name");
+                            break;
+                        case "data":
+                            formatos.add(new String[]{reader.getAttributeValue(null, "encoding"), reader.getAttributeValue(null, "compression")});
+                            esColisiones.add(CAPA_COLISIONES.equals(nombreCapa));
+                            trozosCapa = new ArrayList<>();
+                            trozosPorCapa.add(trozosCapa);
+                            break;
+                        case "chunk":
+                            trozoX = Integer.parseInt(reader.getAttributeValue(null, "x"));
+                            trozoY = Integer.parseInt(reader.getAttributeValue(null, "y"));
+                            int ancho = Integer.parseInt(reader.getAttributeValue(null, "width"));
+                            int alto = Integer.parseInt(reader.getAttributeValue(null, "height"));
+                            if (tamañoTrozo == 0) {
+                                tamañoTrozo = ancho;
+                            }
+                            if (ancho != tamañoTrozo || alto != tamañoTrozo) {
+                                throw new IllegalStateException("Todos los trozos del mapa deben ser de " + tamañoTrozo + "x" + tamañoTrozo);
+                            }
+                            minX = Math.min(minX, trozoX);
+                            minY = Math.min(minY, trozoY);
+                            maxX = Math.max(maxX, trozoX + ancho);
+                            maxY = Math.max(maxY, trozoY + alto);
+                            texto = new StringBuilder();
+                            break;
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                    if (texto != null) {
+                        texto.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (texto != null && "chunk".equals(reader.getLocalName())) {
+                        String[] formato = formatos.get(formatos.size() - 1);
+                        trozosCapa.add(CapaPorTrozos.Trozo.leer(trozoX, trozoY, texto.toString(),
+                                formato[0], formato[1], tamañoTrozo * tamañoTrozo));
+                        texto = null;
+                    } else if ("layer".equals(reader.getLocalName())) {
+                        nombreCapa = null;
+                    }
+                    break;
+            }
+        }
+
+        if (tamañoTrozo == 0) {
+            colisiones = new CollisionGrid(anchoMapa, altoMapa);
+            return;
+        }
+        // Los trozos de Tiled están alineados a su tamaño, así que el origen también lo está
+        int origenX = Math.floorDiv(minX, tamañoTrozo) * tamañoTrozo;
+        int origenY = Math.floorDiv(minY, tamañoTrozo) * tamañoTrozo;
+        anchoMapa = maxX - origenX;
+        altoMapa = maxY - origenY;
+        colisiones = new CollisionGrid(anchoMapa, altoMapa);
+        for (int i = 0; i < trozosPorCapa.size(); i++) {
+            List<CapaPorTrozos.Trozo> desplazados = new ArrayList<>();
+            for (CapaPorTrozos.Trozo trozo : trozosPorCapa.get(i)) {
+                desplazados.add(trozo.desplazar(-origenX, -origenY));
+            }
+            CapaPorTrozos capa = new CapaPorTrozos(anchoMapa, altoMapa, tamañoTrozo, formatos.get(i)[1], desplazados);
+            if (esColisiones.get(i)) {
+                capa.marcarColisiones(colisiones);
+            }
+            conjuntoCapas.add(capa);
+        }
+    }
+
+    /**
+     * Convierte un texto CSV completo en identificadores de baldosa.
+     *
+     * @param texto    Texto CSV.
+     * @param baldosas Número de baldosas esperadas.
+     * @return IDs de las baldosas; si el texto trae menos, el resto queda a 0.
+     */
+    static int[] parsearCSV(String texto, int baldosas) {
+        int[] resultado = new int[baldosas];
+        int i = 0;
+        long numero = 0;
+        boolean dentro = false;
+        for (int c = 0; c < texto.length(); c++) {
+            char ch = texto.charAt(c);
+            if (ch >= '0' && ch <= '9') {
+                numero = acumularDigito(numero, ch);
+                dentro = true;
+            } else if (dentro) {
+                if (i < baldosas) {
+                    resultado[i++] = (int) numero;
+                }
+                numero = 0;
+                dentro = false;
+            }
+        }
+        if (dentro && i < baldosas) {
+            resultado[i] = (int) numero;
+        }
+        return resultado;
+    }
+
+    /**
+     * Añade un dígito a un gid en lectura. Los gids son enteros de 32 bits sin signo: los bits
+     * altos son las marcas de volteo de Tiled y se conservan tal cual en el int de la capa.
+     *
+     * @param numero Valor leído hasta ahora.
+     * @param digito Carácter del dígito.
+     * @return El valor con el dígito añadido.
+     * @throws IllegalStateException si el gid no cabe en 32 bits sin signo.
+     */
+    private static long acumularDigito(long numero, char digito) {
+        long resultado = numero * 10 + (digito - '0');
+        if (resultado > 0xFFFFFFFFL) {
+            throw new IllegalStateException("ID de baldosa fuera de rango: " + resultado);
+        }
+        return resultado;
+    }
+
+    /**
+     * Reserva el hueco de una capa codificada en base64 para decodificarla al final de la lectura.
+     *
+     * @param datos      Texto base64 de la capa.
+     * @param compresion Compresión de los datos, o null si no hay.
+     * @param colisiones true si la capa es de colisiones.
+     */
+    private void aplazarCapa(String datos, String compresion, boolean colisiones) {
+        pendientes.add(new DecodificadorCapas.Pendiente(datos, compresion, anchoMapa, altoMapa));
+        indicesPendientes.add(conjuntoCapas.size());
+        colisionesPendientes.add(colisiones);
+        conjuntoCapas.add(null);
+    }
+
+    /**
+     * Decodifica en paralelo las capas en base64 y las coloca en su posición.
+     * Las colisiones se marcan después, en este hilo, porque varias capas pueden
+     * compartir palabras de la rejilla.
+     */
+    private void decodificarPendientes() {
+        DecodificadorCapas.decodificar(pendientes);
+        for (int i = 0; i < pendientes.size(); i++) {
+            Capa capa = CapaDispersa.compactar(anchoMapa, altoMapa, pendientes.get(i).getBaldosas());
+            conjuntoCapas.set(indicesPendientes.get(i), capa);
+            if (colisionesPendientes.get(i)) {
+                for (int y = 0; y < altoMapa; y++) {
+                    for (int x = capa.siguiente(y, 0); x != -1; x = capa.siguiente(y, x + 1)) {
+                        colisiones.bloquear(x, y);
+                    }
+                }
+            }
+        }
+        pendientes.clear();
+    }
+
+    /**
+     * Guarda el patrón (tileset) del elemento actual.
+     *
+     * @param reader Lector StAX posicionado en un elemento {@code <tileset>}.
+     */
+    private void guardarPatron(XMLStreamReader reader) throws URISyntaxException {
+        int firstgid = Integer.parseInt(reader.getAttributeValue(null, "firstgid"));
+        File ruta = Paths.get(Objects.requireNonNull(Mapa.class.getResource("/mapas/patrones/" + reader.getAttributeValue(null, "source"))).toURI()).toFile();
+        conjuntoPatrones.add(new Mapa.Patron(ruta, firstgid));
+    }
+
+    /**
+     * Prepara una capa nueva antes de leer sus datos CSV.
+     *
+     * @param colisiones true si la capa es de colisiones.
+     */
+    private void empezarCapa(boolean colisiones) {
+        capaActual = new int[altoMapa * anchoMapa];
+        capaColisiones = colisiones;
+        indice = 0;
+        x = 0;
+        y = 0;
+        valor = 0;
+        enNumero = false;
+    }
+
+    /**
+     * Convierte un tramo de caracteres CSV en identificadores de baldosa. Un número puede
+     * quedar partido entre dos tramos, por eso el estado se guarda entre llamadas.
+     *
+     * @param texto  Array de caracteres del lector.
+     * @param inicio Posición del primer carácter válido.
+     * @param largo  Número de caracteres válidos.
+     */
+    private void leerCSV(char[] texto, int inicio, int largo) {
+        int fin = inicio + largo;
+        for (int i = inicio; i < fin; i++) {
+            char c = texto[i];
+            if (c >= '0' && c <= '9') {
+                valor = acumularDigito(valor, c);
+                enNumero = true;
+            } else if (enNumero) {
+                guardarBaldosa();
+            }
+        }
+    }
+
+    /**
+     * Guarda el número leído en la siguiente celda de la capa y marca la colisión si procede.
+     */
+    private void guardarBaldosa() {
+        if (y < altoMapa) {
+            capaActual[indice++] = (int) valor;
+            if (capaColisiones && valor != 0) {
+                colisiones.bloquear(x, y);
+            }
+            if (++x == anchoMapa) {
+                x = 0;
+                y++;
+            }
+        }
+        valor = 0;
+        enNumero = false;
+    }
+
+    /**
+     * Cierra la capa en curso y la añade al conjunto de capas.
+     */
+    private void terminarCapa() {
+        if (enNumero) {
+            guardarBaldosa();
+        }
+        conjuntoCapas.add(CapaDispersa.compactar(anchoMapa, altoMapa, capaActual));
+        capaActual = null;
+    }
+
+    boolean isInfinito() {
+        return infinito;
+    }
+
+    int getAnchoMapa() {
+        return anchoMapa;
+    }
+
+    int getAltoMapa() {
+        return altoMapa;
+    }
+
+    List<Mapa.Patron> getConjuntoPatrones() {
+        return conjuntoPatrones;
+    }
+
+    List<Capa> getConjuntoCapas() {
+        return conjuntoCapas;
+    }
+
+    CollisionGrid getColisiones() {
+        return colisiones;
+    }
+}
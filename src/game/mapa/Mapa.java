@@ -1,31 +1,44 @@
 package game.mapa;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Clase que representa un mapa en el juego. Esta clase carga y gestiona la información
  * del mapa a partir de un archivo XML (.tmx) que describe el mapa y sus capas.
+ * La lectura se delega en {@link LectorTMX}, que recorre el archivo en una sola pasada,
+ * o en {@link LectorSkmap} si el mapa se ha precompilado con {@link ConversorSkmap}.
  * <p>
  * El mapa se compone de varias capas de tiles (baldosas) y patrones (conjuntos de tiles),
  * además de una capa específica de colisiones.
+ * <p>
+ * Una vez cargado, el mapa no cambia, por lo que una misma instancia puede compartirse
+ * entre varias partes del juego (ver {@link MapaRepository}).
  */
 public class Mapa {
     /**
      * Clase interna que representa un patrón (tileset) utilizado en el mapa.
      */
     public static class Patron {
-        private File ruta;
-        private int firstgid;
+        private final File ruta;
+        private final int firstgid;
+
+        /**
+         * Crea un patrón a partir de su imagen y su primer ID.
+         *
+         * @param ruta     Archivo de imagen del patrón.
+         * @param firstgid Primer ID de baldosa que pertenece al patrón.
+         */
+        Patron(File ruta, int firstgid) {
+            this.ruta = ruta;
+            this.firstgid = firstgid;
+        }
 
         /**
          * Obtiene la ruta del archivo del patrón.
@@ -46,17 +59,19 @@ public class Mapa {
         }
     }
 
-    private int anchoMapa, altoMapa;
+    private final int anchoMapa, altoMapa;
     private final static int anchoBaldosa = 16, altoBaldosa = 16;
 
-    private List<Patron> conjuntoPatrones = new ArrayList<>();
-    private final List<int[][]> conjuntoCapas = new ArrayList<>();
-    private final List<boolean[][]> conjuntoColisiones = new ArrayList<>();
-    private boolean[][] matrizColisiones;
+    private final List<Patron> conjuntoPatrones;
+    private final List<Capa> conjuntoCapas;
+    private final CollisionGrid colisiones;
+    private final long bytesEstimados;
+    private final boolean porTrozos;
 
 
     /**
-     * Constructor que carga el mapa desde un archivo TMX.
+     * Constructor que carga el mapa desde un archivo TMX. Si junto al TMX existe una versión
+     * precompilada {@code .skmap} generada a partir de ese mismo TMX, se carga esa en su lugar.
      *
      * @param path Ruta del archivo TMX que describe el mapa.
      * @throws RuntimeException Si ocurre algún error al cargar o parsear el archivo.
@@ -64,85 +79,94 @@ public class Mapa {
     public Mapa(String path) {
         try {
             File plano = Paths.get(Objects.requireNonNull(Mapa.class.getResource(path)).toURI()).toFile();
+            File binario = buscarSkmap(path, plano);
 
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document tmx = builder.parse(plano);
-            //Selecciono Mapa
-            Element map = (Element) tmx.getElementsByTagName("map").item(0);
-
-            anchoMapa = Integer.parseInt(map.getAttribute("width"));
-            altoMapa = Integer.parseInt(map.getAttribute("height"));
-            //Recorro todos los patrones y los guardo en ConjuntoPatrones
-            guardarPatrones(tmx);
-            //Recorro cada capa para guardar la info en conjuntoCapas y conjuntoColisiones
-            guardarCapas(tmx);
-            //Comprimo el ArrayList conjuntoColisiones en matrizColisiones
-            comprimirColisiones();
+            if (binario != null) {
+                //Mapeo el archivo binario, las capas son vistas sobre él
+                LectorSkmap skmap = new LectorSkmap(binario);
+                anchoMapa = skmap.getAnchoMapa();
+                altoMapa = skmap.getAltoMapa();
+                conjuntoPatrones = Collections.unmodifiableList(skmap.getConjuntoPatrones());
+                conjuntoCapas = Collections.unmodifiableList(skmap.getConjuntoCapas());
+                colisiones = skmap.getColisiones();
+            } else {
+                //Leo patrones, capas y colisiones en una sola pasada
+                LectorTMX tmx = new LectorTMX(plano);
+                anchoMapa = tmx.getAnchoMapa();
+                altoMapa = tmx.getAltoMapa();
+                conjuntoPatrones = Collections.unmodifiableList(tmx.getConjuntoPatrones());
+                conjuntoCapas = Collections.unmodifiableList(tmx.getConjuntoCapas());
+                colisiones = tmx.getColisiones();
+            }
+            boolean hayTrozos = false;
+            for (Capa capa : conjuntoCapas) {
+                hayTrozos |= capa instanceof CapaPorTrozos;
+            }
+            porTrozos = hayTrozos;
+            bytesEstimados = estimarBytes();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Guarda los patrones (tilesets) que se encuentran en el archivo TMX.
+     * Estima la memoria que ocupan las capas y la rejilla de colisiones del mapa.
      *
-     * @param doc El documento XML que contiene la información del mapa.
-     * @throws URISyntaxException Si hay un error al obtener la URI de un recurso.
+     * @return Número aproximado de bytes.
      */
-    private void guardarPatrones(Document doc) throws URISyntaxException {
-        conjuntoPatrones.clear();
-        for (int i = 0; i < doc.getElementsByTagName("tileset").getLength(); i++) {
-            Element tilesetElement = (Element) doc.getElementsByTagName("tileset").item(i);
-
-            Patron nuevo_patron = new Patron();
-            nuevo_patron.firstgid = Integer.parseInt(tilesetElement.getAttribute("firstgid"));
-
-            nuevo_patron.ruta = Paths.get(Objects.requireNonNull(Mapa.class.getResource("/mapas/patrones/" + tilesetElement.getAttribute("source"))).toURI()).toFile();
-            conjuntoPatrones.add(nuevo_patron);
-
+    private long estimarBytes() {
+        long bytes = colisiones.getBytes();
+        for (Capa capa : conjuntoCapas) {
+            bytes += capa.getBytes();
         }
+        return bytes;
     }
 
     /**
-     * Guarda las capas del mapa y determina las áreas de colisión.
+     * Describe la memoria que ocupa cada capa y la rejilla de colisiones, indicando cómo se
+     * guarda cada capa y lo que ocuparía como array denso. Los tamaños se miden al llamarlo.
      *
-     * @param tmx El documento XML que contiene la información del mapa.
+     * @return Informe de memoria, una línea por capa.
      */
-    private void guardarCapas(Document tmx) {
-        conjuntoColisiones.clear();
-        conjuntoCapas.clear();
-        for (int i = 0; i < tmx.getElementsByTagName("layer").getLength(); i++) {
-            boolean[][] colisiones = new boolean[altoMapa][anchoMapa];
-            int[][] ArrayCapa = new int[altoMapa][anchoMapa];
-            String[] capa = ((Element) tmx.getElementsByTagName("layer").item(i)).getElementsByTagName("data").item(0).getTextContent().split(",");
-            for (int y = 0; y < altoMapa; y++) {
-                for (int x = 0; x < anchoMapa; x++) {
-                    ArrayCapa[y][x] = Integer.parseInt(capa[y * anchoMapa + x].trim());
-                    if ("Colisiones".equals(((Element) tmx.getElementsByTagName("layer").item(i)).getAttribute("name"))) {
-                        colisiones[y][x] = ArrayCapa[y][x] != 0;
-                    }
-                }
-            }
-            conjuntoCapas.add(ArrayCapa);
-            conjuntoColisiones.add(colisiones);
+    public String getInformeMemoria() {
+        StringBuilder informe = new StringBuilder();
+        long bytesColisiones = colisiones.getBytes();
+        long total = bytesColisiones;
+        long densas = bytesColisiones;
+        for (int i = 0; i < conjuntoCapas.size(); i++) {
+            Capa capa = conjuntoCapas.get(i);
+            long bytes = capa.getBytes();
+            long comoDensa = 4L * capa.getAncho() * capa.getAlto();
+            total += bytes;
+            densas += comoDensa;
+            informe.append(String.format("Capa %d: %s, %d bytes (densa: %d bytes)%n",
+                    i, capa.getClass().getSimpleName(), bytes, comoDensa));
         }
+        informe.append(String.format("Colisiones: %d bytes%n", bytesColisiones));
+        informe.append(String.format("Total: %d bytes (todas densas: %d bytes)%n", total, densas));
+        return informe.toString();
     }
 
     /**
-     * Comprime la información de las capas de colisiones en una matriz de colisiones única.
+     * Busca el archivo {@code .skmap} que corresponde a un TMX.
+     *
+     * @param path  Ruta del recurso TMX.
+     * @param plano Archivo TMX.
+     * @return El archivo {@code .skmap}, o null si no existe, es más antiguo que el TMX o se
+     * generó a partir de otro contenido (ver {@link LectorSkmap#esVigente}).
+     * @throws URISyntaxException Si hay un error al obtener la URI del recurso.
+     * @throws IOException        Si no se puede leer la cabecera del {@code .skmap} o el TMX.
      */
-    private void comprimirColisiones() {
-        matrizColisiones = new boolean[altoMapa][anchoMapa];
-        for (boolean[][] capaColision : conjuntoColisiones) {
-            for (int y = 0; y < capaColision.length; y++) {
-                for (int x = 0; x < capaColision[y].length; x++) {
-                    if (capaColision[y][x]) {
-                        matrizColisiones[y][x] = true;
-                    }
-                }
-            }
+    private static File buscarSkmap(String path, File plano) throws URISyntaxException, IOException {
+        URL recurso = Mapa.class.getResource(path.replaceFirst("\\.tmx$", ".skmap"));
+        if (recurso == null || !"file".equals(recurso.getProtocol())) {
+            return null;
         }
+        File binario = Paths.get(recurso.toURI()).toFile();
+        if (binario.lastModified() < plano.lastModified() || !LectorSkmap.esVigente(binario, plano)) {
+            return null;
+        }
+        return binario;
     }
 
     /**
@@ -185,9 +209,9 @@ public class Mapa {
     /**
      * Obtiene el conjunto de capas del mapa.
      *
-     * @return Una lista de matrices que representan las capas del mapa.
+     * @return Una lista con las capas del mapa.
      */
-    public List<int[][]> getConjuntoCapas() {
+    public List<Capa> getConjuntoCapas() {
         return conjuntoCapas;
     }
 
@@ -201,11 +225,32 @@ public class Mapa {
     }
 
     /**
-     * Obtiene la matriz de colisiones del mapa.
+     * Indica si el mapa es infinito, es decir, si sus capas se cargan por trozos.
+     *
+     * @return true si alguna capa se guarda por trozos.
+     */
+    public boolean isPorTrozos() {
+        return porTrozos;
+    }
+
+    /**
+     * Obtiene la memoria estimada que ocupa el mapa, calculada al cargarlo. El
+     * {@link MapaRepository} la suma al guardar el mapa y la resta al descartarlo, así que no
+     * debe cambiar entre una cosa y otra; para medir la memoria en un momento dado está
+     * {@link #getInformeMemoria()}.
+     *
+     * @return Número aproximado de bytes de capas y colisiones.
+     */
+    public long getBytesEstimados() {
+        return bytesEstimados;
+    }
+
+    /**
+     * Obtiene la rejilla de colisiones del mapa.
      *
-     * @return Una matriz booleana que indica las áreas de colisión del mapa.
+     * @return La rejilla que indica las baldosas con colisión.
      */
-    public boolean[][] getMatrizColisiones() {
-        return matrizColisiones;
+    public CollisionGrid getColisiones() {
+        return colisiones;
     }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package game.mapa;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repositorio de mapas compartidos. Entrega una única instancia de {@link Mapa} por ruta,
+ * de forma que volver a entrar en una casa o mazmorra no vuelve a cargar el mapa.
+ * <p>
+ * Los mapas usados recientemente se retienen con referencias fuertes mientras su tamaño
+ * estimado quepa en el presupuesto de memoria. Al superarlo, los menos usados (LRU) pasan
+ * a referencias blandas: siguen disponibles hasta que el recolector necesite la memoria.
+ * <p>
+ * El presupuesto por defecto se puede cambiar con la propiedad del sistema
+ * {@code skillseekers.mapas.presupuesto} (en bytes).
+ */
+public class MapaRepository {
+    private static final long PRESUPUESTO_POR_DEFECTO = 32L * 1024 * 1024;
+    private static final MapaRepository instancia =
+            new MapaRepository(Long.getLong("skillseekers.mapas.presupuesto", PRESUPUESTO_POR_DEFECTO));
+
+    private final long presupuestoBytes;
+    private final LinkedHashMap<String, Mapa> retenidos = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, SoftReference<Mapa>> desalojados = new HashMap<>();
+    private long bytesRetenidos;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong nanosCarga = new AtomicLong();
+
+    /**
+     * Crea un repositorio con un presupuesto de memoria propio.
+     *
+     * @param presupuestoBytes Bytes que pueden ocupar los mapas retenidos con referencias fuertes.
+     */
+    public MapaRepository(long presupuestoBytes) {
+        this.presupuestoBytes = presupuestoBytes;
+    }
+
+    /**
+     * Obtiene el repositorio compartido por todo el juego.
+     *
+     * @return La instancia global del repositorio.
+     */
+    public static MapaRepository getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Obtiene el mapa de una ruta, cargándolo solo si no está en el repositorio.
+     *
+     * @param ruta Ruta del archivo TMX del mapa.
+     * @return El mapa compartido de esa ruta.
+     */
+    public Mapa obtener(String ruta) {
+        synchronized (this) {
+            Mapa mapa = buscar(ruta);
+            if (mapa != null) {
+                aciertos.incrementAndGet();
+                return mapa;
+            }
+        }
+
+        // La carga se hace fuera del cerrojo para no bloquear otras consultas
+        fallos.incrementAndGet();
+        long inicio = System.nanoTime();
+        Mapa nuevo = new Mapa(ruta);
+        nanosCarga.addAndGet(System.nanoTime() - inicio);
+
+        synchronized (this) {
+            Mapa existente = buscar(ruta);
+            if (existente != null) {
+                return existente;
+            }
+            retener(ruta, nuevo);
+            return nuevo;
+        }
+    }
+
+    /**
+     * Comprueba si el mapa de una ruta está disponible sin cargarlo.
+     *
+     * @param ruta Ruta del archivo TMX del mapa.
+     * @return true si el mapa está en el repositorio.
+     */
+    public synchronized boolean contiene(String ruta) {
+        if (retenidos.containsKey(ruta)) {
+            return true;
+        }
+        SoftReference<Mapa> referencia = desalojados.get(ruta);
+        return referencia != null && referencia.get() != null;
+    }
+
+    /**
+     * Busca un mapa ya cargado. Si estaba desalojado y aún vive, vuelve a retenerlo.
+     */
+    private Mapa buscar(String ruta) {
+        Mapa mapa = retenidos.get(ruta);
+        if (mapa == null) {
+            SoftReference<Mapa> referencia = desalojados.remove(ruta);
+            if (referencia != null && (mapa = referencia.get()) != null) {
+                retener(ruta, mapa);
+            }
+        }
+        return mapa;
+    }
+
+    /**
+     * Retiene un mapa con referencia fuerte y desaloja los menos usados si se supera el presupuesto.
+     * El mapa recién retenido nunca se desaloja, aunque por sí solo supere el presupuesto.
+     */
+    private void retener(String ruta, Mapa mapa) {
+        retenidos.put(ruta, mapa);
+        bytesRetenidos += mapa.getBytesEstimados();
+        Iterator<Map.Entry<String, Mapa>> it = retenidos.entrySet().iterator();
+        while (bytesRetenidos > presupuestoBytes && retenidos.size() > 1) {
+            Map.Entry<String, Mapa> antiguo = it.next();
+            it.remove();
+            bytesRetenidos -= antiguo.getValue().getBytesEstimados();
+            desalojados.put(antiguo.getKey(), new SoftReference<>(antiguo.getValue()));
+        }
+    }
+
+    /**
+     * Vacía el repositorio. Los mapas en uso siguen siendo válidos para quien los tenga.
+     */
+    public synchronized void vaciar() {
+        retenidos.clear();
+        desalojados.clear();
+        bytesRetenidos = 0;
+    }
+
+    /**
+     * Obtiene el número de peticiones servidas sin cargar el mapa.
+     *
+     * @return Número de aciertos.
+     */
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene el número de peticiones que han tenido que cargar el mapa.
+     *
+     * @return Número de fallos.
+     */
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    /**
+     * Obtiene el tiempo total dedicado a cargar mapas.
+     *
+     * @return Tiempo de carga acumulado en nanosegundos.
+     */
+    public long getNanosCarga() {
+        return nanosCarga.get();
+    }
+
+    /**
+     * Obtiene la memoria estimada de los mapas retenidos con referencias fuertes.
+     *
+     * @return Número aproximado de bytes retenidos.
+     */
+    public synchronized long getBytesRetenidos() {
+        return bytesRetenidos;
+    }
+
+    /**
+     * Obtiene el presupuesto de memoria del repositorio.
+     *
+     * @return Presupuesto en bytes.
+     */
+    public long getPresupuestoBytes() {
+        return presupuestoBytes;
+    }
+}
@@ -0,0 +1,235 @@
+package game.mapa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servicio que carga en segundo plano el mapa al que probablemente va a entrar el jugador.
+ * <p>
+ * Cuando el jugador se acerca a una entrada se llama a {@link #solicitar(String)}, que carga
+ * el {@link Mapa} a través del {@link MapaRepository} y prepara su {@link DibujoMapa}
+ * (lectura de los patrones y atlas) en un hilo aparte. Al cruzar la entrada,
+ * {@link #tomar(String)} devuelve ese dibujo ya preparado; el {@link MapaVisual} que lo
+ * muestra se crea después en el hilo de eventos, porque es un componente de Swing.
+ * <p>
+ * Un mapa preparado tiene patrones reservados en la {@link TilesetCache} y su atlas, así que
+ * si el jugador se aleja de la entrada sin cruzarla hay que soltarlo con
+ * {@link #descartar(String)}. El hilo de precarga termina solo tras unos segundos sin trabajo.
+ */
+public class PrecargaMapas {
+    /**
+     * Preparación de un dibujo en el hilo de precarga. Si se cancela mientras está en curso,
+     * el dibujo que termine preparando nadie lo va a recoger, así que se suelta al acabar.
+     */
+    private static final class Preparacion extends FutureTask<DibujoMapa> {
+        private Preparacion(Callable<DibujoMapa> preparar) {
+            super(preparar);
+        }
+
+        @Override
+        protected void set(DibujoMapa dibujo) {
+            super.set(dibujo);
+            if (isCancelled()) {
+                dibujo.liberar();
+            }
+        }
+
+        /**
+         * Cancela la preparación sin esperarla. Si ya había terminado, suelta el dibujo.
+         */
+        private void descartar() {
+            if (!cancel(false) && !isCancelled()) {
+                try {
+                    get().liberar();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | CancellationException e) {
+                    // No llegó a prepararse: no hay nada que soltar
+                }
+            }
+        }
+    }
+
+    private final MapaRepository mapas;
+    private final ThreadPoolExecutor ejecutor;
+    // Protegido por this
+    private final Map<String, Preparacion> pendientes = new HashMap<>();
+    private boolean cerrado;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong transiciones = new AtomicLong();
+    private final AtomicLong nanosTransiciones = new AtomicLong();
+    private final AtomicLong nanosTransicionMax = new AtomicLong();
+
+    /**
+     * Crea el servicio de precarga.
+     *
+     * @param mapas Repositorio del que se obtienen los mapas.
+     */
+    public PrecargaMapas(MapaRepository mapas) {
+        this.mapas = mapas;
+        ejecutor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread hilo = new Thread(r, "SkillSeekers-Precarga");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+        ejecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Pide que se prepare en segundo plano el mapa de una ruta. Si ya está pedido, o si el
+     * servicio ya se ha cerrado, no hace nada.
+     *
+     * @param ruta Ruta del archivo TMX del mapa.
+     */
+    public synchronized void solicitar(String ruta) {
+        if (cerrado || pendientes.containsKey(ruta)) {
+            return;
+        }
+        Preparacion preparacion = new Preparacion(() -> new DibujoMapa(mapas.obtener(ruta)));
+        try {
+            ejecutor.execute(preparacion);
+            pendientes.put(ruta, preparacion);
+        } catch (RejectedExecutionException e) {
+            // El ejecutor solo rechaza tareas tras cerrarse
+        }
+    }
+
+    /**
+     * Descarta la precarga del mapa de una ruta, por ejemplo porque el jugador se ha alejado
+     * de la entrada. Si está en curso se cancela sin esperarla, y si ya terminó se sueltan
+     * los patrones y el atlas del dibujo preparado. Si no se pidió no hace nada.
+     *
+     * @param ruta Ruta del archivo TMX del mapa.
+     */
+    public void descartar(String ruta) {
+        Preparacion preparacion;
+        synchronized (this) {
+            preparacion = pendientes.remove(ruta);
+        }
+        if (preparacion != null) {
+            ejecutor.remove(preparacion);
+            preparacion.descartar();
+        }
+    }
+
+    /**
+     * Obtiene el dibujo del mapa de una ruta. Si la precarga ya terminó se devuelve al instante;
+     * si está en curso se espera a que acabe, y si no se pidió se prepara ahora.
+     *
+     * @param ruta Ruta del archivo TMX del mapa.
+     * @return El dibujo del mapa listo para mostrarse.
+     */
+    public DibujoMapa tomar(String ruta) {
+        Preparacion pendiente;
+        synchronized (this) {
+            pendiente = pendientes.remove(ruta);
+        }
+        if (pendiente != null && pendiente.isDone()) {
+            aciertos.incrementAndGet();
+        } else {
+            fallos.incrementAndGet();
+        }
+        if (pendiente != null) {
+            try {
+                return pendiente.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | CancellationException e) {
+                // Si la precarga falló se intenta de nuevo en este hilo
+            }
+        }
+        return new DibujoMapa(mapas.obtener(ruta));
+    }
+
+    /**
+     * Termina el hilo de precarga y descarta los mapas preparados que no se llegaron a usar,
+     * soltando sus patrones. No espera a nada: las precargas que aún no han empezado se quitan
+     * de la cola y la que esté en curso se cancela y suelta su dibujo al terminar. Después no
+     * se puede volver a solicitar nada; llamarlo más de una vez no tiene efecto.
+     */
+    public void cerrar() {
+        List<Preparacion> descartadas;
+        synchronized (this) {
+            cerrado = true;
+            descartadas = new ArrayList<>(pendientes.values());
+            pendientes.clear();
+        }
+        ejecutor.shutdown();
+        for (Preparacion preparacion : descartadas) {
+            ejecutor.remove(preparacion);
+            preparacion.descartar();
+        }
+    }
+
+    /**
+     * Registra la duración de un cambio de mapa.
+     *
+     * @param nanos Duración del cambio en nanosegundos.
+     */
+    public void registrarTransicion(long nanos) {
+        transiciones.incrementAndGet();
+        nanosTransiciones.addAndGet(nanos);
+        nanosTransicionMax.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Obtiene el número de cambios de mapa que encontraron el mapa ya preparado.
+     *
+     * @return Número de aciertos de la precarga.
+     */
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene el número de cambios de mapa que tuvieron que esperar o cargar el mapa.
+     *
+     * @return Número de fallos de la precarga.
+     */
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    /**
+     * Obtiene la proporción de cambios de mapa servidos por la precarga.
+     *
+     * @return Valor entre 0 y 1, o 0 si aún no ha habido cambios.
+     */
+    public double getRatioAciertos() {
+        long total = aciertos.get() + fallos.get();
+        return total == 0 ? 0 : (double) aciertos.get() / total;
+    }
+
+    /**
+     * Obtiene la duración media de los cambios de mapa.
+     *
+     * @return Duración media en nanosegundos, o 0 si aún no ha habido cambios.
+     */
+    public long getNanosTransicionMedia() {
+        long total = transiciones.get();
+        return total == 0 ? 0 : nanosTransiciones.get() / total;
+    }
+
+    /**
+     * Obtiene la duración del cambio de mapa más lento.
+     *
+     * @return Duración máxima en nanosegundos.
+     */
+    public long getNanosTransicionMax() {
+        return nanosTransicionMax.get();
+    }
+}
@@ -0,0 +1,235 @@
+package game.mapa;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de imágenes de patrones (tilesets) compartida por todo el juego. Cada PNG se
+ * decodifica una sola vez y lo usan todos los {@link MapaVisual} que lo necesiten.
+ * <p>
+ * Cada imagen lleva la cuenta de los paneles que la usan. Mientras haya alguno se retiene con
+ * una referencia fuerte; cuando el último la libera pasa a una referencia blanda, de modo que
+ * volver a entrar en una casa o mazmorra no la decodifica de nuevo salvo que el recolector
+ * haya necesitado la memoria.
+ */
+public class TilesetCache {
+    private static final TilesetCache instancia = new TilesetCache();
+
+    /**
+     * Imagen retenida y número de paneles que la usan.
+     */
+    private static final class Entrada {
+        private final BufferedImage imagen;
+        private int referencias;
+
+        private Entrada(BufferedImage imagen) {
+            this.imagen = imagen;
+        }
+    }
+
+    private final Map<File, Entrada> enUso = new HashMap<>();
+    private final Map<File, SoftReference<BufferedImage>> liberadas = new HashMap<>();
+    // Patrones que algún hilo está decodificando fuera del cerrojo
+    private final Map<File, CompletableFuture<BufferedImage>> decodificando = new HashMap<>();
+    private long bytesRetenidos;
+
+    private final AtomicLong decodificaciones = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+
+    /**
+     * Obtiene la caché compartida por todo el juego.
+     *
+     * @return La instancia global de la caché.
+     */
+    public static TilesetCache getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Obtiene la imagen de un patrón y suma una referencia. Cada llamada debe acompañarse
+     * de una llamada a {@link #liberar(File)} cuando deje de usarse.
+     * <p>
+     * El PNG se decodifica fuera del cerrojo, así que pedir un patrón no bloquea a quien pide
+     * o libera otros. Si varios hilos piden a la vez uno que no está en memoria, lo decodifica
+     * el primero y los demás esperan a su resultado.
+     *
+     * @param ruta Ruta del archivo de imagen del patrón.
+     * @return La imagen decodificada.
+     */
+    public BufferedImage adquirir(File ruta) {
+        CompletableFuture<BufferedImage> futuro;
+        boolean decodificador = false;
+        synchronized (this) {
+            BufferedImage imagen = retener(ruta);
+            if (imagen != null) {
+                aciertos.incrementAndGet();
+                return imagen;
+            }
+            futuro = decodificando.get(ruta);
+            if (futuro == null) {
+                futuro = new CompletableFuture<>();
+                decodificando.put(ruta, futuro);
+                decodificador = true;
+            }
+        }
+        if (!decodificador) {
+            aciertos.incrementAndGet();
+            return retener(ruta, esperar(futuro));
+        }
+        BufferedImage imagen;
+        try {
+            imagen = decodificar(ruta);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                decodificando.remove(ruta);
+            }
+            futuro.completeExceptionally(e);
+            throw e;
+        }
+        futuro.complete(imagen);
+        synchronized (this) {
+            // Se quita a la vez que entra en uso para que nadie vea el patrón sin ninguna de las dos
+            decodificando.remove(ruta);
+            return retener(ruta, imagen);
+        }
+    }
+
+    /**
+     * Suma una referencia a una imagen que ya está en uso o que sigue en una referencia blanda.
+     * Hay que llamarlo con el cerrojo tomado.
+     *
+     * @param ruta Ruta del archivo de imagen del patrón.
+     * @return La imagen, o null si hay que decodificarla.
+     */
+    private BufferedImage retener(File ruta) {
+        Entrada entrada = enUso.get(ruta);
+        if (entrada == null) {
+            SoftReference<BufferedImage> referencia = liberadas.get(ruta);
+            BufferedImage imagen = referencia != null ? referencia.get() : null;
+            if (imagen == null) {
+                return null;
+            }
+            entrada = ponerEnUso(ruta, imagen);
+        }
+        entrada.referencias++;
+        return entrada.imagen;
+    }
+
+    /**
+     * Suma una referencia a una imagen recién decodificada, poniéndola en uso si nadie lo ha
+     * hecho ya.
+     *
+     * @param ruta   Ruta del archivo de imagen del patrón.
+     * @param imagen Imagen decodificada.
+     * @return La imagen en uso.
+     */
+    private synchronized BufferedImage retener(File ruta, BufferedImage imagen) {
+        Entrada entrada = enUso.get(ruta);
+        if (entrada == null) {
+            entrada = ponerEnUso(ruta, imagen);
+        }
+        entrada.referencias++;
+        return entrada.imagen;
+    }
+
+    /**
+     * Retiene una imagen con una referencia fuerte, sin referencias todavía. Hay que llamarlo
+     * con el cerrojo tomado.
+     */
+    private Entrada ponerEnUso(File ruta, BufferedImage imagen) {
+        liberadas.remove(ruta);
+        Entrada entrada = new Entrada(imagen);
+        enUso.put(ruta, entrada);
+        bytesRetenidos += bytes(imagen);
+        return entrada;
+    }
+
+    /**
+     * Espera a que otro hilo termine de decodificar un patrón.
+     *
+     * @param futuro Resultado de la decodificación.
+     * @return La imagen decodificada.
+     */
+    private static BufferedImage esperar(CompletableFuture<BufferedImage> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Resta una referencia a la imagen de un patrón. Si nadie más la usa pasa a referencia blanda.
+     *
+     * @param ruta Ruta del archivo de imagen del patrón.
+     */
+    public synchronized void liberar(File ruta) {
+        Entrada entrada = enUso.get(ruta);
+        if (entrada != null && --entrada.referencias == 0) {
+            enUso.remove(ruta);
+            bytesRetenidos -= bytes(entrada.imagen);
+            liberadas.put(ruta, new SoftReference<>(entrada.imagen));
+        }
+    }
+
+    /**
+     * Decodifica el PNG de un patrón.
+     */
+    private BufferedImage decodificar(File ruta) {
+        try {
+            BufferedImage imagen = ImageIO.read(ruta);
+            if (imagen == null) {
+                throw new IOException("Formato de imagen no reconocido: " + ruta);
+            }
+            decodificaciones.incrementAndGet();
+            return imagen;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Calcula la memoria que ocupa una imagen: 4 bytes por píxel, que es lo habitual en los patrones.
+     */
+    private static long bytes(BufferedImage imagen) {
+        return 4L * imagen.getWidth() * imagen.getHeight();
+    }
+
+    /**
+     * Obtiene el número de PNG decodificados desde que empezó el juego.
+     *
+     * @return Número de decodificaciones.
+     */
+    public long getDecodificaciones() {
+        return decodificaciones.get();
+    }
+
+    /**
+     * Obtiene el número de peticiones servidas sin decodificar.
+     *
+     * @return Número de aciertos.
+     */
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene la memoria de las imágenes que algún panel está usando.
+     *
+     * @return Número aproximado de bytes retenidos con referencias fuertes.
+     */
+    public synchronized long getBytesRetenidos() {
+        return bytesRetenidos;
+    }
+}
@@ -0,0 +1,165 @@
+package game.mapa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Trozos decodificados que un {@link DibujoMapa} mantiene de las capas por trozos de un mapa
+ * infinito: solo los que rodean a su cámara (ver {@link #mantener(int, int, int)}). El mapa
+ * compartido por el {@link MapaRepository} solo guarda los trozos comprimidos; cada dibujo
+ * tiene su propia zona, así que dos dibujos del mismo mapa no se descartan los trozos el uno
+ * al otro.
+ * <p>
+ * El dibujo lee las capas de {@link #getCapas()}, que se comportan como las del mapa salvo
+ * que las baldosas de un trozo no residente se leen como vacías: quedan fuera de la pantalla.
+ * La zona se actualiza desde el hilo del juego y se lee desde el que dibuja, por eso cada
+ * trozo se instala y se descarta con operaciones atómicas.
+ */
+final class ZonaResidente {
+
+    /**
+     * Vista de una capa por trozos que solo ve los trozos residentes de la zona.
+     */
+    private static final class CapaResidente implements Capa {
+        private final CapaPorTrozos capa;
+        private final int tamañoTrozo, columnasTrozos;
+        private final AtomicReferenceArray<int[]> residentes;
+
+        private CapaResidente(CapaPorTrozos capa) {
+            this.capa = capa;
+            this.tamañoTrozo = capa.getTamañoTrozo();
+            this.columnasTrozos = capa.getColumnasTrozos();
+            this.residentes = new AtomicReferenceArray<>(columnasTrozos * capa.getFilasTrozos());
+        }
+
+        @Override
+        public int getAncho() {
+            return capa.getAncho();
+        }
+
+        @Override
+        public int getAlto() {
+            return capa.getAlto();
+        }
+
+        @Override
+        public int getBaldosa(int x, int y) {
+            int[] datos = residentes.get((y / tamañoTrozo) * columnasTrozos + x / tamañoTrozo);
+            return datos == null ? 0 : datos[(y % tamañoTrozo) * tamañoTrozo + x % tamañoTrozo];
+        }
+
+        /**
+         * Estima la memoria de los trozos decodificados de la vista.
+         *
+         * @return Número aproximado de bytes.
+         */
+        @Override
+        public long getBytes() {
+            long bytes = 0;
+            for (int i = 0; i < residentes.length(); i++) {
+                if (residentes.get(i) != null) {
+                    bytes += 4L * tamañoTrozo * tamañoTrozo;
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private final List<Capa> capas;
+    private final List<CapaResidente> residentes = new ArrayList<>();
+    // Trozo de la última llamada a mantener, con columna y fila en un solo long
+    private long ultimoTrozo = Long.MIN_VALUE;
+
+    /**
+     * Crea una zona vacía para las capas de un mapa.
+     *
+     * @param mapa Mapa cuyas capas por trozos se mantienen.
+     */
+    ZonaResidente(Mapa mapa) {
+        List<Capa> vistas = new ArrayList<>();
+        for (Capa capa : mapa.getConjuntoCapas()) {
+            if (capa instanceof CapaPorTrozos) {
+                CapaResidente vista = new CapaResidente((CapaPorTrozos) capa);
+                residentes.add(vista);
+                vistas.add(vista);
+            } else {
+                vistas.add(capa);
+            }
+        }
+        capas = Collections.unmodifiableList(vistas);
+    }
+
+    /**
+     * Obtiene las capas del mapa tal como las ve la zona.
+     *
+     * @return Las capas, en el orden del mapa.
+     */
+    List<Capa> getCapas() {
+        return capas;
+    }
+
+    /**
+     * Deja residentes solo los trozos a menos de {@code radio} baldosas de una posición.
+     * Si la posición sigue en el mismo trozo que la última vez no hace nada.
+     *
+     * @param baldosaX Columna de la posición (normalmente la de la cámara).
+     * @param baldosaY Fila de la posición.
+     * @param radio    Distancia en baldosas que debe quedar cubierta.
+     */
+    synchronized void mantener(int baldosaX, int baldosaY, int radio) {
+        if (residentes.isEmpty()) {
+            return;
+        }
+        int tamañoTrozo = residentes.get(0).tamañoTrozo;
+        int trozoX = Math.floorDiv(baldosaX, tamañoTrozo);
+        int trozoY = Math.floorDiv(baldosaY, tamañoTrozo);
+        long trozo = ((long) trozoX << 32) | (trozoY & 0xFFFFFFFFL);
+        if (ultimoTrozo == trozo) {
+            return;
+        }
+        ultimoTrozo = trozo;
+
+        int margen = (radio + tamañoTrozo - 1) / tamañoTrozo;
+        for (CapaResidente vista : residentes) {
+            int filas = vista.capa.getFilasTrozos();
+            for (int fila = 0; fila < filas; fila++) {
+                for (int columna = 0; columna < vista.columnasTrozos; columna++) {
+                    int i = fila * vista.columnasTrozos + columna;
+                    boolean cerca = Math.abs(columna - trozoX) <= margen && Math.abs(fila - trozoY) <= margen;
+                    if (!cerca) {
+                        vista.residentes.set(i, null);
+                    } else if (vista.residentes.get(i) == null) {
+                        vista.residentes.set(i, vista.capa.decodificarTrozo(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta todos los trozos decodificados.
+     */
+    synchronized void vaciar() {
+        ultimoTrozo = Long.MIN_VALUE;
+        for (CapaResidente vista : residentes) {
+            for (int i = 0; i < vista.residentes.length(); i++) {
+                vista.residentes.set(i, null);
+            }
+        }
+    }
+
+    /**
+     * Estima la memoria de los trozos decodificados de la zona.
+     *
+     * @return Número aproximado de bytes.
+     */
+    long getBytes() {
+        long bytes = 0;
+        for (CapaResidente vista : residentes) {
+            bytes += vista.getBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,138 @@
+package game.notificaciones;
+
+import game.casas.ubicaciones;
+import game.entidades.npc.NPC;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Comprobaciones de los puntos del mundo en los que el jugador puede interactuar: entradas y
+ * salidas de casas y mazmorras y NPCs cercanos.
+ * <p>
+ * Solo dependen del modelo de ubicaciones, del lugar y de las coordenadas del jugador, así que
+ * las comparten {@link c_notificacion} y la simulación sin pantalla.
+ */
+public final class Disparadores {
+    /** Coordenadas en las que aparece el jugador al entrar en una casa grande, junto a la puerta. */
+    public static final int PUERTA_GRANDE_X = 14;
+    public static final int PUERTA_GRANDE_Y = -288;
+    /** Coordenadas en las que aparece el jugador al entrar en una casa pequeña, junto a la puerta. */
+    public static final int PUERTA_PEQUEÑA_X = 18;
+    public static final int PUERTA_PEQUEÑA_Y = -230;
+
+    private static final double RADIO_PUERTA = 20.0;
+    private static final double RADIO_NPC = 40.0;
+
+    private Disparadores() {
+    }
+
+    /**
+     * Busca la casa en cuya entrada está el jugador.
+     *
+     * @param model Modelo de ubicaciones del nivel.
+     * @param x     Coordenada X del jugador.
+     * @param y     Coordenada Y del jugador.
+     * @return El índice de la casa en {@link ubicaciones#getCasasSeleccionadas()}, o -1 si no
+     * está en ninguna.
+     */
+    public static int casa(ubicaciones model, int x, int y) {
+        List<Map<String, Integer>> casas = model.getCasasSeleccionadas();
+        for (int i = 0; i < casas.size(); i++) {
+            if (cerca(x, y, casas.get(i), RADIO_PUERTA)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Verifica si el jugador está en la salida de la casa en la que se encuentra.
+     *
+     * @param lugar Lugar en el que está el jugador ("grande", "pequeño", "mapa"...).
+     * @param x     Coordenada X del jugador.
+     * @param y     Coordenada Y del jugador.
+     * @return true si está en una casa y junto a su puerta.
+     */
+    public static boolean salidaCasa(String lugar, int x, int y) {
+        if ("grande".equals(lugar)) {
+            return cerca(x, y, PUERTA_GRANDE_X, PUERTA_GRANDE_Y, RADIO_PUERTA);
+        } else if ("pequeño".equals(lugar)) {
+            return cerca(x, y, PUERTA_PEQUEÑA_X, PUERTA_PEQUEÑA_Y, RADIO_PUERTA);
+        }
+        return false;
+    }
+
+    /**
+     * Busca el primer NPC cercano al jugador.
+     *
+     * @param npcs  NPCs del lugar, o null si no hay.
+     * @param lugar Lugar en el que está el jugador.
+     * @param x     Coordenada X del jugador.
+     * @param y     Coordenada Y del jugador.
+     * @return El índice del NPC en la lista, o -1 si no hay ninguno cerca.
+     */
+    public static int npc(List<NPC> npcs, String lugar, int x, int y) {
+        if (npcs != null && !"npc".equals(lugar)) {
+            for (int i = 0; i < npcs.size(); i++) {
+                NPC npc = npcs.get(i);
+                if (cerca(x, y, npc.getCoordX(), npc.getCoordY(), RADIO_NPC)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Verifica si el jugador está en la entrada de la mazmorra del nivel.
+     *
+     * @param model Modelo de ubicaciones del nivel.
+     * @param x     Coordenada X del jugador.
+     * @param y     Coordenada Y del jugador.
+     * @return true si está junto a la entrada.
+     */
+    public static boolean entradaMazmorra(ubicaciones model, int x, int y) {
+        return cerca(x, y, model.getMazmorraEntradaSeleccionada(), RADIO_PUERTA);
+    }
+
+    /**
+     * Verifica si el jugador está en la puerta por la que se sale de la mazmorra al pueblo.
+     *
+     * @param model Modelo de ubicaciones del nivel.
+     * @param lugar Lugar en el que está el jugador.
+     * @param x     Coordenada X del jugador.
+     * @param y     Coordenada Y del jugador.
+     * @return true si está en la mazmorra y junto a esa puerta.
+     */
+    public static boolean salidaMazmorra(ubicaciones model, String lugar, int x, int y) {
+        return "mazmorra".equals(lugar) && cerca(x, y, model.getMazmorraPuerta(), RADIO_PUERTA);
+    }
+
+    /**
+     * Verifica si el jugador está en la salida final de la mazmorra, la que lleva al nivel
+     * siguiente.
+     *
+     * @param model      Modelo de ubicaciones del nivel.
+     * @param lugar      Lugar en el que está el jugador.
+     * @param habilitada Si la salida final ya está abierta.
+     * @param x          Coordenada X del jugador.
+     * @param y          Coordenada Y del jugador.
+     * @return true si está en la mazmorra, la salida está abierta y el jugador está junto a ella.
+     */
+    public static boolean salidaFinalMazmorra(ubicaciones model, String lugar, boolean habilitada, int x, int y) {
+        if ("mazmorra".equals(lugar) && habilitada) {
+            Map<String, Integer> salida = model.getMazmorraSalidaSeleccionada();
+            return salida != null && cerca(x, y, salida, RADIO_PUERTA);
+        }
+        return false;
+    }
+
+    private static boolean cerca(int x, int y, Map<String, Integer> punto, double radio) {
+        return cerca(x, y, punto.get("coordX"), punto.get("coordY"), radio);
+    }
+
+    private static boolean cerca(int x, int y, int puntoX, int puntoY, double radio) {
+        return Math.abs(x - puntoX) < radio && Math.abs(y - puntoY) < radio;
+    }
+}
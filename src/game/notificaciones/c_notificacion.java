@@ -5,8 +5,6 @@ import game.casas.ubicaciones;
 import game.entidades.npc.NPC;
 import idiomas.Idioma;
 
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +25,9 @@ public class c_notificacion {
     private NPC npcSeleccionado;
     private int numNPC;
     private boolean deshabilitarNPC;
+    private Juego juego;
+    private int radioPrecarga = 300;
+    private String ultimaPrecarga;
 
     /**
      * Constructor de la clase c_notificacion.
@@ -58,6 +59,7 @@ public class c_notificacion {
     public void setCoordinates(int x, int y) {
         this.currentX = x;
         this.currentY = y;
+        comprobarPrecarga();
         if (enCasa()) {
             view.mostrarNotificacionEntrarCasa(id);
         } else if (enSalidaCasa()) {
@@ -87,25 +89,56 @@ public class c_notificacion {
 
     }
 
+    /**
+     * Si el jugador está dentro del radio de precarga de la entrada de una casa o de la mazmorra,
+     * pide que el mapa de destino se prepare en segundo plano. Solo se pide una vez por entrada,
+     * y se descarta en cuanto el jugador sale del radio sin haber entrado.
+     */
+    private void comprobarPrecarga() {
+        if (juego == null) {
+            return;
+        }
+        if (!"mapa".equals(lugar)) {
+            // Al cruzar la entrada el mapa ya se ha tomado y descartarlo no hace nada
+            if (ultimaPrecarga != null) {
+                juego.descartarPrecarga(ultimaPrecarga);
+            }
+            ultimaPrecarga = null;
+            return;
+        }
+        String sitio = null;
+        List<Map<String, Integer>> casas = model.getCasasSeleccionadas();
+        for (int i = 0; i < casas.size() && sitio == null; i++) {
+            if (Math.abs(currentX - casas.get(i).get("coordX")) < radioPrecarga && Math.abs(currentY - casas.get(i).get("coordY")) < radioPrecarga) {
+                sitio = model.getTamañoCasasSeleccionadas(i);
+            }
+        }
+        Map<String, Integer> mazmorra = model.getMazmorraEntradaSeleccionada();
+        if (sitio == null && Math.abs(currentX - mazmorra.get("coordX")) < radioPrecarga && Math.abs(currentY - mazmorra.get("coordY")) < radioPrecarga) {
+            sitio = "mazmorra";
+        }
+        if (ultimaPrecarga != null && !ultimaPrecarga.equals(sitio)) {
+            juego.descartarPrecarga(ultimaPrecarga);
+        }
+        if (sitio != null && !sitio.equals(ultimaPrecarga)) {
+            juego.precargarMapa(sitio);
+        }
+        ultimaPrecarga = sitio;
+    }
+
     /**
      * Verifica si el jugador está dentro de una casa.
      *
      * @return true si el jugador está dentro de una casa, false en caso contrario.
      */
     private boolean enCasa() {
-        List<Map<String, Integer>> casas = model.getCasasSeleccionadas();
-        for (int i = 0; i < casas.size(); i++) {
-
-            int casaX = casas.get(i).get("coordX");
-            int casaY = casas.get(i).get("coordY");
-
-            if (Math.abs(currentX - casaX) < 20.0 && Math.abs(currentY - casaY) < 20.0) {
-                id = i + 1;
-                status = model.getTamañoCasasSeleccionadas(i);
-                return true;
-            }
+        int i = Disparadores.casa(model, currentX, currentY);
+        if (i < 0) {
+            return false;
         }
-        return false;
+        id = i + 1;
+        status = model.getTamañoCasasSeleccionadas(i);
+        return true;
     }
 
     /**
@@ -114,21 +147,7 @@ public class c_notificacion {
      * @return true si el jugador está en la salida de una casa, false en caso contrario.
      */
     private boolean enSalidaCasa() {
-        if (("grande".equals(lugar) || ("pequeño".equals(lugar)))) {
-            int casaX;
-            int casaY;
-
-            if ("grande".equals(lugar)) {
-                casaX = 14;
-                casaY = -288;
-            } else {
-                casaX = 18;
-                casaY = -230;
-            }
-
-            return Math.abs(currentX - casaX) < 20.0 && Math.abs(currentY - casaY) < 20.0;
-        }
-        return false;
+        return Disparadores.salidaCasa(lugar, currentX, currentY);
     }
 
     /**
@@ -137,21 +156,13 @@ public class c_notificacion {
      * @return true si el jugador está cerca de un NPC, false en caso contrario.
      */
     private boolean conNPC() {
-        List<NPC> npcs = model.getNpcs();
-        if (npcs != null && !"npc".equals(lugar)) {
-            for (int i = 0; i < npcs.size(); i++) {
-
-                int coordX = npcs.get(i).getCoordX();
-                int coordY = npcs.get(i).getCoordY();
-
-                if (Math.abs(currentX - coordX) < 40.0 && Math.abs(currentY - coordY) < 40.0) {
-                    npcSeleccionado = npcs.get(i);
-                    numNPC = i;
-                    return true;
-                }
-            }
+        int i = Disparadores.npc(model.getNpcs(), lugar, currentX, currentY);
+        if (i < 0) {
+            return false;
         }
-        return false;
+        npcSeleccionado = model.getNpcs().get(i);
+        numNPC = i;
+        return true;
     }
 
     /**
@@ -160,12 +171,8 @@ public class c_notificacion {
      * @return true si el jugador está cerca de la entrada de una mazmorra, false en caso contrario.
      */
     private boolean enMazmorra() {
-        Map<String, Integer> mazmorra = model.getMazmorraEntradaSeleccionada();
-
-        int mazmorraX = mazmorra.get("coordX");
-        int mazmorraY = mazmorra.get("coordY");
         status = "mazmorra";
-        return Math.abs(currentX - mazmorraX) < 20.0 && Math.abs(currentY - mazmorraY) < 20.0;
+        return Disparadores.entradaMazmorra(model, currentX, currentY);
     }
 
     /**
@@ -174,15 +181,10 @@ public class c_notificacion {
      * @return true si el jugador está en la salida de una mazmorra, false en caso contrario.
      */
     private boolean enSalidaMazmorra() {
-        if (("mazmorra".equals(lugar))) {
-            Map<String, Integer> mazmorra = model.getMazmorraPuerta();
-
-            int mazmorraX = mazmorra.get("coordX");
-            int mazmorraY = mazmorra.get("coordY");
+        if ("mazmorra".equals(lugar)) {
             status = "mazmorra";
-            return Math.abs(currentX - mazmorraX) < 20.0 && Math.abs(currentY - mazmorraY) < 20.0;
         }
-        return false;
+        return Disparadores.salidaMazmorra(model, lugar, currentX, currentY);
     }
 
     /**
@@ -191,66 +193,58 @@ public class c_notificacion {
      * @return true si el jugador está en la salida final de una mazmorra, false en caso contrario.
      */
     private boolean enSalidaFinalMazmorra() {
-        if (("mazmorra".equals(lugar))) {
-            if (habilitarPuertaFinal) {
-                Map<String, Integer> mazmorra = model.getMazmorraSalidaSeleccionada();
-                if (mazmorra != null) {
-                    int mazmorraX = mazmorra.get("coordX");
-                    int mazmorraY = mazmorra.get("coordY");
-                    return Math.abs(currentX - mazmorraX) < 20.0 && Math.abs(currentY - mazmorraY) < 20.0;
-                }
-            }
-        }
-        return false;
+        return Disparadores.salidaFinalMazmorra(model, lugar, habilitarPuertaFinal, currentX, currentY);
     }
 
     /**
-     * Configura un listener de teclas para las interacciones del jugador con el mundo.
+     * Establece el juego sobre el que actúan las interacciones del jugador.
      *
      * @param j El objeto Juego que maneja las interacciones del jugador.
      */
-    public void setupKeyListener(Juego j) {
-        j.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyPressed(KeyEvent e) {
-                if (e.getKeyCode() == KeyEvent.VK_E && !deshabilitarNPC) {
-                    if (enCasa()) {
-                        proximaSalidaX = currentX;
-                        proximaSalidaY = currentY;
-                        lugar = status;
-                        j.cambiarMapa(status, id);
-                    } else if (enSalidaCasa()) {
-                        status = "mapa";
-                        lugar = status;
-                        j.cambiarMapa(status, 0);
-                    } else if (conNPC()) {
-                        j.interaccionNPC(npcSeleccionado, numNPC, lugar);
-                    } else if (enMazmorra()) {
-                        proximaSalidaX = currentX;
-                        proximaSalidaY = currentY;
-                        j.setMapa_CoordX(model.getMazmorraPuerta().get("coordX"));
-                        j.setMapa_CoordY(model.getMazmorraPuerta().get("coordY"));
-                        lugar = status;
-                        j.cambiarMapa(status, -1);
-                    } else if (enSalidaMazmorra()) {
-                        status = "mapa";
-                        lugar = status;
-                        j.cambiarMapa(status, 0);
-                    } else if (enSalidaFinalMazmorra()) {
-                        status = "mapa";
-                        lugar = status;
-                        j.subirNivel();
-                        proximaSalidaX = model.getSpawnSeleccionado().get("coordX");
-                        proximaSalidaY = model.getSpawnSeleccionado().get("coordY");
-                        j.cambiarMapa(status, 0);
-                        j.guardarJuego();
-                        j.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("guardando")), 2);
-                    }
-
+    public void setJuego(Juego j) {
+        juego = j;
+    }
 
-                }
-            }
-        });
+    /**
+     * Atiende la tecla de interacción (E): entra o sale de casas y mazmorras, habla con el NPC
+     * cercano o pasa de nivel por la salida final. El juego lo llama desde su propio hilo.
+     */
+    public void interactuar() {
+        if (deshabilitarNPC) {
+            return;
+        }
+        if (enCasa()) {
+            proximaSalidaX = currentX;
+            proximaSalidaY = currentY;
+            lugar = status;
+            juego.cambiarMapa(status, id);
+        } else if (enSalidaCasa()) {
+            status = "mapa";
+            lugar = status;
+            juego.cambiarMapa(status, 0);
+        } else if (conNPC()) {
+            juego.interaccionNPC(npcSeleccionado, numNPC, lugar);
+        } else if (enMazmorra()) {
+            proximaSalidaX = currentX;
+            proximaSalidaY = currentY;
+            juego.setMapa_CoordX(model.getMazmorraPuerta().get("coordX"));
+            juego.setMapa_CoordY(model.getMazmorraPuerta().get("coordY"));
+            lugar = status;
+            juego.cambiarMapa(status, -1);
+        } else if (enSalidaMazmorra()) {
+            status = "mapa";
+            lugar = status;
+            juego.cambiarMapa(status, 0);
+        } else if (enSalidaFinalMazmorra()) {
+            status = "mapa";
+            lugar = status;
+            juego.subirNivel();
+            proximaSalidaX = model.getSpawnSeleccionado().get("coordX");
+            proximaSalidaY = model.getSpawnSeleccionado().get("coordY");
+            juego.cambiarMapa(status, 0);
+            juego.guardarJuego();
+            juego.getNotisPanel().mostrarNotiTemporal((Idioma.getRb().getString("guardando")), 2);
+        }
     }
 
     /**
@@ -280,6 +274,15 @@ public class c_notificacion {
         this.habilitarPuertaFinal = habilitarPuertaFinal;
     }
 
+    /**
+     * Establece la distancia a una entrada a partir de la cual se precarga el mapa de destino.
+     *
+     * @param radioPrecarga Distancia en píxeles del mapa.
+     */
+    public void setRadioPrecarga(int radioPrecarga) {
+        this.radioPrecarga = radioPrecarga;
+    }
+
     /**
      * Reinicia el modelo de ubicaciones con el nuevo objeto proporcionado.
      *
@@ -1,20 +1,98 @@
 package game.notificaciones;
 
+import game.Temporizador;
+import game.render.Fotograma;
+import game.render.Pintable;
+import game.rendimiento.Metricas;
 import idiomas.Idioma;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Clase que maneja la visualización de notificaciones en el panel del juego.
  * Esta clase extiende JPanel y muestra diferentes tipos de notificaciones,
  * como notificaciones temporales y mensajes relacionados con la interacción del jugador.
  */
-public class v_notificacion extends JPanel {
-    private boolean mostrarNotificacion = false;
-    private boolean notiTemporal = false;
-    private String accion = "";
-    private String aviso = "";
+public class v_notificacion extends JPanel implements Pintable {
+    /** Prioridad de las notificaciones temporales normales. */
+    public static final int PRIORIDAD_NORMAL = 0;
+    /** Prioridad de las notificaciones temporales importantes, que pasan delante en la cola. */
+    public static final int PRIORIDAD_ALTA = 10;
+
+    /**
+     * Notificación temporal a la espera de mostrarse.
+     */
+    private static final class Aviso implements Comparable<Aviso> {
+        private final String texto;
+        private final int segundos;
+        private final int prioridad;
+        private final long orden;
+
+        private Aviso(String texto, int segundos, int prioridad, long orden) {
+            this.texto = texto;
+            this.segundos = segundos;
+            this.prioridad = prioridad;
+            this.orden = orden;
+        }
+
+        @Override
+        public int compareTo(Aviso otro) {
+            // Primero la prioridad más alta; a igual prioridad, el que llegó antes
+            if (prioridad != otro.prioridad) {
+                return Integer.compare(otro.prioridad, prioridad);
+            }
+            return Long.compare(orden, otro.orden);
+        }
+    }
+
+    private volatile boolean mostrarNotificacion = false;
+    private volatile boolean notiTemporal = false;
+    private volatile String accion = "";
+    private volatile String aviso = "";
+    // Cola de notificaciones temporales; se muestran de una en una
+    private final PriorityQueue<Aviso> avisos = new PriorityQueue<>();
+    private long siguienteOrden;
+    private final String claveTemporizador = "notificacion@" + System.identityHashCode(this);
+    private Runnable alCambiar = () -> { };
+
+    /**
+     * Indica qué hacer cada vez que cambia lo que muestra el panel, además de repintarlo.
+     * Hace falta cuando el panel se dibuja como capa de otro componente.
+     *
+     * @param alCambiar Acción a ejecutar tras cada cambio.
+     */
+    public void setAlCambiar(Runnable alCambiar) {
+        this.alCambiar = alCambiar;
+    }
+
+    /**
+     * Repinta el panel y avisa de que ha cambiado.
+     */
+    private void cambiado() {
+        repaint();
+        alCambiar.run();
+    }
+
+    /**
+     * Cambia la notificación fija. El controlador la vuelve a fijar en cada tick según la
+     * posición del jugador, así que solo se repinta y se avisa si cambia lo que se ve; si no,
+     * el juego nunca quedaría en reposo.
+     *
+     * @param mostrar Si se muestra la notificación.
+     * @param texto   Acción que se ofrece al jugador.
+     */
+    private void mostrarAccion(boolean mostrar, String texto) {
+        String antes = getAccionVisible();
+        this.mostrarNotificacion = mostrar;
+        accion = texto;
+        if (!Objects.equals(antes, getAccionVisible())) {
+            cambiado();
+        }
+    }
 
     /**
      * Muestra una notificación cuando el jugador entra a una casa.
@@ -22,9 +100,7 @@ public class v_notificacion extends JPanel {
      * @param id El identificador de la casa que el jugador está entrando.
      */
     public void mostrarNotificacionEntrarCasa(int id) {
-        this.mostrarNotificacion = true;
-        accion = (Idioma.getRb().getString("entrarCabaña")) + " #" + id;
-        repaint();
+        mostrarAccion(true, (Idioma.getRb().getString("entrarCabaña")) + " #" + id);
     }
 
     /**
@@ -33,9 +109,7 @@ public class v_notificacion extends JPanel {
      * @param mostrar Si es true, muestra la notificación de salida; de lo contrario, la oculta.
      */
     public void mostrarNotificacionSalirCasa(boolean mostrar) {
-        this.mostrarNotificacion = mostrar;
-        accion = (Idioma.getRb().getString("salirCabaña"));
-        repaint();
+        mostrarAccion(mostrar, (Idioma.getRb().getString("salirCabaña")));
     }
 
     /**
@@ -44,9 +118,7 @@ public class v_notificacion extends JPanel {
      * @param mostrar Si es true, muestra la notificación de entrada a la mazmorras; de lo contrario, la oculta.
      */
     public void mostrarNotificacionEntrarMazmorra(boolean mostrar) {
-        this.mostrarNotificacion = mostrar;
-        accion = (Idioma.getRb().getString("entrarMazmorra"));
-        repaint();
+        mostrarAccion(mostrar, (Idioma.getRb().getString("entrarMazmorra")));
     }
 
     /**
@@ -55,9 +127,7 @@ public class v_notificacion extends JPanel {
      * @param mostrar Si es true, muestra la notificación de salida; de lo contrario, la oculta.
      */
     public void mostrarNotificacionSalirMazmorra(boolean mostrar) {
-        this.mostrarNotificacion = mostrar;
-        accion = (Idioma.getRb().getString("salirMazmorra"));
-        repaint();
+        mostrarAccion(mostrar, (Idioma.getRb().getString("salirMazmorra")));
     }
 
     /**
@@ -67,22 +137,22 @@ public class v_notificacion extends JPanel {
      * @param tipo El tipo de NPC (por ejemplo, aldeano, sabio, etc.) que determina el mensaje.
      */
     public void mostrarNotificacionConNPC(int id, String tipo) {
-        this.mostrarNotificacion = true;
+        String texto = accion;
         switch (tipo) {
             case "aldeano":
-                accion = (Idioma.getRb().getString("interactuarNPC")) + " #" + (id + 1);
+                texto = (Idioma.getRb().getString("interactuarNPC")) + " #" + (id + 1);
                 break;
             case "bug":
-                accion = (Idioma.getRb().getString("interactuarBug")) + " #" + (id + 1);
+                texto = (Idioma.getRb().getString("interactuarBug")) + " #" + (id + 1);
                 break;
             case "sabio":
-                accion = (Idioma.getRb().getString("interactuarSabio"));
+                texto = (Idioma.getRb().getString("interactuarSabio"));
                 break;
             case "bugger":
-                accion = (Idioma.getRb().getString("interactuarBugger"));
+                texto = (Idioma.getRb().getString("interactuarBugger"));
                 break;
         }
-        repaint();
+        mostrarAccion(true, texto);
     }
 
     /**
@@ -92,25 +162,82 @@ public class v_notificacion extends JPanel {
      * @param tiempo El tiempo (en segundos) que la notificación temporal permanecerá visible.
      */
     public void mostrarNotiTemporal(String texto, int tiempo) {
-        new Thread(() -> {
-            this.notiTemporal = true;
-            aviso = texto;
-            repaint();
-            try {
-                Thread.sleep((long) 1000 * tiempo);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        mostrarNotiTemporal(texto, tiempo, PRIORIDAD_NORMAL);
+    }
+
+    /**
+     * Pone en cola una notificación temporal. Las notificaciones se muestran de una en una, por
+     * orden de prioridad y, a igual prioridad, de llegada. Si el mismo texto ya se está mostrando
+     * o está en la cola, no se repite.
+     *
+     * @param texto     El texto que se mostrará en la notificación temporal.
+     * @param tiempo    El tiempo (en segundos) que la notificación temporal permanecerá visible.
+     * @param prioridad Prioridad de la notificación, por ejemplo {@link #PRIORIDAD_ALTA}.
+     */
+    public synchronized void mostrarNotiTemporal(String texto, int tiempo, int prioridad) {
+        if (notiTemporal && texto.equals(aviso)) {
+            return;
+        }
+        for (Aviso enCola : avisos) {
+            if (enCola.texto.equals(texto)) {
+                return;
             }
+        }
+        avisos.add(new Aviso(texto, tiempo, prioridad, siguienteOrden++));
+        if (!notiTemporal) {
+            mostrarSiguienteAviso();
+        }
+    }
+
+    /**
+     * Quita la notificación temporal actual y muestra la siguiente de la cola, si hay alguna.
+     */
+    private synchronized void mostrarSiguienteAviso() {
+        Aviso siguiente = avisos.poll();
+        if (siguiente == null) {
             notiTemporal = false;
-            repaint();
-        }).start();
+        } else {
+            aviso = siguiente.texto;
+            notiTemporal = true;
+            Temporizador.getInstancia().programar(claveTemporizador, siguiente.segundos, TimeUnit.SECONDS,
+                    this::mostrarSiguienteAviso);
+        }
+        cambiado();
+    }
+
+    /**
+     * Quita la notificación temporal actual y vacía la cola.
+     */
+    public synchronized void vaciarNotisTemporales() {
+        Temporizador.getInstancia().cancelar(claveTemporizador);
+        avisos.clear();
+        notiTemporal = false;
+        cambiado();
     }
 
     /**
      * Oculta la notificación actual.
      */
     public void noMostrarNotificacion() {
-        this.mostrarNotificacion = false;
+        mostrarAccion(false, accion);
+    }
+
+    /**
+     * Obtiene la acción que se ofrece al jugador en la notificación fija ("pulsa E ...").
+     *
+     * @return El texto de la acción, o null si no se está mostrando.
+     */
+    public String getAccionVisible() {
+        return mostrarNotificacion ? accion : null;
+    }
+
+    /**
+     * Obtiene la notificación temporal que se está mostrando.
+     *
+     * @return El texto de la notificación, o null si no hay ninguna.
+     */
+    public synchronized String getAvisoVisible() {
+        return notiTemporal ? aviso : null;
     }
 
     /**
@@ -121,20 +248,37 @@ public class v_notificacion extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        if (mostrarNotificacion || notiTemporal) {
-            Graphics2D g2d = (Graphics2D) g;
+        pintar((Graphics2D) g, Fotograma.de(this), getWidth(), getHeight());
+    }
+
+    /**
+     * Dibuja las notificaciones del frame sin fondo, para usarlas como capa del compositor del
+     * juego. La notificación temporal, si hay una, tapa a la fija.
+     *
+     * @param g2d       El objeto Graphics2D en el que dibujar.
+     * @param fotograma Frame con las notificaciones activas.
+     * @param ancho     Ancho de la zona de dibujo.
+     * @param alto      Alto de la zona de dibujo.
+     */
+    @Override
+    public void pintar(Graphics2D g2d, Fotograma fotograma, int ancho, int alto) {
+        long inicio = System.nanoTime();
+        String textoAccion = fotograma.getAccion();
+        String textoAviso = fotograma.getAviso();
+        boolean temporal = textoAviso != null;
+        if (textoAccion != null || temporal) {
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
             // Obtener las dimensiones del panel
-            int panelWidth = getWidth();
-            int panelHeight = getHeight();
+            int panelWidth = ancho;
+            int panelHeight = alto;
 
             // Dimensiones del cuadro de notificación
             int boxWidth = 300;
             int boxHeight = 50;
             int boxX = 0;
             int boxY = 0;
-            if (!notiTemporal) {
+            if (!temporal) {
                 // Calcular las coordenadas para que el cuadro esté centrado en la parte inferior
                 boxX = (panelWidth - boxWidth) / 2; // Centrado horizontal
                 boxY = panelHeight - boxHeight - 20; // Parte inferior con un margen de 20 píxeles
@@ -154,13 +298,13 @@ public class v_notificacion extends JPanel {
             String message = "";
             String highlight = "";
             String rest = "";
-            if (!notiTemporal) {
+            if (!temporal) {
                 // Definir el mensaje y la letra resaltada
                 message = (Idioma.getRb().getString("pulsa"));
                 highlight = " E ";
-                rest = accion;
+                rest = textoAccion;
             } else {
-                rest = aviso;
+                rest = textoAviso;
             }
 
             // Configurar la fuente
@@ -194,6 +338,7 @@ public class v_notificacion extends JPanel {
             g2d.setFont(new Font("Arial", Font.PLAIN, 16));
             g2d.drawString(rest, textX + messageWidth + highlightWidth, textY);
         }
+        Metricas.getInstancia().registrar(Metricas.PINTAR_NOTIFICACIONES, System.nanoTime() - inicio);
     }
 
 
@@ -0,0 +1,98 @@
+package game.render;
+
+import game.rendimiento.Metricas;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Componente que dibuja en una sola pasada todas las capas de la pantalla de juego: mapa,
+ * NPCs, personaje, notificaciones y panel de rendimiento, en ese orden.
+ * <p>
+ * Sustituye a los paneles transparentes de pantalla completa apilados en el
+ * {@link JLayeredPane} del juego, que obligaban a Swing a componer varias capas en cada
+ * repintado. Los elementos que necesitan interacción (diálogos, menú de pausa, diploma)
+ * siguen siendo componentes de Swing por encima del compositor.
+ * <p>
+ * Cada pasada toma un solo {@link Fotograma} de su fuente y se lo da a todas las capas. La capa
+ * del mapa es el mapa de ese frame, de modo que al cambiar de mapa nunca se dibuja el mapa
+ * nuevo con la cámara del anterior ni al revés.
+ */
+@SuppressWarnings("serial")
+public class Compositor extends JComponent {
+    public static final int CAPA_MAPA = 0;
+    public static final int CAPA_NPC = 1;
+    public static final int CAPA_PERSONAJE = 2;
+    public static final int CAPA_NOTIFICACIONES = 3;
+    public static final int CAPA_RENDIMIENTO = 4;
+
+    private final Pintable[] capas = new Pintable[5];
+    private final Fotograma.Fuente fuente;
+
+    /**
+     * Crea un compositor sin capas.
+     *
+     * @param fuente De dónde se toma el frame a dibujar en cada pasada.
+     */
+    public Compositor(Fotograma.Fuente fuente) {
+        this.fuente = fuente;
+        setOpaque(true);
+        setDoubleBuffered(true);
+        setBackground(Color.BLACK);
+    }
+
+    /**
+     * Establece lo que se dibuja en una capa. La del mapa no se puede establecer: se dibuja el
+     * mapa de cada frame.
+     *
+     * @param orden Capa a cambiar ({@link #CAPA_NPC}, {@link #CAPA_PERSONAJE},
+     *              {@link #CAPA_NOTIFICACIONES} o {@link #CAPA_RENDIMIENTO}).
+     * @param capa  Elemento a dibujar en esa capa, o null para dejarla vacía.
+     */
+    public void setCapa(int orden, Pintable capa) {
+        if (orden == CAPA_MAPA) {
+            throw new IllegalArgumentException("La capa del mapa es la del frame");
+        }
+        capas[orden] = capa;
+    }
+
+    /**
+     * Dibuja el compositor como componente de Swing.
+     *
+     * @param g El objeto Graphics utilizado para dibujar.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        pintarCapas(g, getWidth(), getHeight());
+    }
+
+    /**
+     * Dibuja todas las capas en orden. Cada capa recibe su propia copia de los gráficos, de modo
+     * que los cambios de color, fuente o trazo de una no afectan a las siguientes.
+     *
+     * @param g     El objeto Graphics utilizado para dibujar.
+     * @param ancho Ancho de la superficie.
+     * @param alto  Alto de la superficie.
+     */
+    public void pintarCapas(Graphics g, int ancho, int alto) {
+        long inicio = System.nanoTime();
+        Fotograma fotograma = fuente.getFotograma();
+        if (fotograma.getMapa() == null) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, ancho, alto);
+        }
+        for (int orden = 0; orden < capas.length; orden++) {
+            Pintable capa = orden == CAPA_MAPA ? fotograma.getMapa() : capas[orden];
+            // Si la vista es un componente se respeta su visibilidad, como cuando estaban apiladas
+            if (capa != null && !(capa instanceof Component && !((Component) capa).isVisible())) {
+                Graphics2D gCapa = (Graphics2D) g.create();
+                try {
+                    capa.pintar(gCapa, fotograma, ancho, alto);
+                } finally {
+                    gCapa.dispose();
+                }
+            }
+        }
+        Metricas.getInstancia().registrar(Metricas.FRAME, System.nanoTime() - inicio);
+    }
+}
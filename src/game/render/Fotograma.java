@@ -0,0 +1,144 @@
+package game.render;
+
+import java.awt.*;
+
+/**
+ * Estado inmutable de lo que se ve en un frame: mapa, cámara, imagen y posición del personaje,
+ * NPCs visibles y notificaciones activas.
+ * <p>
+ * El hilo del juego crea uno nuevo cuando cambia algo visible y lo publica en una única
+ * referencia volátil; las vistas dibujan solo a partir de él. Así todas las capas de un frame
+ * usan el mismo mapa y la misma cámara aunque el juego avance o cambie de mapa mientras se
+ * dibuja, y pintar no necesita bloquear nada.
+ */
+public final class Fotograma {
+    /** Frame sin mapa, personaje, NPCs ni notificaciones, con la cámara en el origen. */
+    public static final Fotograma VACIO = new Fotograma(null, 0, 0, null, 0, 0,
+            new Image[0], new int[0], new int[0], null, null);
+
+    /**
+     * Origen de los frames que dibujan las vistas.
+     */
+    public interface Fuente {
+        /**
+         * Obtiene el último frame publicado.
+         *
+         * @return El frame, nunca null.
+         */
+        Fotograma getFotograma();
+    }
+
+    private final Pintable mapa;
+    private final int camaraX;
+    private final int camaraY;
+    private final Image skinPersonaje;
+    private final int personajeX;
+    private final int personajeY;
+    private final Image[] skinsNPC;
+    private final int[] npcX;
+    private final int[] npcY;
+    private final String accion;
+    private final String aviso;
+
+    /**
+     * Crea un frame. Los arrays se copian, así que se pueden reutilizar después.
+     *
+     * @param mapa          Mapa que se dibuja debajo de todo, o null si no hay ninguno.
+     * @param camaraX       Coordenada X del mapa, ya interpolada.
+     * @param camaraY       Coordenada Y del mapa, ya interpolada.
+     * @param skinPersonaje Imagen del personaje, o null si no hay personaje.
+     * @param personajeX    Coordenada X del personaje en pantalla.
+     * @param personajeY    Coordenada Y del personaje en pantalla.
+     * @param skinsNPC      Imágenes de los NPCs visibles.
+     * @param npcX          Coordenadas X de los NPCs en el mundo, en el mismo orden.
+     * @param npcY          Coordenadas Y de los NPCs en el mundo, en el mismo orden.
+     * @param accion        Acción que se ofrece al jugador ("pulsa E ..."), o null si no hay ninguna.
+     * @param aviso         Notificación temporal a la vista, o null si no hay ninguna.
+     */
+    public Fotograma(Pintable mapa, int camaraX, int camaraY, Image skinPersonaje, int personajeX, int personajeY,
+                     Image[] skinsNPC, int[] npcX, int[] npcY, String accion, String aviso) {
+        if (skinsNPC.length != npcX.length || skinsNPC.length != npcY.length) {
+            throw new IllegalArgumentException("Las listas de NPCs no tienen la misma longitud");
+        }
+        this.mapa = mapa;
+        this.camaraX = camaraX;
+        this.camaraY = camaraY;
+        this.skinPersonaje = skinPersonaje;
+        this.personajeX = personajeX;
+        this.personajeY = personajeY;
+        this.skinsNPC = skinsNPC.clone();
+        this.npcX = npcX.clone();
+        this.npcY = npcY.clone();
+        this.accion = accion;
+        this.aviso = aviso;
+    }
+
+    /**
+     * Busca el frame que debe dibujar una vista usada como componente de Swing: el de la
+     * primera {@link Fuente} entre sus contenedores.
+     *
+     * @param vista La vista.
+     * @return El frame de la fuente, o {@link #VACIO} si la vista no está dentro de ninguna.
+     */
+    public static Fotograma de(Component vista) {
+        for (Container c = vista.getParent(); c != null; c = c.getParent()) {
+            if (c instanceof Fuente) {
+                return ((Fuente) c).getFotograma();
+            }
+        }
+        return VACIO;
+    }
+
+    public Pintable getMapa() {
+        return mapa;
+    }
+
+    public int getCamaraX() {
+        return camaraX;
+    }
+
+    public int getCamaraY() {
+        return camaraY;
+    }
+
+    public Image getSkinPersonaje() {
+        return skinPersonaje;
+    }
+
+    public int getPersonajeX() {
+        return personajeX;
+    }
+
+    public int getPersonajeY() {
+        return personajeY;
+    }
+
+    /**
+     * Obtiene el número de NPCs visibles.
+     *
+     * @return Número de NPCs.
+     */
+    public int getNumNPC() {
+        return skinsNPC.length;
+    }
+
+    public Image getSkinNPC(int i) {
+        return skinsNPC[i];
+    }
+
+    public int getNPCX(int i) {
+        return npcX[i];
+    }
+
+    public int getNPCY(int i) {
+        return npcY[i];
+    }
+
+    public String getAccion() {
+        return accion;
+    }
+
+    public String getAviso() {
+        return aviso;
+    }
+}
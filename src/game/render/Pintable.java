@@ -0,0 +1,22 @@
+package game.render;
+
+import java.awt.Graphics2D;
+
+/**
+ * Elemento que sabe dibujarse sobre una superficie del tamaño de la pantalla de juego.
+ * <p>
+ * Lo implementan las vistas del juego (mapa, NPCs, personaje, notificaciones) para que el
+ * {@link Compositor} pueda dibujarlas todas en una sola pasada, sin ser componentes apilados.
+ * Todo lo que cambia de un frame a otro se toma del {@link Fotograma}, no del juego.
+ */
+public interface Pintable {
+    /**
+     * Dibuja el elemento.
+     *
+     * @param g         Gráficos en los que dibujar; el origen es la esquina superior izquierda de la pantalla.
+     * @param fotograma Estado del frame que se dibuja.
+     * @param ancho     Ancho de la superficie en píxeles.
+     * @param alto      Alto de la superficie en píxeles.
+     */
+    void pintar(Graphics2D g, Fotograma fotograma, int ancho, int alto);
+}
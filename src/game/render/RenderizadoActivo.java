@@ -0,0 +1,155 @@
+package game.render;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Renderizado activo de la pantalla de juego: el hilo del juego dibuja las capas del
+ * {@link Compositor} directamente en un {@link BufferStrategy} y presenta cada frame él mismo,
+ * sin pasar por el {@code RepaintManager} de Swing, que agrupa y retrasa los repintados.
+ * <p>
+ * El lienzo es un componente pesado ({@link Canvas}), que siempre queda por encima de los
+ * componentes de Swing. Por eso se oculta mientras hay algo interactivo a la vista (diálogos,
+ * menú de pausa) y el juego vuelve entonces al repintado normal de Swing.
+ * <p>
+ * Si no hay pantalla, o la estrategia de búfer no está acelerada (pipelines por software),
+ * {@link #presentar()} devuelve false y el juego sigue con el repintado de Swing.
+ */
+public final class RenderizadoActivo {
+    private final Compositor compositor;
+    private final Canvas lienzo = new Canvas() {
+        // El sistema pide repintar el lienzo al mostrarlo o al destaparlo: se avisa al juego
+        @Override
+        public void paint(Graphics g) {
+            alExponer.run();
+        }
+
+        @Override
+        public void update(Graphics g) {
+            paint(g);
+        }
+    };
+    private volatile Runnable alExponer = () -> { };
+    private BufferStrategy estrategia;
+    private volatile boolean disponible;
+    private boolean mostrado = true;
+
+    /**
+     * Crea el renderizado activo de un compositor.
+     *
+     * @param compositor Compositor cuyas capas se dibujan.
+     */
+    public RenderizadoActivo(Compositor compositor) {
+        this.compositor = compositor;
+        this.disponible = !GraphicsEnvironment.isHeadless();
+        lienzo.setFocusable(false);
+    }
+
+    /**
+     * Indica qué hacer cuando el sistema pide repintar el lienzo (al mostrarse, al destaparse
+     * la ventana...). El lienzo no se pinta solo: la acción debe hacer que el juego presente
+     * un frame nuevo.
+     *
+     * @param accion Acción a ejecutar desde el hilo de eventos.
+     */
+    public void setAlExponer(Runnable accion) {
+        this.alExponer = accion;
+    }
+
+    /**
+     * Obtiene el lienzo en el que se dibuja, para añadirlo encima del compositor.
+     *
+     * @return El lienzo.
+     */
+    public Canvas getLienzo() {
+        return lienzo;
+    }
+
+    /**
+     * Indica si el renderizado activo puede usarse. Deja de estarlo para siempre si al crear
+     * la estrategia de búfer resulta que no está acelerada.
+     *
+     * @return true si los frames se presentan con el renderizado activo.
+     */
+    public boolean isDisponible() {
+        return disponible;
+    }
+
+    /**
+     * Muestra u oculta el lienzo. El cambio se hace en el hilo de eventos.
+     *
+     * @param mostrar true para dibujar con el renderizado activo, false para dejar ver los
+     *                componentes de Swing que hay debajo.
+     */
+    public void setMostrado(boolean mostrar) {
+        if (mostrar != mostrado) {
+            mostrado = mostrar;
+            SwingUtilities.invokeLater(() -> lienzo.setVisible(mostrar));
+        }
+    }
+
+    /**
+     * Dibuja y presenta un frame desde el hilo del juego.
+     *
+     * @return true si el frame se ha presentado; false si hay que usar el repintado de Swing.
+     */
+    public boolean presentar() {
+        if (!disponible || !mostrado || !lienzo.isDisplayable() || !lienzo.isShowing()) {
+            return false;
+        }
+        if (estrategia == null && !crearEstrategia()) {
+            return false;
+        }
+        int ancho = lienzo.getWidth();
+        int alto = lienzo.getHeight();
+        try {
+            do {
+                do {
+                    Graphics g = estrategia.getDrawGraphics();
+                    try {
+                        compositor.pintarCapas(g, ancho, alto);
+                    } finally {
+                        g.dispose();
+                    }
+                } while (estrategia.contentsRestored());
+                estrategia.show();
+            } while (estrategia.contentsLost());
+        } catch (IllegalStateException e) {
+            // El lienzo ha dejado de ser visualizable (cambio de pantalla, cierre de ventana)
+            estrategia = null;
+            return false;
+        }
+        Toolkit.getDefaultToolkit().sync();
+        return true;
+    }
+
+    /**
+     * Crea la estrategia de doble búfer y comprueba que esté acelerada.
+     */
+    private boolean crearEstrategia() {
+        try {
+            lienzo.createBufferStrategy(2);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            desactivar();
+            return false;
+        }
+        BufferStrategy creada = lienzo.getBufferStrategy();
+        BufferCapabilities capacidades = creada.getCapabilities();
+        if (!capacidades.isPageFlipping() && !capacidades.getBackBufferCapabilities().isAccelerated()) {
+            creada.dispose();
+            desactivar();
+            return false;
+        }
+        estrategia = creada;
+        return true;
+    }
+
+    /**
+     * Deja de usar el renderizado activo y quita el lienzo de la vista.
+     */
+    private void desactivar() {
+        disponible = false;
+        SwingUtilities.invokeLater(() -> lienzo.setVisible(false));
+    }
+}
@@ -0,0 +1,157 @@
+package game.rendimiento;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de duraciones en nanosegundos que se puede alimentar desde varios hilos sin
+ * bloqueos y sin crear objetos.
+ * <p>
+ * Las cubetas son log-lineales: cada potencia de dos se divide en {@value #SUBCUBETAS}
+ * cubetas iguales, de modo que el error relativo de los percentiles es como mucho de un
+ * 12,5 % en todo el rango de un {@code long}. Los percentiles se devuelven como el límite
+ * superior de su cubeta (nunca por encima del máximo registrado).
+ */
+public final class Histograma {
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int NUM_CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(NUM_CUBETAS);
+    private final AtomicLong cuenta = new AtomicLong();
+    private final AtomicLong suma = new AtomicLong();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra una duración. Los valores negativos se cuentan como 0.
+     *
+     * @param nanos Duración en nanosegundos.
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(valor));
+        cuenta.incrementAndGet();
+        suma.addAndGet(valor);
+        long anterior = maximo.get();
+        while (valor > anterior && !maximo.compareAndSet(anterior, valor)) {
+            anterior = maximo.get();
+        }
+    }
+
+    /**
+     * Calcula la cubeta de un valor: los valores pequeños tienen una cubeta cada uno y, a partir
+     * de ahí, cada potencia de dos se reparte en {@value #SUBCUBETAS} cubetas.
+     */
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int mantisa = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + mantisa;
+    }
+
+    /**
+     * Obtiene el mayor valor que cae en una cubeta.
+     */
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long mantisa = SUBCUBETAS + indice % SUBCUBETAS;
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+
+    /**
+     * Obtiene un percentil de las duraciones registradas.
+     *
+     * @param percentil Percentil entre 0 y 100.
+     * @return Duración en nanosegundos, o 0 si no hay registros.
+     */
+    public long getPercentil(double percentil) {
+        long total = cuenta.get();
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100));
+        long acumulado = 0;
+        for (int i = 0; i < NUM_CUBETAS; i++) {
+            acumulado += cubetas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Obtiene el número de duraciones registradas.
+     *
+     * @return Número de registros.
+     */
+    public long getCuenta() {
+        return cuenta.get();
+    }
+
+    /**
+     * Obtiene la duración media.
+     *
+     * @return Media en nanosegundos, o 0 si no hay registros.
+     */
+    public long getMedia() {
+        long total = cuenta.get();
+        return total == 0 ? 0 : suma.get() / total;
+    }
+
+    /**
+     * Obtiene la duración más larga registrada.
+     *
+     * @return Máximo en nanosegundos.
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Obtiene el número de cubetas del histograma.
+     *
+     * @return Número de cubetas.
+     */
+    public int getNumCubetas() {
+        return NUM_CUBETAS;
+    }
+
+    /**
+     * Obtiene los registros de una cubeta.
+     *
+     * @param indice Índice de la cubeta.
+     * @return Número de duraciones que cayeron en ella.
+     */
+    public long getCubeta(int indice) {
+        return cubetas.get(indice);
+    }
+
+    /**
+     * Obtiene el mayor valor que cae en una cubeta.
+     *
+     * @param indice Índice de la cubeta.
+     * @return Límite superior en nanosegundos.
+     */
+    public long getLimiteCubeta(int indice) {
+        return limiteSuperior(indice);
+    }
+
+    /**
+     * Pone a cero el histograma. Los registros que lleguen a la vez pueden perderse o contarse
+     * a medias.
+     */
+    public void reiniciar() {
+        for (int i = 0; i < NUM_CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        cuenta.set(0);
+        suma.set(0);
+        maximo.set(0);
+    }
+}
@@ -0,0 +1,142 @@
+package game.rendimiento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Histogramas de tiempo de cada fase de un frame, compartidos por todo el juego.
+ * <p>
+ * Cada fase (actualizar la lógica, pintar cada capa, esperar al siguiente tick o frame...)
+ * registra su duración con {@link #registrar(int, long)}, que no bloquea ni crea objetos, así
+ * que puede llamarse en cada frame desde el hilo del juego o el de eventos. Los datos se leen
+ * en el panel de rendimiento y se pueden exportar en JSON con {@link #exportarJSON(File, Map)}.
+ */
+public final class Metricas {
+    public static final int ACTUALIZAR = 0;
+    public static final int FRAME = 1;
+    public static final int PINTAR_MAPA = 2;
+    public static final int PINTAR_NPC = 3;
+    public static final int PINTAR_PERSONAJE = 4;
+    public static final int PINTAR_NOTIFICACIONES = 5;
+    public static final int PINTAR_DIALOGOS = 6;
+    public static final int ESPERA = 7;
+    /** Tiempo desde que una tecla entra en la cola de entrada hasta que la procesa un tick. */
+    public static final int LATENCIA_ENTRADA = 8;
+
+    private static final String[] NOMBRES = {
+            "actualizar", "frame", "pintarMapa", "pintarNPC", "pintarPersonaje",
+            "pintarNotificaciones", "pintarDialogos", "espera", "latenciaEntrada"
+    };
+    private static final Metricas instancia = new Metricas();
+
+    private final Histograma[] histogramas = new Histograma[NOMBRES.length];
+
+    private Metricas() {
+        for (int i = 0; i < histogramas.length; i++) {
+            histogramas[i] = new Histograma();
+        }
+    }
+
+    /**
+     * Obtiene las métricas compartidas por todo el juego.
+     *
+     * @return La instancia global de las métricas.
+     */
+    public static Metricas getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Registra la duración de una fase.
+     *
+     * @param fase  Fase medida, por ejemplo {@link #PINTAR_MAPA}.
+     * @param nanos Duración en nanosegundos.
+     */
+    public void registrar(int fase, long nanos) {
+        histogramas[fase].registrar(nanos);
+    }
+
+    /**
+     * Obtiene el histograma de una fase.
+     *
+     * @param fase Fase medida.
+     * @return Su histograma.
+     */
+    public Histograma getHistograma(int fase) {
+        return histogramas[fase];
+    }
+
+    /**
+     * Obtiene el nombre de una fase, el mismo que se usa en el JSON.
+     *
+     * @param fase Fase medida.
+     * @return Nombre de la fase.
+     */
+    public String getNombre(int fase) {
+        return NOMBRES[fase];
+    }
+
+    /**
+     * Obtiene el número de fases medidas.
+     *
+     * @return Número de fases.
+     */
+    public int getNumFases() {
+        return NOMBRES.length;
+    }
+
+    /**
+     * Pone a cero todos los histogramas.
+     */
+    public void reiniciar() {
+        for (Histograma histograma : histogramas) {
+            histograma.reiniciar();
+        }
+    }
+
+    /**
+     * Escribe los histogramas en un archivo JSON: por cada fase, la cuenta, la media, los
+     * percentiles 50, 90 y 99, el máximo y las cubetas no vacías (límite superior y cuenta),
+     * todo en nanosegundos.
+     *
+     * @param destino Archivo a escribir.
+     * @param extra   Datos adicionales que se añaden al principio del JSON (ritmos, memoria...),
+     *                o null.
+     * @throws IOException si no se puede escribir el archivo.
+     */
+    public void exportarJSON(File destino, Map<String, Object> extra) throws IOException {
+        Map<String, Object> raiz = new LinkedHashMap<>();
+        if (extra != null) {
+            raiz.putAll(extra);
+        }
+        Map<String, Object> fases = new LinkedHashMap<>();
+        for (int fase = 0; fase < histogramas.length; fase++) {
+            Histograma h = histogramas[fase];
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("cuenta", h.getCuenta());
+            datos.put("mediaNs", h.getMedia());
+            datos.put("p50Ns", h.getPercentil(50));
+            datos.put("p90Ns", h.getPercentil(90));
+            datos.put("p99Ns", h.getPercentil(99));
+            datos.put("maxNs", h.getMaximo());
+            List<long[]> cubetas = new ArrayList<>();
+            for (int i = 0; i < h.getNumCubetas(); i++) {
+                long enCubeta = h.getCubeta(i);
+                if (enCubeta != 0) {
+                    cubetas.add(new long[]{h.getLimiteCubeta(i), enCubeta});
+                }
+            }
+            datos.put("cubetas", cubetas);
+            fases.put(NOMBRES[fase], datos);
+        }
+        raiz.put("fases", fases);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(destino, raiz);
+    }
+}
@@ -0,0 +1,87 @@
+package game.rendimiento;
+
+import game.BucleJuego;
+import game.render.Fotograma;
+import game.render.Pintable;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Panel superpuesto con el rendimiento del juego: frames y ticks por segundo, percentiles del
+ * tiempo de cada fase del frame y memoria del montón. Se muestra y oculta con
+ * {@link #setVisible(boolean)}.
+ */
+@SuppressWarnings("serial")
+public class PanelRendimiento extends JPanel implements Pintable {
+    private static final Font FUENTE = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+    private static final Color FONDO = new Color(0, 0, 0, 170);
+
+    private final BucleJuego bucle;
+    private final Metricas metricas = Metricas.getInstancia();
+
+    /**
+     * Crea el panel, inicialmente oculto.
+     *
+     * @param bucle Bucle del juego del que se leen los ritmos.
+     */
+    public PanelRendimiento(BucleJuego bucle) {
+        this.bucle = bucle;
+        setOpaque(false);
+        setVisible(false);
+    }
+
+    /**
+     * Dibuja el panel como componente de Swing.
+     *
+     * @param g El objeto Graphics usado para dibujar en el panel.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        pintar((Graphics2D) g, Fotograma.de(this), getWidth(), getHeight());
+    }
+
+    /**
+     * Dibuja el cuadro con las métricas en la esquina superior izquierda.
+     *
+     * @param g         El objeto Graphics2D en el que dibujar.
+     * @param fotograma No se usa: las métricas se leen al dibujar.
+     * @param ancho     Ancho de la zona de dibujo.
+     * @param alto      Alto de la zona de dibujo.
+     */
+    @Override
+    public void pintar(Graphics2D g, Fotograma fotograma, int ancho, int alto) {
+        Runtime runtime = Runtime.getRuntime();
+        long usadaMB = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        long maximaMB = runtime.maxMemory() / (1024 * 1024);
+
+        int lineas = metricas.getNumFases() + 4;
+        g.setFont(FUENTE);
+        FontMetrics fm = g.getFontMetrics();
+        int altoLinea = fm.getHeight();
+        g.setColor(FONDO);
+        g.fillRoundRect(10, 10, 430, altoLinea * lineas + 16, 10, 10);
+
+        int x = 20;
+        int y = 18 + fm.getAscent();
+        g.setColor(Color.WHITE);
+        g.drawString(String.format("FPS %6.1f / %d   ticks %6.1f / %d", bucle.getFramesMedidos(),
+                bucle.getFramesPorSegundo(), bucle.getTicksMedidos(), bucle.getTicksPorSegundo()), x, y);
+        y += altoLinea;
+        g.drawString(String.format("descartados %d   omitidos %d", bucle.getTicksDescartados(),
+                bucle.getFramesOmitidos()), x, y);
+        y += altoLinea;
+        g.drawString(String.format("memoria %d / %d MB", usadaMB, maximaMB), x, y);
+        y += altoLinea;
+        g.setColor(Color.LIGHT_GRAY);
+        g.drawString(String.format("%-21s %7s %7s %7s", "fase (ms)", "p50", "p99", "max"), x, y);
+        g.setColor(Color.WHITE);
+        for (int fase = 0; fase < metricas.getNumFases(); fase++) {
+            Histograma h = metricas.getHistograma(fase);
+            y += altoLinea;
+            g.drawString(String.format("%-21s %7.2f %7.2f %7.2f", metricas.getNombre(fase),
+                    h.getPercentil(50) / 1e6, h.getPercentil(99) / 1e6, h.getMaximo() / 1e6), x, y);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package game.simulacion;
+
+/**
+ * Teclas pulsadas durante un tick de la simulación sin pantalla.
+ * <p>
+ * Las teclas de movimiento actúan mientras están pulsadas; las de acción (interactuar,
+ * continuar, confirmar y salir) actúan solo en el tick en que pasan a estar pulsadas, como un
+ * {@code keyPressed} de Swing. Es inmutable, así que un guion puede reutilizar la misma entrada
+ * en muchos ticks.
+ */
+public final class Entrada {
+    public static final int AVANZAR = 1;
+    public static final int ATRAS = 1 << 1;
+    public static final int IZQUIERDA = 1 << 2;
+    public static final int DERECHA = 1 << 3;
+    /** Tecla E: entrar o salir de un lugar y hablar con un NPC. */
+    public static final int INTERACTUAR = 1 << 4;
+    /** Tecla espacio: siguiente diálogo de un NPC bueno. */
+    public static final int CONTINUAR = 1 << 5;
+    /** Tecla intro: responder a la pregunta de un NPC malo con la opción elegida. */
+    public static final int CONFIRMAR = 1 << 6;
+    /** Tecla escape: terminar la conversación con un NPC. */
+    public static final int SALIR = 1 << 7;
+
+    /** Entrada sin ninguna tecla pulsada. */
+    public static final Entrada NINGUNA = new Entrada(0);
+
+    private final int teclas;
+    private final int respuesta;
+
+    /**
+     * Crea una entrada sin respuesta elegida.
+     *
+     * @param teclas Teclas pulsadas, combinadas con {@code |}, por ejemplo {@code AVANZAR | INTERACTUAR}.
+     */
+    public Entrada(int teclas) {
+        this(teclas, -1);
+    }
+
+    /**
+     * Crea una entrada con una respuesta elegida para {@link #CONFIRMAR}.
+     *
+     * @param teclas    Teclas pulsadas, combinadas con {@code |}.
+     * @param respuesta Índice de la opción elegida en la pregunta actual, sin barajar, o -1 si no
+     *                  hay ninguna elegida.
+     */
+    public Entrada(int teclas, int respuesta) {
+        this.teclas = teclas;
+        this.respuesta = respuesta;
+    }
+
+    /**
+     * Obtiene las teclas pulsadas.
+     *
+     * @return Las teclas combinadas como bits.
+     */
+    public int getTeclas() {
+        return teclas;
+    }
+
+    /**
+     * Indica si una tecla está pulsada.
+     *
+     * @param tecla Tecla, por ejemplo {@link #AVANZAR}.
+     * @return true si está pulsada.
+     */
+    public boolean isPulsada(int tecla) {
+        return (teclas & tecla) != 0;
+    }
+
+    /**
+     * Obtiene la opción elegida para responder.
+     *
+     * @return El índice de la opción, o -1 si no hay ninguna elegida.
+     */
+    public int getRespuesta() {
+        return respuesta;
+    }
+}
@@ -0,0 +1,200 @@
+package game.simulacion;
+
+import java.awt.event.KeyEvent;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Grabación de las teclas de una partida, leída de un archivo escrito por {@link GrabadorEntrada}.
+ * <p>
+ * Formato binario (enteros como varint sin signo, coordenadas en zigzag):
+ * <ul>
+ *     <li>Cabecera: la marca {@value #MARCA} ("SKGR") en un int, la versión en un byte, los
+ *     ticks por segundo, el nivel, las coordenadas X e Y iniciales y el lenguaje en UTF.</li>
+ *     <li>Eventos hasta el final del archivo: ticks desde el evento anterior, el código de la
+ *     tecla desplazado un bit con el bit bajo a 1 si se suelta y, solo al pulsar intro, la
+ *     opción elegida más uno (0 si no había ninguna).</li>
+ * </ul>
+ * Un evento con tick {@code t} ocurrió después de {@code t} ticks, así que se aplica justo
+ * antes del tick {@code t + 1}.
+ */
+public class Grabacion {
+    /** Marca con la que empiezan los archivos de grabación. */
+    public static final int MARCA = 0x534B4752;
+    /** Versión del formato. */
+    public static final int VERSION = 1;
+    /** Código de la tecla intro, la única que lleva la opción elegida. */
+    static final int TECLA_INTRO = KeyEvent.VK_ENTER;
+
+    /**
+     * Una tecla pulsada o soltada en un tick.
+     */
+    public static final class Evento {
+        private final long tick;
+        private final int tecla;
+        private final boolean pulsada;
+        private final int respuesta;
+
+        /**
+         * Crea un evento.
+         *
+         * @param tick      Ticks completados cuando ocurrió.
+         * @param tecla     Código de la tecla, el de {@link java.awt.event.KeyEvent}.
+         * @param pulsada   true si se pulsó, false si se soltó.
+         * @param respuesta Opción elegida al pulsar intro, o -1.
+         */
+        public Evento(long tick, int tecla, boolean pulsada, int respuesta) {
+            this.tick = tick;
+            this.tecla = tecla;
+            this.pulsada = pulsada;
+            this.respuesta = respuesta;
+        }
+
+        public long getTick() {
+            return tick;
+        }
+
+        public int getTecla() {
+            return tecla;
+        }
+
+        public boolean isPulsada() {
+            return pulsada;
+        }
+
+        public int getRespuesta() {
+            return respuesta;
+        }
+    }
+
+    private final int ticksPorSegundo;
+    private final int nivel;
+    private final int coordX;
+    private final int coordY;
+    private final String lenguaje;
+    private final List<Evento> eventos;
+
+    private Grabacion(int ticksPorSegundo, int nivel, int coordX, int coordY, String lenguaje, List<Evento> eventos) {
+        this.ticksPorSegundo = ticksPorSegundo;
+        this.nivel = nivel;
+        this.coordX = coordX;
+        this.coordY = coordY;
+        this.lenguaje = lenguaje;
+        this.eventos = Collections.unmodifiableList(eventos);
+    }
+
+    /**
+     * Lee una grabación de un archivo.
+     *
+     * @param archivo Archivo escrito por {@link GrabadorEntrada}.
+     * @return La grabación.
+     * @throws IOException si no se puede leer o no es una grabación válida.
+     */
+    public static Grabacion leer(File archivo) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(archivo)))) {
+            if (in.readInt() != MARCA) {
+                throw new IOException("No es una grabación de entrada: " + archivo);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Versión de grabación no soportada: " + version);
+            }
+            int ticksPorSegundo = (int) leerVarint(in);
+            int nivel = (int) leerVarint(in);
+            int coordX = deZigzag(leerVarint(in));
+            int coordY = deZigzag(leerVarint(in));
+            String lenguaje = in.readUTF();
+            List<Evento> eventos = new ArrayList<>();
+            long tick = 0;
+            while (true) {
+                int primero = in.read();
+                if (primero < 0) {
+                    break;
+                }
+                tick += leerVarint(in, primero);
+                long codigo = leerVarint(in);
+                int tecla = (int) (codigo >>> 1);
+                boolean pulsada = (codigo & 1) == 0;
+                int respuesta = -1;
+                if (pulsada && tecla == TECLA_INTRO) {
+                    respuesta = (int) leerVarint(in) - 1;
+                }
+                eventos.add(new Evento(tick, tecla, pulsada, respuesta));
+            }
+            return new Grabacion(ticksPorSegundo, nivel, coordX, coordY, lenguaje, eventos);
+        }
+    }
+
+    private static long leerVarint(InputStream in) throws IOException {
+        int primero = in.read();
+        if (primero < 0) {
+            throw new EOFException("Grabación cortada");
+        }
+        return leerVarint(in, primero);
+    }
+
+    private static long leerVarint(InputStream in, int primero) throws IOException {
+        long valor = primero & 0x7F;
+        int desplazamiento = 7;
+        int b = primero;
+        while ((b & 0x80) != 0) {
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Grabación cortada");
+            }
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        }
+        return valor;
+    }
+
+    private static int deZigzag(long valor) {
+        return (int) (valor >>> 1) ^ -(int) (valor & 1);
+    }
+
+    public int getTicksPorSegundo() {
+        return ticksPorSegundo;
+    }
+
+    public int getNivel() {
+        return nivel;
+    }
+
+    public int getCoordX() {
+        return coordX;
+    }
+
+    public int getCoordY() {
+        return coordY;
+    }
+
+    public String getLenguaje() {
+        return lenguaje;
+    }
+
+    /**
+     * Obtiene los eventos en el orden en que ocurrieron.
+     *
+     * @return Lista de solo lectura de los eventos.
+     */
+    public List<Evento> getEventos() {
+        return eventos;
+    }
+
+    /**
+     * Obtiene el tick del último evento.
+     *
+     * @return Ticks completados al ocurrir el último evento, o 0 si no hay eventos.
+     */
+    public long getUltimoTick() {
+        return eventos.isEmpty() ? 0 : eventos.get(eventos.size() - 1).getTick();
+    }
+}
@@ -0,0 +1,107 @@
+package game.simulacion;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escribe en un archivo las teclas de una partida con el tick en que ocurren, en el formato
+ * descrito en {@link Grabacion}. Cada evento ocupa entre dos y cuatro bytes.
+ * <p>
+ * Los métodos están sincronizados: las teclas se graban en el hilo del juego y el cierre puede
+ * hacerse desde otro hilo.
+ */
+public class GrabadorEntrada implements Closeable {
+    private final DataOutputStream out;
+    private long ultimoTick;
+    private long eventos;
+    private boolean cerrado;
+
+    /**
+     * Crea el archivo y escribe la cabecera con el estado inicial de la partida.
+     *
+     * @param archivo         Archivo a escribir; se sobrescribe si existe.
+     * @param ticksPorSegundo Ticks por segundo del juego.
+     * @param nivel           Nivel de la partida.
+     * @param coordX          Coordenada X inicial del jugador.
+     * @param coordY          Coordenada Y inicial del jugador.
+     * @param lenguaje        Lenguaje de programación de la partida.
+     * @throws IOException si no se puede crear el archivo.
+     */
+    public GrabadorEntrada(File archivo, int ticksPorSegundo, int nivel, int coordX, int coordY, String lenguaje) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(archivo)));
+        out.writeInt(Grabacion.MARCA);
+        out.writeByte(Grabacion.VERSION);
+        escribirVarint(out, ticksPorSegundo);
+        escribirVarint(out, nivel);
+        escribirVarint(out, aZigzag(coordX));
+        escribirVarint(out, aZigzag(coordY));
+        out.writeUTF(lenguaje);
+    }
+
+    /**
+     * Registra una tecla pulsada o soltada.
+     *
+     * @param tick      Ticks completados hasta ahora.
+     * @param tecla     Código de la tecla, el de {@link java.awt.event.KeyEvent}.
+     * @param pulsada   true si se ha pulsado, false si se ha soltado.
+     * @param respuesta Al pulsar intro, la opción elegida en la pregunta actual, o -1 si no hay
+     *                  ninguna; se ignora con las demás teclas.
+     * @throws IOException si no se puede escribir.
+     */
+    public synchronized void registrar(long tick, int tecla, boolean pulsada, int respuesta) throws IOException {
+        if (cerrado) {
+            return;
+        }
+        // El tick no retrocede aunque el evento llegue justo cuando otro hilo lo está avanzando
+        long delta = Math.max(0, tick - ultimoTick);
+        ultimoTick += delta;
+        escribirVarint(out, delta);
+        escribirVarint(out, ((long) tecla << 1) | (pulsada ? 0 : 1));
+        if (pulsada && tecla == Grabacion.TECLA_INTRO) {
+            escribirVarint(out, respuesta + 1L);
+        }
+        // Se vacía en cada evento para no perder la grabación si el juego se cierra de golpe;
+        // las teclas llegan a ritmo humano, así que el coste es despreciable
+        out.flush();
+        eventos++;
+    }
+
+    /**
+     * Obtiene el número de eventos registrados.
+     *
+     * @return Número de eventos.
+     */
+    public synchronized long getEventos() {
+        return eventos;
+    }
+
+    /**
+     * Vacía y cierra el archivo. Los eventos que lleguen después se ignoran.
+     *
+     * @throws IOException si no se puede escribir.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!cerrado) {
+            cerrado = true;
+            out.close();
+        }
+    }
+
+    private static void escribirVarint(OutputStream out, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            out.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        out.write((int) valor);
+    }
+
+    private static long aZigzag(int valor) {
+        return ((long) ((valor << 1) ^ (valor >> 31))) & 0xFFFFFFFFL;
+    }
+}
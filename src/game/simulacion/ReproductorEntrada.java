@@ -0,0 +1,131 @@
+package game.simulacion;
+
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reproduce una {@link Grabacion} en la simulación sin pantalla, tan rápido como se pueda, para
+ * usar una partida grabada como prueba de rendimiento repetible.
+ * <p>
+ * Uso: {@code java game.simulacion.ReproductorEntrada <grabacion> [repeticiones]}. Cada
+ * repetición crea una simulación nueva con el estado inicial de la grabación y muestra los
+ * ticks por segundo y la huella final, que debe ser la misma en todas.
+ */
+public class ReproductorEntrada {
+    // Teclas de acción: actúan al pulsarse, aunque se suelten antes del tick siguiente
+    private static final int TECLAS_ACCION = Entrada.INTERACTUAR | Entrada.CONTINUAR | Entrada.CONFIRMAR | Entrada.SALIR;
+
+    private ReproductorEntrada() {
+    }
+
+    /**
+     * Traduce una tecla a su bit de {@link Entrada}, con las mismas teclas que el juego.
+     *
+     * @param tecla Código de la tecla, el de {@link KeyEvent}.
+     * @return El bit de la tecla, o 0 si el juego no la usa.
+     */
+    public static int bit(int tecla) {
+        switch (tecla) {
+            case KeyEvent.VK_W:
+            case KeyEvent.VK_UP:
+                return Entrada.AVANZAR;
+            case KeyEvent.VK_S:
+            case KeyEvent.VK_DOWN:
+                return Entrada.ATRAS;
+            case KeyEvent.VK_A:
+            case KeyEvent.VK_LEFT:
+                return Entrada.IZQUIERDA;
+            case KeyEvent.VK_D:
+            case KeyEvent.VK_RIGHT:
+                return Entrada.DERECHA;
+            case KeyEvent.VK_E:
+                return Entrada.INTERACTUAR;
+            case KeyEvent.VK_SPACE:
+                return Entrada.CONTINUAR;
+            case KeyEvent.VK_ENTER:
+                return Entrada.CONFIRMAR;
+            case KeyEvent.VK_ESCAPE:
+                return Entrada.SALIR;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Crea una simulación con el estado inicial de una grabación.
+     *
+     * @param grabacion La grabación.
+     * @return La simulación, lista para {@link #reproducir(Grabacion, SimulacionMundo)}.
+     */
+    public static SimulacionMundo crearSimulacion(Grabacion grabacion) {
+        SimulacionMundo simulacion = new SimulacionMundo(grabacion.getNivel(), grabacion.getLenguaje(),
+                grabacion.getTicksPorSegundo());
+        simulacion.setCoordenadas(grabacion.getCoordX(), grabacion.getCoordY());
+        return simulacion;
+    }
+
+    /**
+     * Reproduce todos los eventos de una grabación en una simulación, hasta el tick del último.
+     *
+     * @param grabacion  La grabación.
+     * @param simulacion Simulación en el estado inicial de la grabación.
+     * @return Número de ticks simulados.
+     */
+    public static long reproducir(Grabacion grabacion, SimulacionMundo simulacion) {
+        List<Grabacion.Evento> eventos = grabacion.getEventos();
+        long fin = grabacion.getUltimoTick() + 1;
+        int siguiente = 0;
+        int teclas = 0;
+        int respuesta = -1;
+        Entrada entrada = Entrada.NINGUNA;
+        for (long tick = 0; tick < fin; tick++) {
+            int pulsadas = 0;
+            while (siguiente < eventos.size() && eventos.get(siguiente).getTick() <= tick) {
+                Grabacion.Evento evento = eventos.get(siguiente++);
+                int bit = bit(evento.getTecla());
+                if (evento.isPulsada()) {
+                    teclas |= bit;
+                    pulsadas |= bit;
+                    if (bit == Entrada.CONFIRMAR) {
+                        respuesta = evento.getRespuesta();
+                    }
+                } else {
+                    teclas &= ~bit;
+                }
+            }
+            int teclasTick = teclas | (pulsadas & TECLAS_ACCION);
+            if (teclasTick != entrada.getTeclas() || respuesta != entrada.getRespuesta()) {
+                entrada = new Entrada(teclasTick, respuesta);
+            }
+            simulacion.tick(entrada);
+        }
+        return fin;
+    }
+
+    /**
+     * Reproduce una grabación varias veces y muestra el ritmo y la huella de cada repetición.
+     *
+     * @param args Ruta de la grabación y, opcionalmente, el número de repeticiones (3 por defecto).
+     * @throws IOException si no se puede leer la grabación.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: ReproductorEntrada <grabacion> [repeticiones]");
+            System.exit(2);
+        }
+        Grabacion grabacion = Grabacion.leer(new File(args[0]));
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        System.out.printf("%d eventos, %d ticks a %d ticks/s%n", grabacion.getEventos().size(),
+                grabacion.getUltimoTick() + 1, grabacion.getTicksPorSegundo());
+        for (int i = 0; i < repeticiones; i++) {
+            SimulacionMundo simulacion = crearSimulacion(grabacion);
+            long inicio = System.nanoTime();
+            long ticks = reproducir(grabacion, simulacion);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("repetición %d: %.3f s, %.0f ticks/s, huella %016x, lugar %s, nivel %d%n", i + 1,
+                    segundos, ticks / segundos, simulacion.getHuella(), simulacion.getLugar(), simulacion.getNivel());
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package game.simulacion;
+
+import game.casas.ubicaciones;
+import game.entidades.npc.CreadorNPC;
+import game.entidades.npc.NPC;
+import game.entidades.npc.NPCMalo;
+import game.entidades.pj.Movimiento;
+import game.mapa.Mapa;
+import game.mapa.MapaRepository;
+import game.notificaciones.Disparadores;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulación del mundo del juego sin pantalla: movimiento y colisiones del personaje, entradas
+ * y salidas de casas y mazmorras, aparición de NPCs, conversaciones y preguntas de los NPC
+ * malos y subida de nivel.
+ * <p>
+ * Reproduce las mismas reglas que {@link game.Juego} con las mismas piezas ({@link Movimiento},
+ * {@link Disparadores}, {@link CreadorNPC}, {@link NPCMalo}), pero sin Swing ni imágenes y sin
+ * reloj: cada llamada a {@link #tick(Entrada)} avanza un tick con las teclas indicadas, tan
+ * rápido como se pida. Con el mismo guion de entradas el resultado es siempre el mismo, así que
+ * sirve para pruebas de regresión y de carga de la lógica del juego.
+ * <p>
+ * Los avisos que el juego mostraría como notificaciones temporales se guardan como eventos con
+ * la clave de su texto ("derrotado", "nivel", "incorrecto"...). No es segura para varios hilos.
+ */
+public class SimulacionMundo {
+    /** Ruta del mapa del pueblo. */
+    public static final String MAPA_PUEBLO = "/mapas/sk2.tmx";
+
+    private final MapaRepository mapas;
+    private final CreadorNPC creador = new CreadorNPC();
+    private final String lenguaje;
+    private final ubicaciones modelo;
+    private final Mapa mapaPueblo;
+    private final Movimiento movimiento;
+    private final List<String> eventos = new ArrayList<>();
+
+    private String lugar = "mapa";
+    private int nivel;
+    private List<NPC> npcs;
+    private boolean[] npclist;
+    private boolean puertaFinal;
+    private boolean terminado;
+    private int proximaSalidaX;
+    private int proximaSalidaY;
+    private NPC interlocutor;
+    private int numInterlocutor;
+    private String aviso;
+    private int teclasAnteriores;
+    private long ticks;
+
+    /**
+     * Crea la simulación en el pueblo de un nivel, con el jugador en su punto de inicio.
+     *
+     * @param nivel           Nivel de la partida, de 1 a 5.
+     * @param lenguaje        Lenguaje de programación de las preguntas, por ejemplo "java".
+     * @param ticksPorSegundo Ticks por segundo que se simulan; solo afecta al paso de cada tick.
+     */
+    public SimulacionMundo(int nivel, String lenguaje, int ticksPorSegundo) {
+        this(nivel, lenguaje, ticksPorSegundo, MapaRepository.getInstancia());
+    }
+
+    /**
+     * Crea la simulación como {@link #SimulacionMundo(int, String, int)}, leyendo los mapas de un
+     * repositorio concreto.
+     *
+     * @param nivel           Nivel de la partida, de 1 a 5.
+     * @param lenguaje        Lenguaje de programación de las preguntas, por ejemplo "java".
+     * @param ticksPorSegundo Ticks por segundo que se simulan.
+     * @param mapas           Repositorio del que se leen los mapas.
+     */
+    public SimulacionMundo(int nivel, String lenguaje, int ticksPorSegundo, MapaRepository mapas) {
+        this.nivel = nivel;
+        this.lenguaje = lenguaje.toLowerCase();
+        this.mapas = mapas;
+        this.modelo = new ubicaciones(nivel);
+        this.mapaPueblo = mapas.obtener(MAPA_PUEBLO);
+        this.movimiento = new Movimiento(mapaPueblo, ticksPorSegundo);
+        Map<String, Integer> spawn = modelo.getSpawnSeleccionado();
+        movimiento.setCoordenadas(spawn.get("coordX"), spawn.get("coordY"));
+        mostrarNPC(0);
+    }
+
+    /**
+     * Obtiene la ruta del mapa al que lleva un lugar.
+     *
+     * @param sitio El nombre del lugar ("pequeño", "grande" o "mazmorra").
+     * @param nivel Nivel de la partida; a partir del 6 (juego terminado) se usa la última mazmorra.
+     * @return La ruta del archivo TMX, o null si el lugar no tiene un mapa propio.
+     */
+    public static String rutaMapa(String sitio, int nivel) {
+        switch (sitio) {
+            case "pequeño":
+                return "/mapas/casa2.tmx";
+            case "grande":
+                return "/mapas/casa1.tmx";
+            case "mazmorra":
+                return "/mapas/mazmorra" + Math.min(nivel, 5) + ".tmx";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Avanza un tick: mueve al jugador, comprueba qué aviso mostraría el juego en su posición y
+     * atiende las teclas de acción recién pulsadas.
+     *
+     * @param entrada Teclas pulsadas en este tick.
+     */
+    public void tick(Entrada entrada) {
+        ticks++;
+        if (terminado) {
+            return;
+        }
+        movimiento.mover(Movimiento.direccion(entrada.isPulsada(Entrada.AVANZAR), entrada.isPulsada(Entrada.ATRAS),
+                entrada.isPulsada(Entrada.IZQUIERDA), entrada.isPulsada(Entrada.DERECHA)));
+        aviso = calcularAviso();
+
+        int pulsadas = entrada.getTeclas() & ~teclasAnteriores;
+        teclasAnteriores = entrada.getTeclas();
+        if (interlocutor != null) {
+            atenderDialogo(pulsadas, entrada.getRespuesta());
+        } else if ((pulsadas & Entrada.INTERACTUAR) != 0) {
+            interactuar();
+        }
+    }
+
+    /**
+     * Avanza varios ticks con la misma entrada.
+     *
+     * @param entrada Teclas pulsadas durante todos los ticks.
+     * @param n       Número de ticks.
+     */
+    public void avanzar(Entrada entrada, int n) {
+        for (int i = 0; i < n; i++) {
+            tick(entrada);
+        }
+    }
+
+    /**
+     * Calcula el aviso que mostraría el juego en la posición actual, en el mismo orden que
+     * {@link game.notificaciones.c_notificacion#setCoordinates(int, int)}.
+     */
+    private String calcularAviso() {
+        int x = movimiento.getCoordX();
+        int y = movimiento.getCoordY();
+        if (Disparadores.casa(modelo, x, y) >= 0) {
+            return "entrarCasa";
+        } else if (Disparadores.salidaCasa(lugar, x, y)) {
+            return "salirCasa";
+        } else if (Disparadores.entradaMazmorra(modelo, x, y)) {
+            return "entrarMazmorra";
+        } else if (Disparadores.salidaMazmorra(modelo, lugar, x, y)
+                || Disparadores.salidaFinalMazmorra(modelo, lugar, puertaFinal, x, y)) {
+            return "salirMazmorra";
+        } else if (Disparadores.npc(npcs, lugar, x, y) >= 0) {
+            return "npc";
+        }
+        return null;
+    }
+
+    /**
+     * Atiende la tecla E, en el mismo orden que el controlador de notificaciones del juego.
+     */
+    private void interactuar() {
+        int x = movimiento.getCoordX();
+        int y = movimiento.getCoordY();
+        int casa = Disparadores.casa(modelo, x, y);
+        int npc;
+        if (casa >= 0) {
+            proximaSalidaX = x;
+            proximaSalidaY = y;
+            lugar = modelo.getTamañoCasasSeleccionadas(casa);
+            entrar(lugar, casa + 1);
+        } else if (Disparadores.salidaCasa(lugar, x, y)) {
+            volverAlPueblo();
+        } else if ((npc = Disparadores.npc(npcs, lugar, x, y)) >= 0) {
+            interaccionNPC(npc);
+        } else if (Disparadores.entradaMazmorra(modelo, x, y)) {
+            proximaSalidaX = x;
+            proximaSalidaY = y;
+            Map<String, Integer> puerta = modelo.getMazmorraPuerta();
+            movimiento.setCoordenadas(puerta.get("coordX"), puerta.get("coordY"));
+            lugar = "mazmorra";
+            entrar(lugar, -1);
+        } else if (Disparadores.salidaMazmorra(modelo, lugar, x, y)) {
+            volverAlPueblo();
+        } else if (Disparadores.salidaFinalMazmorra(modelo, lugar, puertaFinal, x, y)) {
+            nivel++;
+            modelo.seleccion(nivel);
+            npclist = null;
+            proximaSalidaX = modelo.getSpawnSeleccionado().get("coordX");
+            proximaSalidaY = modelo.getSpawnSeleccionado().get("coordY");
+            volverAlPueblo();
+            eventos.add("guardando");
+        }
+    }
+
+    /**
+     * Entra en una casa o en la mazmorra, con sus NPCs.
+     */
+    private void entrar(String sitio, int id) {
+        if ("pequeño".equals(sitio)) {
+            movimiento.setCoordenadas(Disparadores.PUERTA_PEQUEÑA_X, Disparadores.PUERTA_PEQUEÑA_Y);
+        } else if ("grande".equals(sitio)) {
+            movimiento.setCoordenadas(Disparadores.PUERTA_GRANDE_X, Disparadores.PUERTA_GRANDE_Y);
+        }
+        movimiento.setMapa(mapas.obtener(rutaMapa(sitio, nivel)));
+        mostrarNPC(id);
+        if ("mazmorra".equals(sitio) && (npclist == null || !algunoDerrotado())) {
+            npclist = new boolean[npcs.size()];
+        }
+    }
+
+    /**
+     * Vuelve al pueblo por la última entrada usada.
+     */
+    private void volverAlPueblo() {
+        lugar = "mapa";
+        movimiento.setCoordenadas(proximaSalidaX, proximaSalidaY);
+        movimiento.setMapa(mapaPueblo);
+        // Como en el juego, en los niveles sin NPCs en el pueblo se conservan los del último lugar
+        if (nivel == 1 || nivel == 5) {
+            mostrarNPC(0);
+        }
+    }
+
+    private void mostrarNPC(int id) {
+        npcs = creador.spawnearNPCs(nivel, id, lenguaje, false);
+        modelo.setNpcs(npcs);
+    }
+
+    /**
+     * Empieza la conversación con un NPC, salvo si es un NPC de la mazmorra ya derrotado.
+     */
+    private void interaccionNPC(int num) {
+        if (!"mazmorra".equals(lugar) || !derrotado(num)) {
+            interlocutor = npcs.get(num);
+            numInterlocutor = num;
+            mostrarDialogo();
+        } else {
+            eventos.add("yaDerrotado");
+        }
+    }
+
+    /**
+     * Atiende las teclas durante una conversación: escape la termina, espacio avanza el diálogo
+     * de un NPC bueno e intro responde a la pregunta de un NPC malo.
+     */
+    private void atenderDialogo(int pulsadas, int respuesta) {
+        if ((pulsadas & Entrada.SALIR) != 0) {
+            finalizarInteraccion();
+        } else if (interlocutor instanceof NPCMalo) {
+            if ((pulsadas & Entrada.CONFIRMAR) != 0) {
+                responder((NPCMalo) interlocutor, respuesta);
+            }
+        } else if ((pulsadas & Entrada.CONTINUAR) != 0) {
+            mostrarDialogo();
+        }
+    }
+
+    /**
+     * Responde a la pregunta actual con una de sus opciones, en el orden en que vienen en los
+     * datos (el juego las baraja al mostrarlas).
+     */
+    private void responder(NPCMalo malo, int opcion) {
+        List<String> opciones = malo.getOpciones();
+        if (opcion < 0 || opcion >= opciones.size()) {
+            eventos.add("incompleto");
+        } else if (malo.validarRespuesta(opciones.get(opcion))) {
+            malo.siguienteDialogo();
+            mostrarDialogo();
+        } else {
+            eventos.add("incorrecto");
+            finalizarInteraccion();
+        }
+    }
+
+    /**
+     * Muestra el diálogo actual del interlocutor, o termina la conversación si ya no quedan.
+     * Un NPC malo sin preguntas pendientes queda derrotado; si lo están todos, se abre la salida
+     * final de la mazmorra o, en el último nivel, termina el juego.
+     */
+    private void mostrarDialogo() {
+        NPC npc = interlocutor;
+        if (npc instanceof NPCMalo) {
+            if (derrotado(numInterlocutor) || npc.getIndice() < npc.getNumDialogos()) {
+                return;
+            }
+            if (npclist != null) {
+                npclist[numInterlocutor] = true;
+            }
+            finalizarInteraccion();
+            eventos.add("derrotado");
+            if (npclist != null && ((NPCMalo) npc).mazmorraTerminada(npclist)) {
+                eventos.add("nivel");
+                if (nivel < 5) {
+                    puertaFinal = true;
+                } else {
+                    nivel++;
+                    terminado = true;
+                }
+            }
+        } else if (npc.getIndice() < npc.getNumDialogos()) {
+            npc.siguienteDialogo();
+        } else {
+            finalizarInteraccion();
+        }
+    }
+
+    private void finalizarInteraccion() {
+        interlocutor.reiniciarDialogo();
+        interlocutor = null;
+    }
+
+    private boolean derrotado(int num) {
+        return npclist != null && npclist[num];
+    }
+
+    private boolean algunoDerrotado() {
+        for (boolean b : npclist) {
+            if (b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcula una huella del estado de la simulación (posición, lugar, nivel, NPCs derrotados,
+     * conversación en curso...). Dos ejecuciones con el mismo guion deben dar la misma huella.
+     *
+     * @return La huella del estado actual.
+     */
+    public long getHuella() {
+        long h = nivel;
+        h = h * 31 + lugar.hashCode();
+        h = h * 31 + movimiento.getCoordX();
+        h = h * 31 + movimiento.getCoordY();
+        h = h * 31 + (puertaFinal ? 1 : 0);
+        h = h * 31 + (terminado ? 1 : 0);
+        if (npclist != null) {
+            for (boolean b : npclist) {
+                h = h * 31 + (b ? 1 : 0);
+            }
+        }
+        if (interlocutor != null) {
+            h = h * 31 + numInterlocutor;
+            h = h * 31 + interlocutor.getIndice();
+        }
+        return h;
+    }
+
+    /**
+     * Coloca al jugador en unas coordenadas del mapa actual, por ejemplo las de una partida
+     * guardada.
+     *
+     * @param coordX Coordenada X.
+     * @param coordY Coordenada Y.
+     */
+    public void setCoordenadas(int coordX, int coordY) {
+        movimiento.setCoordenadas(coordX, coordY);
+    }
+
+    public int getCoordX() {
+        return movimiento.getCoordX();
+    }
+
+    public int getCoordY() {
+        return movimiento.getCoordY();
+    }
+
+    public String getLugar() {
+        return lugar;
+    }
+
+    public int getNivel() {
+        return nivel;
+    }
+
+    public List<NPC> getNpcs() {
+        return npcs;
+    }
+
+    /**
+     * Obtiene el NPC con el que se está hablando.
+     *
+     * @return El NPC, o null si no hay ninguna conversación en curso.
+     */
+    public NPC getInterlocutor() {
+        return interlocutor;
+    }
+
+    /**
+     * Obtiene el aviso que mostraría el juego en la posición actual: "entrarCasa", "salirCasa",
+     * "entrarMazmorra", "salirMazmorra" o "npc".
+     *
+     * @return El aviso, o null si no hay ninguno.
+     */
+    public String getAviso() {
+        return aviso;
+    }
+
+    public boolean isPuertaFinal() {
+        return puertaFinal;
+    }
+
+    /**
+     * Indica si se ha derrotado al último NPC del último nivel.
+     *
+     * @return true si el juego ha terminado.
+     */
+    public boolean isTerminado() {
+        return terminado;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Obtiene los eventos ocurridos desde el inicio, en orden, con la clave del texto de la
+     * notificación que mostraría el juego.
+     *
+     * @return Vista de solo lectura de los eventos.
+     */
+    public List<String> getEventos() {
+        return Collections.unmodifiableList(eventos);
+    }
+}
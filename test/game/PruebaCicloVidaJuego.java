@@ -0,0 +1,115 @@
+package game;
+
+import basedatos.Partidas;
+import idiomas.Idioma;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba del ciclo de vida de {@link Juego}: arranca y detiene varias partidas seguidas y
+ * comprueba que no sobrevive ningún hilo del juego ({@code SkillSeekers-*}): ni el del
+ * {@link BucleJuego}, ni el de precarga de mapas, ni el del {@link Temporizador}.
+ * <p>
+ * El proyecto no tiene librerías de pruebas, así que se comprueba sola y se ejecuta como
+ * programa, sin pantalla. Termina con código 0 si todo va bien y 1 si falla alguna
+ * comprobación. Desde la raíz del proyecto:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:resources:libs/*" game.PruebaCicloVidaJuego
+ * </pre>
+ */
+public final class PruebaCicloVidaJuego {
+    private static final String PREFIJO_HILOS = "SkillSeekers-";
+    private static final int PARTIDAS = 3;
+    // El temporizador es compartido y su hilo solo termina tras unos segundos sin trabajo
+    private static final long ESPERA_TEMPORIZADOR_MS = 10_000;
+
+    private static int fallos;
+
+    private PruebaCicloVidaJuego() {
+    }
+
+    /**
+     * Obtiene los hilos vivos del juego cuyo nombre empieza por un prefijo.
+     *
+     * @param prefijo Prefijo del nombre, por ejemplo {@code "SkillSeekers-"}.
+     * @return Nombres de los hilos.
+     */
+    private static List<String> hilosVivos(String prefijo) {
+        List<String> nombres = new ArrayList<>();
+        for (Thread hilo : Thread.getAllStackTraces().keySet()) {
+            if (hilo.isAlive() && hilo.getName().startsWith(prefijo)) {
+                nombres.add(hilo.getName());
+            }
+        }
+        return nombres;
+    }
+
+    /**
+     * Espera a que terminen los hilos con un prefijo.
+     *
+     * @param prefijo      Prefijo del nombre de los hilos.
+     * @param milisegundos Tiempo máximo de espera.
+     * @return Los hilos que siguen vivos al acabar la espera.
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    private static List<String> esperarHilos(String prefijo, long milisegundos) throws InterruptedException {
+        long limite = System.currentTimeMillis() + milisegundos;
+        List<String> vivos = hilosVivos(prefijo);
+        while (!vivos.isEmpty() && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+            vivos = hilosVivos(prefijo);
+        }
+        return vivos;
+    }
+
+    /**
+     * Registra el resultado de una comprobación.
+     *
+     * @param correcto Si se cumple la comprobación.
+     * @param mensaje  Qué se comprueba.
+     */
+    private static void comprobar(boolean correcto, String mensaje) {
+        System.out.println((correcto ? "OK    " : "FALLO ") + mensaje);
+        if (!correcto) {
+            fallos++;
+        }
+    }
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws InterruptedException si se interrumpe alguna espera.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        Idioma.setI("Español");
+        for (int i = 1; i <= PARTIDAS; i++) {
+            Partidas partida = new Partidas();
+            partida.setNivel(1);
+            partida.setLenguaje("java");
+            partida.setUser("prueba");
+            Juego juego = new Juego(partida);
+            // Deja trabajo a medias en el hilo de precarga para que también tenga que cerrarse
+            juego.getPrecarga().solicitar("/mapas/casa1.tmx");
+            Thread.sleep(300);
+            comprobar(hilosVivos(PREFIJO_HILOS + "Juego").size() == 1,
+                    "partida " + i + ": el bucle está en marcha");
+
+            juego.detener();
+            comprobar(juego.getBucle().esperarFin(2000), "partida " + i + ": el bucle termina");
+            comprobar(juego.getBucle().getEstado() == BucleJuego.Estado.DETENIDO,
+                    "partida " + i + ": el bucle queda detenido");
+            List<String> vivos = esperarHilos(PREFIJO_HILOS + "Juego", 1000);
+            vivos.addAll(esperarHilos(PREFIJO_HILOS + "Precarga", 1000));
+            comprobar(vivos.isEmpty(), "partida " + i + ": no quedan hilos del bucle ni de precarga " + vivos);
+        }
+        List<String> vivos = esperarHilos(PREFIJO_HILOS, ESPERA_TEMPORIZADOR_MS);
+        comprobar(vivos.isEmpty(), "no queda ningún hilo " + PREFIJO_HILOS + "* " + vivos);
+
+        System.out.println(fallos == 0 ? "Prueba superada" : fallos + " comprobaciones fallidas");
+        System.exit(fallos == 0 ? 0 : 1);
+    }
+}
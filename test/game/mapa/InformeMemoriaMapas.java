@@ -0,0 +1,41 @@
+package game.mapa;
+
+import java.io.File;
+
+/**
+ * Muestra el informe de memoria ({@link Mapa#getInformeMemoria()}) de los mapas: cómo se
+ * guarda cada capa, cuánto ocupa y cuánto ocuparía como array denso.
+ * <p>
+ * Se compila con las pruebas de {@code test}. Uso:
+ * {@code java -cp "out:resources:libs/*" game.mapa.InformeMemoriaMapas [mapa...]}, con cada
+ * mapa como ruta de recurso; sin argumentos muestra todos los de {@code /mapas}. Para ver un
+ * mapa infinito, como {@code /mapas/infinito.tmx}, hay que añadir {@code test/recursos} al
+ * classpath.
+ */
+public final class InformeMemoriaMapas {
+
+    private InformeMemoriaMapas() {
+    }
+
+    /**
+     * Carga cada mapa y muestra su informe.
+     *
+     * @param args Rutas de recurso de los mapas; si no hay, todos los de {@code /mapas}.
+     * @throws Exception si no se puede leer algún mapa.
+     */
+    public static void main(String[] args) throws Exception {
+        String[] rutas = args;
+        if (rutas.length == 0) {
+            File[] planos = RendimientoCargaMapas.buscarMapas();
+            rutas = new String[planos.length];
+            for (int i = 0; i < planos.length; i++) {
+                rutas[i] = "/mapas/" + planos[i].getName();
+            }
+        }
+        for (String ruta : rutas) {
+            Mapa mapa = new Mapa(ruta);
+            System.out.printf("%s (%dx%d)%n", ruta, mapa.getAnchoMapa(), mapa.getAltoMapa());
+            System.out.println(mapa.getInformeMemoria());
+        }
+    }
+}
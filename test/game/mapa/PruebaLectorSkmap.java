@@ -0,0 +1,139 @@
+package game.mapa;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Prueba del formato {@code .skmap}: convierte {@code /mapas/casa1.tmx}, comprueba que el
+ * resultado se lee igual que el TMX y que {@link LectorSkmap#esVigente} lo descarta cuando el
+ * TMX cambia, y que una cabecera con tamaños imposibles se rechaza con {@link IOException} al
+ * cargar en lugar de dar una capa que falla al dibujarse.
+ * <p>
+ * Se comprueba sola y se ejecuta como programa. Termina con código 0 si todo va bien y 1 si
+ * falla alguna comprobación. Desde la raíz del proyecto:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:resources:libs/*" game.mapa.PruebaLectorSkmap
+ * </pre>
+ */
+public final class PruebaLectorSkmap {
+    // Posición del ancho del mapa en la cabecera; el alto va justo detrás
+    private static final int POSICION_ANCHO = 24;
+
+    private static int fallos;
+
+    private PruebaLectorSkmap() {
+    }
+
+    /**
+     * Registra el resultado de una comprobación.
+     *
+     * @param correcto Si se cumple la comprobación.
+     * @param mensaje  Qué se comprueba.
+     */
+    private static void comprobar(boolean correcto, String mensaje) {
+        System.out.println((correcto ? "OK    " : "FALLO ") + mensaje);
+        if (!correcto) {
+            fallos++;
+        }
+    }
+
+    /**
+     * Escribe una copia de un {@code .skmap} con otro tamaño de mapa en la cabecera y comprueba
+     * que el lector la rechaza con {@link IOException}.
+     *
+     * @param original Contenido del {@code .skmap} correcto.
+     * @param copia    Archivo donde se escribe la copia.
+     * @param ancho    Ancho que se pone en la cabecera.
+     * @param alto     Alto que se pone en la cabecera.
+     * @throws IOException si no se puede escribir la copia.
+     */
+    private static void comprobarRechazo(byte[] original, File copia, int ancho, int alto) throws IOException {
+        byte[] datos = original.clone();
+        ByteBuffer.wrap(datos).order(ByteOrder.LITTLE_ENDIAN).putInt(POSICION_ANCHO, ancho).putInt(POSICION_ANCHO + 4, alto);
+        Files.write(copia.toPath(), datos);
+        String caso = "cabecera de " + ancho + "x" + alto;
+        try {
+            new LectorSkmap(copia);
+            comprobar(false, caso + ": se rechaza al cargar");
+        } catch (IOException e) {
+            comprobar(true, caso + ": se rechaza al cargar (" + e.getMessage() + ")");
+        } catch (URISyntaxException | RuntimeException e) {
+            comprobar(false, caso + ": se rechaza con IOException, no con " + e);
+        }
+    }
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws Exception si no se puede leer el mapa o escribir los archivos temporales.
+     */
+    public static void main(String[] args) throws Exception {
+        File plano = Paths.get(Objects.requireNonNull(Mapa.class.getResource("/mapas/casa1.tmx")).toURI()).toFile();
+        Path carpeta = Files.createTempDirectory("skmap");
+        File binario = carpeta.resolve("casa1.skmap").toFile();
+        File copiaPlano = carpeta.resolve("casa1.tmx").toFile();
+        File corrupto = carpeta.resolve("corrupto.skmap").toFile();
+        try {
+            ConversorSkmap.convertir(plano, binario);
+            LectorSkmap skmap = new LectorSkmap(binario);
+            LectorTMX tmx = new LectorTMX(plano);
+            boolean iguales = skmap.getConjuntoCapas().size() == tmx.getConjuntoCapas().size();
+            for (int i = 0; iguales && i < tmx.getConjuntoCapas().size(); i++) {
+                Capa esperada = tmx.getConjuntoCapas().get(i);
+                Capa leida = skmap.getConjuntoCapas().get(i);
+                for (int y = 0; iguales && y < esperada.getAlto(); y++) {
+                    for (int x = 0; iguales && x < esperada.getAncho(); x++) {
+                        iguales = esperada.getBaldosa(x, y) == leida.getBaldosa(x, y);
+                    }
+                }
+            }
+            comprobar(iguales, "el .skmap tiene las mismas capas que el TMX");
+
+            comprobar(LectorSkmap.esVigente(binario, plano), "el .skmap recién generado es vigente");
+            byte[] contenido = Files.readAllBytes(plano.toPath());
+            Files.write(copiaPlano.toPath(), contenido);
+            comprobar(LectorSkmap.esVigente(binario, copiaPlano), "una copia idéntica del TMX sigue siendo vigente");
+            // Mismo tamaño, distinto contenido: solo lo detecta la huella
+            byte[] cambiado = contenido.clone();
+            int digito = new String(cambiado, StandardCharsets.UTF_8).indexOf("1367");
+            cambiado[digito] = (byte) '2';
+            Files.write(copiaPlano.toPath(), cambiado);
+            comprobar(!LectorSkmap.esVigente(binario, copiaPlano), "un TMX con otro contenido y el mismo tamaño no es vigente");
+            Files.write(copiaPlano.toPath(), Arrays.copyOf(contenido, contenido.length + 1));
+            comprobar(!LectorSkmap.esVigente(binario, copiaPlano), "un TMX con otro tamaño no es vigente");
+
+            byte[] original = Files.readAllBytes(binario.toPath());
+            // 65536 * 65536 baldosas * 2 bytes da 0 si se calcula en int
+            comprobarRechazo(original, corrupto, 65536, 65536);
+            // Caben en int como baldosas pero no como bytes
+            comprobarRechazo(original, corrupto, 40000, 40000);
+            comprobarRechazo(original, corrupto, 30000, 30000);
+            Files.write(corrupto.toPath(), Arrays.copyOf(original, original.length - 8));
+            try {
+                new LectorSkmap(corrupto);
+                comprobar(false, "un .skmap truncado se rechaza al cargar");
+            } catch (IOException e) {
+                comprobar(true, "un .skmap truncado se rechaza al cargar");
+            }
+        } finally {
+            Files.deleteIfExists(binario.toPath());
+            Files.deleteIfExists(copiaPlano.toPath());
+            Files.deleteIfExists(corrupto.toPath());
+            Files.deleteIfExists(carpeta);
+        }
+
+        System.out.println(fallos == 0 ? "Prueba superada" : fallos + " comprobaciones fallidas");
+        System.exit(fallos == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,147 @@
+package game.mapa;
+
+import java.util.List;
+
+/**
+ * Prueba de los mapas infinitos: carga {@code /mapas/infinito.tmx}, de 96x80 baldosas en trozos
+ * de 16x16 con el origen en (-32, -16), con una capa CSV, una en base64 con zlib y una de
+ * colisiones, y un trozo que falta en todas. Comprueba que las baldosas se leen bien, que los
+ * trozos comprimidos ocupan menos que las baldosas decodificadas y que dos dibujos del mismo
+ * mapa mantienen cada uno su zona residente sin descartar la del otro.
+ * <p>
+ * Se comprueba sola y se ejecuta como programa, sin pantalla. Termina con código 0 si todo va
+ * bien y 1 si falla alguna comprobación. Desde la raíz del proyecto:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:resources:test/recursos:libs/*" game.mapa.PruebaMapaPorTrozos
+ * </pre>
+ */
+public final class PruebaMapaPorTrozos {
+    private static final String MAPA = "/mapas/infinito.tmx";
+    private static final int ORIGEN_X = -32, ORIGEN_Y = -16;
+    // Trozo que falta en el TMX, en coordenadas del mapa
+    private static final int HUECO_X = 16 - ORIGEN_X, HUECO_Y = 32 - ORIGEN_Y;
+
+    private static int fallos;
+
+    private PruebaMapaPorTrozos() {
+    }
+
+    /**
+     * Registra el resultado de una comprobación.
+     *
+     * @param correcto Si se cumple la comprobación.
+     * @param mensaje  Qué se comprueba.
+     */
+    private static void comprobar(boolean correcto, String mensaje) {
+        System.out.println((correcto ? "OK    " : "FALLO ") + mensaje);
+        if (!correcto) {
+            fallos++;
+        }
+    }
+
+    /**
+     * Calcula la baldosa que el TMX de prueba tiene en una posición.
+     *
+     * @param capa Índice de la capa.
+     * @param x    Columna en el mapa.
+     * @param y    Fila en el mapa.
+     * @return El gid de la baldosa, o 0 si la celda está vacía.
+     */
+    private static int esperada(int capa, int x, int y) {
+        if (x >= HUECO_X && x < HUECO_X + 16 && y >= HUECO_Y && y < HUECO_Y + 16) {
+            return 0;
+        }
+        int mundoX = x + ORIGEN_X, mundoY = y + ORIGEN_Y;
+        switch (capa) {
+            case 0:
+                return 1 + Math.floorMod(mundoX * 7 + mundoY * 3, 40);
+            case 1:
+                return Math.floorMod(mundoX + mundoY, 5) != 0 ? 0 : 101 + Math.floorMod(mundoX * mundoY, 9);
+            default:
+                return Math.floorMod(mundoX, 11) == 0 && Math.floorMod(mundoY, 7) == 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * Cuenta las celdas de una capa cuya baldosa no es la esperada.
+     *
+     * @param capa    Capa a comprobar.
+     * @param indice  Índice de la capa en el mapa.
+     * @param desdeX  Primera columna.
+     * @param desdeY  Primera fila.
+     * @param hastaX  Última columna (excluida).
+     * @param hastaY  Última fila (excluida).
+     * @return Número de celdas distintas.
+     */
+    private static int diferencias(Capa capa, int indice, int desdeX, int desdeY, int hastaX, int hastaY) {
+        int distintas = 0;
+        for (int y = desdeY; y < hastaY; y++) {
+            for (int x = desdeX; x < hastaX; x++) {
+                if (capa.getBaldosa(x, y) != esperada(indice, x, y)) {
+                    distintas++;
+                }
+            }
+        }
+        return distintas;
+    }
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Mapa mapa = new Mapa(MAPA);
+        comprobar(mapa.isPorTrozos() && mapa.getAnchoMapa() == 96 && mapa.getAltoMapa() == 80,
+                "el mapa es infinito y mide 96x80 (" + mapa.getAnchoMapa() + "x" + mapa.getAltoMapa() + ")");
+        List<Capa> capas = mapa.getConjuntoCapas();
+        for (int i = 0; i < capas.size(); i++) {
+            Capa capa = capas.get(i);
+            comprobar(diferencias(capa, i, 0, 0, capa.getAncho(), capa.getAlto()) == 0,
+                    "la capa " + i + " tiene las baldosas del TMX");
+            long densa = 4L * capa.getAncho() * capa.getAlto();
+            comprobar(capa.getBytes() < densa / 4,
+                    "la capa " + i + " ocupa " + capa.getBytes() + " bytes comprimida (densa: " + densa + ")");
+        }
+        CollisionGrid colisiones = mapa.getColisiones();
+        boolean colisionesBien = true;
+        for (int y = 0; y < mapa.getAltoMapa(); y++) {
+            for (int x = 0; x < mapa.getAnchoMapa(); x++) {
+                colisionesBien &= colisiones.isBlocked(x, y) == (esperada(2, x, y) != 0);
+            }
+        }
+        comprobar(colisionesBien, "la rejilla de colisiones sale de la capa Colisiones");
+
+        DibujoMapa cerca = new DibujoMapa(mapa);
+        DibujoMapa lejos = new DibujoMapa(mapa);
+        try {
+            cerca.mantenerZonaResidente(8, 8, 8);
+            lejos.mantenerZonaResidente(88, 72, 8);
+            Capa sueloCerca = cerca.getCapas().get(0);
+            Capa sueloLejos = lejos.getCapas().get(0);
+            comprobar(diferencias(sueloCerca, 0, 0, 0, 16, 16) == 0,
+                    "el primer dibujo sigue viendo su zona después de que el segundo cargue la suya");
+            comprobar(diferencias(sueloLejos, 0, 80, 64, 96, 80) == 0, "el segundo dibujo ve su zona");
+            comprobar(sueloLejos.getBaldosa(0, 0) == 0 && sueloCerca.getBaldosa(95, 79) == 0,
+                    "cada dibujo ve vacíos los trozos lejanos a su cámara");
+            long residentes = 0;
+            for (Capa capa : cerca.getCapas()) {
+                residentes += capa.getBytes();
+            }
+            // Radio de 8 baldosas desde (8, 8): los trozos 0 y 1 en cada eje, en las tres capas
+            comprobar(residentes == 3 * 4 * 4L * 16 * 16,
+                    "el primer dibujo solo decodifica los trozos cercanos (" + residentes + " bytes)");
+            cerca.liberar();
+            comprobar(sueloCerca.getBaldosa(0, 0) == 0, "liberar el dibujo descarta sus trozos");
+            comprobar(diferencias(sueloLejos, 0, 80, 64, 96, 80) == 0, "y no toca los del otro dibujo");
+        } finally {
+            cerca.liberar();
+            lejos.liberar();
+        }
+
+        System.out.println(fallos == 0 ? "Prueba superada" : fallos + " comprobaciones fallidas");
+        System.exit(fallos == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,118 @@
+package game.mapa;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Prueba de {@link PrecargaMapas}: comprueba que descartar una precarga, terminada o en curso,
+ * suelta los patrones que reservó en la {@link TilesetCache}, que {@link PrecargaMapas#cerrar()}
+ * no espera a la precarga en curso pero la acaba soltando igualmente, y que solicitar después
+ * de cerrar no hace nada.
+ * <p>
+ * Se comprueba sola y se ejecuta como programa, sin pantalla. Termina con código 0 si todo va
+ * bien y 1 si falla alguna comprobación. Desde la raíz del proyecto:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:resources:libs/*" game.mapa.PruebaPrecargaMapas
+ * </pre>
+ */
+public final class PruebaPrecargaMapas {
+    private static final String CASA = "/mapas/casa1.tmx";
+    private static final String GRANDE = "/mapas/sk2.tmx";
+    private static final long ESPERA_MS = 10_000;
+    // cerrar() no espera a nada; cualquier cosa por debajo de esto no ha esperado a preparar un mapa
+    private static final long CIERRE_MAX_MS = 20;
+
+    private static int fallos;
+
+    private PruebaPrecargaMapas() {
+    }
+
+    /**
+     * Registra el resultado de una comprobación.
+     *
+     * @param correcto Si se cumple la comprobación.
+     * @param mensaje  Qué se comprueba.
+     */
+    private static void comprobar(boolean correcto, String mensaje) {
+        System.out.println((correcto ? "OK    " : "FALLO ") + mensaje);
+        if (!correcto) {
+            fallos++;
+        }
+    }
+
+    /**
+     * Espera a que se cumpla una condición.
+     *
+     * @param condicion Condición a esperar.
+     * @return Si se cumplió antes de {@link #ESPERA_MS}.
+     * @throws InterruptedException si se interrumpe la espera.
+     */
+    private static boolean esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     * @throws InterruptedException si se interrumpe alguna espera.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        TilesetCache tilesets = TilesetCache.getInstancia();
+        MapaRepository mapas = new MapaRepository(Long.MAX_VALUE);
+        // Los mapas se cargan antes para que las precargas solo preparen el dibujo
+        mapas.obtener(CASA);
+        mapas.obtener(GRANDE);
+
+        PrecargaMapas precarga = new PrecargaMapas(mapas);
+        precarga.solicitar(CASA);
+        comprobar(esperar(() -> tilesets.getBytesRetenidos() > 0), "la precarga reserva los patrones de la casa");
+        Thread.sleep(200);
+        precarga.descartar(CASA);
+        comprobar(tilesets.getBytesRetenidos() == 0, "descartar una precarga terminada suelta sus patrones");
+
+        precarga.solicitar(GRANDE);
+        precarga.descartar(GRANDE);
+        esperarTrabajo(precarga);
+        comprobar(tilesets.getBytesRetenidos() == 0, "descartar una precarga recién pedida no deja patrones reservados");
+
+        precarga.solicitar(CASA);
+        precarga.solicitar(GRANDE);
+        comprobar(esperar(() -> tilesets.getBytesRetenidos() > 0), "las precargas vuelven a reservar patrones");
+        long inicio = System.nanoTime();
+        precarga.cerrar();
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        comprobar(milisegundos < CIERRE_MAX_MS, "cerrar no espera a la precarga en curso (" + milisegundos + " ms)");
+        comprobar(esperar(() -> tilesets.getBytesRetenidos() == 0), "tras cerrar se sueltan todos los patrones");
+
+        try {
+            precarga.solicitar(CASA);
+            precarga.cerrar();
+            comprobar(tilesets.getBytesRetenidos() == 0, "solicitar y cerrar después de cerrar no hacen nada");
+        } catch (RuntimeException e) {
+            comprobar(false, "solicitar después de cerrar no lanza " + e);
+        }
+
+        System.out.println(fallos == 0 ? "Prueba superada" : fallos + " comprobaciones fallidas");
+        System.exit(fallos == 0 ? 0 : 1);
+    }
+
+    /**
+     * Espera a que el hilo de precarga no tenga trabajo, pidiendo y tomando un mapa ya cargado:
+     * la cola es de un solo hilo, así que cuando termina todo lo anterior ha terminado.
+     *
+     * @param precarga Servicio de precarga.
+     */
+    private static void esperarTrabajo(PrecargaMapas precarga) {
+        precarga.solicitar(CASA);
+        precarga.tomar(CASA).liberar();
+    }
+}
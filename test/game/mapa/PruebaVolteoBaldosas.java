@@ -0,0 +1,115 @@
+package game.mapa;
+
+import game.render.Fotograma;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Prueba de las baldosas volteadas de Tiled: carga {@code /mapas/volteos.tmx}, cuya capa de
+ * arriba lleva una baldosa opaca sin voltear y con cada marca de volteo sobre un suelo opaco,
+ * y comprueba que el atlas las incluye, que tapan el suelo y que se dibujan volteadas.
+ * <p>
+ * Se comprueba sola y se ejecuta como programa, sin pantalla. Termina con código 0 si todo va
+ * bien y 1 si falla alguna comprobación. Desde la raíz del proyecto:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:resources:test/recursos:libs/*" game.mapa.PruebaVolteoBaldosas
+ * </pre>
+ */
+public final class PruebaVolteoBaldosas {
+    private static final String MAPA = "/mapas/volteos.tmx";
+    // Celdas con la baldosa 1 volteada (columna, fila, marcas); la (0, 0) la lleva sin voltear
+    private static final int[][] VOLTEADAS = {
+            {1, 0, Capa.VOLTEO_HORIZONTAL},
+            {2, 0, Capa.VOLTEO_VERTICAL},
+            {3, 0, Capa.VOLTEO_DIAGONAL},
+            {0, 1, Capa.VOLTEO_HORIZONTAL | Capa.VOLTEO_VERTICAL}};
+
+    private static int fallos;
+
+    private PruebaVolteoBaldosas() {
+    }
+
+    /**
+     * Registra el resultado de una comprobación.
+     *
+     * @param correcto Si se cumple la comprobación.
+     * @param mensaje  Qué se comprueba.
+     */
+    private static void comprobar(boolean correcto, String mensaje) {
+        System.out.println((correcto ? "OK    " : "FALLO ") + mensaje);
+        if (!correcto) {
+            fallos++;
+        }
+    }
+
+    /**
+     * Compara una celda dibujada con la baldosa sin voltear de la celda (0, 0), volteada a mano.
+     *
+     * @param imagen Mapa dibujado.
+     * @param lado   Lado de una baldosa en la imagen.
+     * @param celdaX Columna de la celda a comparar.
+     * @param celdaY Fila de la celda a comparar.
+     * @param marcas Marcas de volteo de la celda.
+     * @return true si todos los píxeles coinciden.
+     */
+    private static boolean coincide(BufferedImage imagen, int lado, int celdaX, int celdaY, int marcas) {
+        for (int y = 0; y < lado; y++) {
+            for (int x = 0; x < lado; x++) {
+                // Tiled aplica la diagonal antes que los volteos horizontal y vertical
+                int origenX = (marcas & Capa.VOLTEO_HORIZONTAL) != 0 ? lado - 1 - x : x;
+                int origenY = (marcas & Capa.VOLTEO_VERTICAL) != 0 ? lado - 1 - y : y;
+                if ((marcas & Capa.VOLTEO_DIAGONAL) != 0) {
+                    int cambio = origenX;
+                    origenX = origenY;
+                    origenY = cambio;
+                }
+                if (imagen.getRGB(celdaX * lado + x, celdaY * lado + y) != imagen.getRGB(origenX, origenY)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Mapa mapa = new Mapa(MAPA);
+        Capa volteos = mapa.getConjuntoCapas().get(1);
+        comprobar(volteos.getBaldosa(2, 0) == (1 | Capa.VOLTEO_VERTICAL),
+                "el gid 1073741825 se lee como la baldosa 1 volteada en vertical");
+
+        DibujoMapa dibujo = new DibujoMapa(mapa);
+        try {
+            AtlasPatrones atlas = dibujo.getAtlas();
+            comprobar(atlas.isOpaca(1 | Capa.VOLTEO_HORIZONTAL | Capa.VOLTEO_VERTICAL | Capa.VOLTEO_DIAGONAL),
+                    "la baldosa 1 volteada sigue siendo opaca");
+            comprobar(dibujo.getBaldosasOcultas() == 5,
+                    "las baldosas volteadas tapan el suelo (" + dibujo.getBaldosasOcultas() + " ocultas, se esperaban 5)");
+
+            int lado = mapa.getAnchoBaldosa() * MapaVisual.ESCALA;
+            BufferedImage imagen = new BufferedImage(mapa.getAnchoMapa() * lado, mapa.getAltoMapa() * lado,
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = imagen.createGraphics();
+            dibujo.pintar(g, Fotograma.VACIO, imagen.getWidth(), imagen.getHeight());
+            g.dispose();
+            comprobar(!coincide(imagen, lado, 1, 1, 0),
+                    "la baldosa 1 no es igual que el suelo, así que la prueba ve si se dibuja");
+            for (int[] celda : VOLTEADAS) {
+                comprobar(coincide(imagen, lado, celda[0], celda[1], celda[2]),
+                        "la baldosa con marcas " + Integer.toHexString(celda[2]) + " se dibuja volteada");
+            }
+        } finally {
+            dibujo.liberar();
+        }
+
+        System.out.println(fallos == 0 ? "Prueba superada" : fallos + " comprobaciones fallidas");
+        System.exit(fallos == 0 ? 0 : 1);
+    }
+}
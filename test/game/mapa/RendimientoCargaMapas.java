@@ -0,0 +1,153 @@
+package game.mapa;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Prueba de rendimiento de la carga de mapas TMX: compara el lector en una pasada
+ * ({@link LectorTMX}) con la carga por DOM que usaba {@link Mapa} antes, en todos los mapas
+ * de {@code /mapas}, y comprueba que las dos dan las mismas capas y colisiones.
+ * <p>
+ * Se compila con las pruebas de {@code test}. Uso:
+ * {@code java -cp "out:resources:libs/*" game.mapa.RendimientoCargaMapas [repeticiones]}.
+ * Muestra, por mapa, la mediana del tiempo de carga de cada lector.
+ */
+public final class RendimientoCargaMapas {
+
+    private RendimientoCargaMapas() {
+    }
+
+    /**
+     * Capas y colisiones leídas con el lector de referencia.
+     */
+    private static final class MapaDOM {
+        private final int ancho, alto;
+        private final List<int[][]> capas = new ArrayList<>();
+        private final boolean[][] colisiones;
+
+        private MapaDOM(int ancho, int alto) {
+            this.ancho = ancho;
+            this.alto = alto;
+            this.colisiones = new boolean[alto][ancho];
+        }
+    }
+
+    /**
+     * Carga un mapa como lo hacía {@link Mapa} antes del lector en una pasada: árbol DOM,
+     * {@code getElementsByTagName} dentro del bucle de baldosas y {@code split}/{@code trim}
+     * del texto CSV.
+     *
+     * @param plano Archivo TMX.
+     * @return Las capas y colisiones del mapa.
+     * @throws Exception si no se puede leer el archivo.
+     */
+    static MapaDOM cargarConDOM(File plano) throws Exception {
+        Document tmx = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(plano);
+        Element map = (Element) tmx.getElementsByTagName("map").item(0);
+        MapaDOM mapa = new MapaDOM(Integer.parseInt(map.getAttribute("width")), Integer.parseInt(map.getAttribute("height")));
+        for (int i = 0; i < tmx.getElementsByTagName("layer").getLength(); i++) {
+            int[][] capa = new int[mapa.alto][mapa.ancho];
+            String[] datos = ((Element) tmx.getElementsByTagName("layer").item(i)).getElementsByTagName("data").item(0).getTextContent().split(",");
+            for (int y = 0; y < mapa.alto; y++) {
+                for (int x = 0; x < mapa.ancho; x++) {
+                    capa[y][x] = Integer.parseInt(datos[y * mapa.ancho + x].trim());
+                    if ("Colisiones".equals(((Element) tmx.getElementsByTagName("layer").item(i)).getAttribute("name"))) {
+                        mapa.colisiones[y][x] |= capa[y][x] != 0;
+                    }
+                }
+            }
+            mapa.capas.add(capa);
+        }
+        return mapa;
+    }
+
+    /**
+     * Comprueba que los dos lectores han leído lo mismo.
+     *
+     * @param dom    Resultado del lector de referencia.
+     * @param lector Resultado del lector en una pasada.
+     * @return true si coinciden todas las capas y colisiones.
+     */
+    private static boolean coinciden(MapaDOM dom, LectorTMX lector) {
+        if (dom.ancho != lector.getAnchoMapa() || dom.alto != lector.getAltoMapa()
+                || dom.capas.size() != lector.getConjuntoCapas().size()) {
+            return false;
+        }
+        for (int i = 0; i < dom.capas.size(); i++) {
+            Capa capa = lector.getConjuntoCapas().get(i);
+            for (int y = 0; y < dom.alto; y++) {
+                for (int x = 0; x < dom.ancho; x++) {
+                    if (dom.capas.get(i)[y][x] != capa.getBaldosa(x, y)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        for (int y = 0; y < dom.alto; y++) {
+            for (int x = 0; x < dom.ancho; x++) {
+                if (dom.colisiones[y][x] != lector.getColisiones().isBlocked(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene los mapas TMX de {@code /mapas}, ordenados por nombre.
+     *
+     * @return Los archivos de los mapas.
+     * @throws Exception si no se encuentra la carpeta de mapas.
+     */
+    static File[] buscarMapas() throws Exception {
+        File carpeta = new File(Objects.requireNonNull(Mapa.class.getResource("/mapas")).toURI());
+        File[] mapas = carpeta.listFiles((dir, nombre) -> nombre.endsWith(".tmx"));
+        Arrays.sort(Objects.requireNonNull(mapas));
+        return mapas;
+    }
+
+    /**
+     * Calcula la mediana de unos tiempos.
+     *
+     * @param nanos Tiempos en nanosegundos; se ordenan.
+     * @return La mediana en milisegundos.
+     */
+    static double medianaMs(long[] nanos) {
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2] / 1e6;
+    }
+
+    /**
+     * Carga cada mapa con los dos lectores y muestra las medianas.
+     *
+     * @param args Opcionalmente, el número de repeticiones por mapa (10 por defecto).
+     * @throws Exception si no se puede leer algún mapa.
+     */
+    public static void main(String[] args) throws Exception {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        System.out.printf("%-12s %10s %10s  %s%n", "mapa", "DOM (ms)", "StAX (ms)", "iguales");
+        for (File plano : buscarMapas()) {
+            // Una carga de cada para calentar y comparar resultados
+            boolean iguales = coinciden(cargarConDOM(plano), new LectorTMX(plano));
+            long[] dom = new long[repeticiones];
+            long[] stax = new long[repeticiones];
+            for (int i = 0; i < repeticiones; i++) {
+                long inicio = System.nanoTime();
+                cargarConDOM(plano);
+                dom[i] = System.nanoTime() - inicio;
+                inicio = System.nanoTime();
+                new LectorTMX(plano);
+                stax[i] = System.nanoTime() - inicio;
+            }
+            System.out.printf("%-12s %10.1f %10.1f  %s%n", plano.getName().replace(".tmx", ""),
+                    medianaMs(dom), medianaMs(stax), iguales ? "sí" : "NO");
+        }
+    }
+}
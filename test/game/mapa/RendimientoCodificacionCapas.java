@@ -0,0 +1,144 @@
+package game.mapa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prueba de rendimiento de la lectura de capas según su codificación: vuelve a guardar cada
+ * mapa de {@code /mapas} con las capas en base64 (sin comprimir, zlib y gzip) en archivos
+ * temporales y compara su carga con la del original en CSV, comprobando que todas las
+ * versiones dan las mismas baldosas.
+ * <p>
+ * Se compila con las pruebas de {@code test}. Uso:
+ * {@code java -cp "out:resources:libs/*" game.mapa.RendimientoCodificacionCapas [repeticiones]}.
+ * Muestra, por mapa, la mediana del tiempo de carga de cada codificación.
+ */
+public final class RendimientoCodificacionCapas {
+    private static final Pattern DATOS_CSV = Pattern.compile("<data encoding=\"csv\">.*?</data>", Pattern.DOTALL);
+    private static final String[] COMPRESIONES = {null, "zlib", "gzip"};
+
+    private RendimientoCodificacionCapas() {
+    }
+
+    /**
+     * Codifica una capa como la guarda Tiled en base64: un entero de 32 bits little-endian por
+     * baldosa, comprimido o no.
+     *
+     * @param capa       Capa a codificar.
+     * @param compresion "zlib", "gzip" o null para dejarla sin comprimir.
+     * @return El texto base64.
+     * @throws IOException si falla la compresión.
+     */
+    static String codificar(Capa capa, String compresion) throws IOException {
+        ByteBuffer baldosas = ByteBuffer.allocate(capa.getAncho() * capa.getAlto() * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int y = 0; y < capa.getAlto(); y++) {
+            for (int x = 0; x < capa.getAncho(); x++) {
+                baldosas.putInt(capa.getBaldosa(x, y));
+            }
+        }
+        if (compresion == null) {
+            return Base64.getEncoder().encodeToString(baldosas.array());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = "zlib".equals(compresion) ? new DeflaterOutputStream(bytes) : new GZIPOutputStream(bytes)) {
+            out.write(baldosas.array());
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Escribe una copia temporal de un mapa con sus capas CSV pasadas a base64.
+     *
+     * @param plano      Mapa original, con las capas en CSV.
+     * @param capas      Capas ya leídas del original, en el orden del archivo.
+     * @param compresion "zlib", "gzip" o null.
+     * @return El archivo temporal, que se borra al salir.
+     * @throws IOException si no se puede escribir.
+     */
+    static File recodificar(File plano, List<Capa> capas, String compresion) throws IOException {
+        String texto = new String(Files.readAllBytes(plano.toPath()), StandardCharsets.UTF_8);
+        Matcher datos = DATOS_CSV.matcher(texto);
+        StringBuilder resultado = new StringBuilder(texto.length());
+        int i = 0;
+        while (datos.find()) {
+            String atributos = compresion == null ? "encoding=\"base64\"" : "encoding=\"base64\" compression=\"" + compresion + "\"";
+            datos.appendReplacement(resultado, Matcher.quoteReplacement(
+                    "<data " + atributos + ">" + codificar(capas.get(i++), compresion) + "</data>"));
+        }
+        datos.appendTail(resultado);
+        File destino = File.createTempFile(plano.getName().replace(".tmx", "-"), ".tmx");
+        destino.deleteOnExit();
+        Files.write(destino.toPath(), resultado.toString().getBytes(StandardCharsets.UTF_8));
+        return destino;
+    }
+
+    /**
+     * Comprueba que dos lecturas del mismo mapa tienen las mismas baldosas.
+     *
+     * @param a Una lectura.
+     * @param b La otra.
+     * @return true si coinciden todas las capas.
+     */
+    private static boolean coinciden(LectorTMX a, LectorTMX b) {
+        if (a.getConjuntoCapas().size() != b.getConjuntoCapas().size()) {
+            return false;
+        }
+        for (int i = 0; i < a.getConjuntoCapas().size(); i++) {
+            Capa ca = a.getConjuntoCapas().get(i), cb = b.getConjuntoCapas().get(i);
+            for (int y = 0; y < ca.getAlto(); y++) {
+                for (int x = 0; x < ca.getAncho(); x++) {
+                    if (ca.getBaldosa(x, y) != cb.getBaldosa(x, y)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Carga cada mapa en las cuatro codificaciones y muestra las medianas.
+     *
+     * @param args Opcionalmente, el número de repeticiones por mapa (10 por defecto).
+     * @throws Exception si no se puede leer o escribir algún mapa.
+     */
+    public static void main(String[] args) throws Exception {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        System.out.printf("%-12s %10s %10s %10s %10s  %s%n", "mapa", "csv (ms)", "raw (ms)", "zlib (ms)", "gzip (ms)", "iguales");
+        for (File plano : RendimientoCargaMapas.buscarMapas()) {
+            LectorTMX original = new LectorTMX(plano);
+            File[] versiones = new File[COMPRESIONES.length + 1];
+            versiones[0] = plano;
+            boolean iguales = true;
+            for (int c = 0; c < COMPRESIONES.length; c++) {
+                versiones[c + 1] = recodificar(plano, original.getConjuntoCapas(), COMPRESIONES[c]);
+                // La primera carga calienta y compara
+                iguales &= coinciden(original, new LectorTMX(versiones[c + 1]));
+            }
+            long[][] nanos = new long[versiones.length][repeticiones];
+            for (int i = 0; i < repeticiones; i++) {
+                for (int v = 0; v < versiones.length; v++) {
+                    long inicio = System.nanoTime();
+                    new LectorTMX(versiones[v]);
+                    nanos[v][i] = System.nanoTime() - inicio;
+                }
+            }
+            System.out.printf("%-12s %10.1f %10.1f %10.1f %10.1f  %s%n", plano.getName().replace(".tmx", ""),
+                    RendimientoCargaMapas.medianaMs(nanos[0]), RendimientoCargaMapas.medianaMs(nanos[1]),
+                    RendimientoCargaMapas.medianaMs(nanos[2]), RendimientoCargaMapas.medianaMs(nanos[3]),
+                    iguales ? "sí" : "NO");
+        }
+    }
+}
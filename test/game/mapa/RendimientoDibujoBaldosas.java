@@ -0,0 +1,165 @@
+package game.mapa;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Prueba de rendimiento de la resolución de baldosas: dibuja todas las baldosas de cada mapa
+ * de {@code /mapas} buscando su patrón con el recorrido lineal que hacía antes
+ * {@link MapaVisual} en cada frame, y con la tabla por gid del {@link AtlasPatrones}.
+ * <p>
+ * Se compila con las pruebas de {@code test}. Uso:
+ * {@code java -cp "out:resources:libs/*" game.mapa.RendimientoDibujoBaldosas [repeticiones]}.
+ * Muestra, por mapa, la mediana del tiempo de cada forma, sin y con la llamada a
+ * {@code drawImage}, y cuántas baldosas se salta el dibujado por quedar tapadas por una
+ * baldosa opaca de una capa superior ({@link DibujoMapa#getBaldosasOcultas()}). También muestra
+ * lo que costó construir el atlas al crear el {@link DibujoMapa} y la memoria que ocupa
+ * ({@link AtlasPatrones#getNanosConstruccion()} y {@link AtlasPatrones#getBytes()}).
+ */
+public final class RendimientoDibujoBaldosas {
+    private static final int ANCHO = 1920, ALTO = 1080;
+
+    private RendimientoDibujoBaldosas() {
+    }
+
+    /**
+     * Busca el patrón de una baldosa como lo hacía {@link MapaVisual}: recorriendo los patrones
+     * hasta el último cuyo primer gid no supera al de la baldosa.
+     *
+     * @param patrones Patrones del mapa, ordenados por primer gid.
+     * @param gid      Identificador de la baldosa.
+     * @return Índice del patrón, o -1 si la baldosa está vacía.
+     */
+    private static int buscarPatron(List<Mapa.Patron> patrones, int gid) {
+        int encontrado = -1;
+        for (int i = 0; i < patrones.size(); i++) {
+            if (gid >= patrones.get(i).getFirstgid()) {
+                encontrado = i;
+            }
+        }
+        return gid > 0 ? encontrado : -1;
+    }
+
+    /**
+     * Recorre todas las baldosas del mapa resolviéndolas con la búsqueda lineal.
+     *
+     * @param mapa     Mapa a recorrer.
+     * @param imagenes Imágenes de los patrones, en el orden de {@link Mapa#getConjuntoPatrones()}.
+     * @param g        Donde se dibuja, o null para solo resolver.
+     * @return Suma de las posiciones de origen, para que el JIT no descarte el trabajo.
+     */
+    private static long recorrerLineal(Mapa mapa, BufferedImage[] imagenes, Graphics g) {
+        List<Mapa.Patron> patrones = mapa.getConjuntoPatrones();
+        int ancho = mapa.getAnchoBaldosa(), alto = mapa.getAltoBaldosa();
+        int escala = MapaVisual.ESCALA;
+        long suma = 0;
+        for (Capa capa : mapa.getConjuntoCapas()) {
+            for (int y = 0; y < capa.getAlto(); y++) {
+                for (int x = capa.siguiente(y, 0); x != -1; x = capa.siguiente(y, x + 1)) {
+                    int gid = capa.getBaldosa(x, y);
+                    int patron = buscarPatron(patrones, gid);
+                    if (patron < 0) {
+                        continue;
+                    }
+                    BufferedImage imagen = imagenes[patron];
+                    int local = gid - patrones.get(patron).getFirstgid();
+                    int columnas = imagen.getWidth() / ancho;
+                    int origenX = (local % columnas) * ancho;
+                    int origenY = (local / columnas) * alto;
+                    suma += origenX + origenY;
+                    if (g != null) {
+                        int destinoX = x * ancho * escala, destinoY = y * alto * escala;
+                        g.drawImage(imagen, destinoX, destinoY, destinoX + ancho * escala, destinoY + alto * escala,
+                                origenX, origenY, origenX + ancho, origenY + alto, null);
+                    }
+                }
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Recorre todas las baldosas del mapa resolviéndolas con la tabla del atlas.
+     *
+     * @param mapa  Mapa a recorrer.
+     * @param atlas Atlas del mapa.
+     * @param g     Donde se dibuja, o null para solo resolver.
+     * @return Número de baldosas opacas, para que el JIT no descarte el trabajo.
+     */
+    private static long recorrerTabla(Mapa mapa, AtlasPatrones atlas, Graphics g) {
+        int ancho = mapa.getAnchoBaldosa() * MapaVisual.ESCALA, alto = mapa.getAltoBaldosa() * MapaVisual.ESCALA;
+        long suma = 0;
+        for (Capa capa : mapa.getConjuntoCapas()) {
+            for (int y = 0; y < capa.getAlto(); y++) {
+                for (int x = capa.siguiente(y, 0); x != -1; x = capa.siguiente(y, x + 1)) {
+                    int gid = capa.getBaldosa(x, y);
+                    if (g != null) {
+                        atlas.dibujar(g, gid, x * ancho, y * alto);
+                    } else if (atlas.isOpaca(gid)) {
+                        suma++;
+                    }
+                }
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Recorre cada mapa con las dos formas y muestra las medianas.
+     *
+     * @param args Opcionalmente, el número de repeticiones por mapa (20 por defecto).
+     * @throws Exception si no se puede leer algún mapa.
+     */
+    public static void main(String[] args) throws Exception {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        BufferedImage destino = new BufferedImage(ANCHO, ALTO, BufferedImage.TYPE_INT_RGB);
+        System.out.printf("%-12s %14s %14s %14s %14s %10s %12s %12s%n", "mapa",
+                "lineal (ms)", "tabla (ms)", "lineal+dib.", "tabla+dib.", "ocultas", "atlas (ms)", "atlas (KB)");
+        long sumidero = 0;
+        for (File plano : RendimientoCargaMapas.buscarMapas()) {
+            Mapa mapa = new Mapa("/mapas/" + plano.getName());
+            DibujoMapa dibujo = new DibujoMapa(mapa);
+            BufferedImage[] imagenes = new BufferedImage[mapa.getConjuntoPatrones().size()];
+            for (int i = 0; i < imagenes.length; i++) {
+                imagenes[i] = TilesetCache.getInstancia().adquirir(mapa.getConjuntoPatrones().get(i).getRuta());
+            }
+            long[][] nanos = new long[4][repeticiones];
+            Graphics2D g = destino.createGraphics();
+            try {
+                for (int i = -1; i < repeticiones; i++) {
+                    // La repetición -1 solo calienta
+                    long[] t = new long[5];
+                    t[0] = System.nanoTime();
+                    sumidero += recorrerLineal(mapa, imagenes, null);
+                    t[1] = System.nanoTime();
+                    sumidero += recorrerTabla(mapa, dibujo.getAtlas(), null);
+                    t[2] = System.nanoTime();
+                    sumidero += recorrerLineal(mapa, imagenes, g);
+                    t[3] = System.nanoTime();
+                    sumidero += recorrerTabla(mapa, dibujo.getAtlas(), g);
+                    t[4] = System.nanoTime();
+                    for (int k = 0; i >= 0 && k < 4; k++) {
+                        nanos[k][i] = t[k + 1] - t[k];
+                    }
+                }
+            } finally {
+                g.dispose();
+                for (Mapa.Patron patron : mapa.getConjuntoPatrones()) {
+                    TilesetCache.getInstancia().liberar(patron.getRuta());
+                }
+                dibujo.liberar();
+            }
+            AtlasPatrones atlas = dibujo.getAtlas();
+            System.out.printf("%-12s %14.2f %14.2f %14.2f %14.2f %10d %12.2f %12d%n",
+                    plano.getName().replace(".tmx", ""),
+                    RendimientoCargaMapas.medianaMs(nanos[0]), RendimientoCargaMapas.medianaMs(nanos[1]),
+                    RendimientoCargaMapas.medianaMs(nanos[2]), RendimientoCargaMapas.medianaMs(nanos[3]),
+                    dibujo.getBaldosasOcultas(), atlas.getNanosConstruccion() / 1e6, atlas.getBytes() / 1024);
+        }
+        if (sumidero == 42) {
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package game.mapa;
+
+import game.render.Fotograma;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+/**
+ * Prueba de rendimiento del dibujado de un frame del mapa en una pantalla de 1920x1080 con la
+ * cámara en el centro: compara recorrer todas las baldosas del mapa, como se hacía antes, con
+ * recorrer solo las que caen en pantalla, y muestra además lo que tarda
+ * {@link DibujoMapa#pintar} con la caché de trozos ya llena.
+ * <p>
+ * Se compila con las pruebas de {@code test}. Uso:
+ * {@code java -cp "out:resources:libs/*" game.mapa.RendimientoPintado [repeticiones]}.
+ * Muestra, por mapa, su tamaño en baldosas y la mediana del tiempo por frame de cada forma.
+ */
+public final class RendimientoPintado {
+    private static final int ANCHO = 1920, ALTO = 1080;
+
+    private RendimientoPintado() {
+    }
+
+    /**
+     * Dibuja las baldosas de un rectángulo de cada capa, con el mapa centrado en la pantalla.
+     *
+     * @param mapa   Mapa a dibujar.
+     * @param atlas  Atlas del mapa.
+     * @param g      Donde se dibuja.
+     * @param desdeX Primera columna.
+     * @param desdeY Primera fila.
+     * @param hastaX Última columna; puede salirse del mapa.
+     * @param hastaY Última fila; puede salirse del mapa.
+     */
+    private static void dibujar(Mapa mapa, AtlasPatrones atlas, Graphics g, int desdeX, int desdeY, int hastaX, int hastaY) {
+        int ancho = mapa.getAnchoBaldosa() * MapaVisual.ESCALA, alto = mapa.getAltoBaldosa() * MapaVisual.ESCALA;
+        int offsetX = (ANCHO - mapa.getAnchoMapa() * ancho) / 2;
+        int offsetY = (ALTO - mapa.getAltoMapa() * alto) / 2;
+        for (Capa capa : mapa.getConjuntoCapas()) {
+            int ultimaX = Math.min(hastaX, capa.getAncho() - 1);
+            int ultimaY = Math.min(hastaY, capa.getAlto() - 1);
+            for (int y = desdeY; y <= ultimaY; y++) {
+                for (int x = capa.siguiente(y, desdeX); x != -1 && x <= ultimaX; x = capa.siguiente(y, x + 1)) {
+                    atlas.dibujar(g, capa.getBaldosa(x, y), offsetX + x * ancho, offsetY + y * alto);
+                }
+            }
+        }
+    }
+
+    /**
+     * Dibuja cada mapa de las tres formas y muestra las medianas.
+     *
+     * @param args Opcionalmente, el número de repeticiones por mapa (20 por defecto).
+     * @throws Exception si no se puede leer algún mapa.
+     */
+    public static void main(String[] args) throws Exception {
+        int repeticiones = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        BufferedImage destino = new BufferedImage(ANCHO, ALTO, BufferedImage.TYPE_INT_RGB);
+        System.out.printf("%-12s %9s %12s %14s %12s%n", "mapa", "baldosas", "todas (ms)", "visibles (ms)", "pintar (ms)");
+        for (File plano : RendimientoCargaMapas.buscarMapas()) {
+            Mapa mapa = new Mapa("/mapas/" + plano.getName());
+            DibujoMapa dibujo = new DibujoMapa(mapa);
+            AtlasPatrones atlas = dibujo.getAtlas();
+            int ancho = mapa.getAnchoBaldosa() * MapaVisual.ESCALA, alto = mapa.getAltoBaldosa() * MapaVisual.ESCALA;
+            int offsetX = (ANCHO - mapa.getAnchoMapa() * ancho) / 2;
+            int offsetY = (ALTO - mapa.getAltoMapa() * alto) / 2;
+            int primeraX = Math.max(0, Math.floorDiv(-offsetX, ancho));
+            int primeraY = Math.max(0, Math.floorDiv(-offsetY, alto));
+            int ultimaX = Math.floorDiv(ANCHO - 1 - offsetX, ancho);
+            int ultimaY = Math.floorDiv(ALTO - 1 - offsetY, alto);
+            long[][] nanos = new long[3][repeticiones];
+            Graphics2D g = destino.createGraphics();
+            try {
+                for (int i = -1; i < repeticiones; i++) {
+                    // La repetición -1 solo calienta y llena la caché de trozos
+                    long[] t = new long[4];
+                    t[0] = System.nanoTime();
+                    dibujar(mapa, atlas, g, 0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+                    t[1] = System.nanoTime();
+                    dibujar(mapa, atlas, g, primeraX, primeraY, ultimaX, ultimaY);
+                    t[2] = System.nanoTime();
+                    dibujo.pintar(g, Fotograma.VACIO, ANCHO, ALTO);
+                    t[3] = System.nanoTime();
+                    for (int k = 0; i >= 0 && k < 3; k++) {
+                        nanos[k][i] = t[k + 1] - t[k];
+                    }
+                }
+            } finally {
+                g.dispose();
+                dibujo.liberar();
+            }
+            System.out.printf("%-12s %9s %12.2f %14.2f %12.2f%n", plano.getName().replace(".tmx", ""),
+                    mapa.getAnchoMapa() + "x" + mapa.getAltoMapa(),
+                    RendimientoCargaMapas.medianaMs(nanos[0]), RendimientoCargaMapas.medianaMs(nanos[1]),
+                    RendimientoCargaMapas.medianaMs(nanos[2]));
+        }
+    }
+}
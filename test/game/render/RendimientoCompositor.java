@@ -0,0 +1,134 @@
+package game.render;
+
+import game.entidades.npc.NPCVisual;
+import game.entidades.pj.PersonajeVisual;
+import game.mapa.Mapa;
+import game.mapa.MapaVisual;
+import game.notificaciones.v_notificacion;
+import idiomas.Idioma;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Prueba de rendimiento del {@link Compositor}: dibuja el mismo frame de 1920x1080 con las
+ * vistas del juego apiladas como paneles transparentes en un {@link JLayeredPane}, como se
+ * hacía antes, y con el compositor, y comprueba que las dos imágenes son iguales.
+ * <p>
+ * Se compila con las pruebas de {@code test}. Uso:
+ * {@code java -cp "out:resources:libs/*" game.render.RendimientoCompositor [mapa] [repeticiones]},
+ * con el mapa como ruta de recurso ({@code /mapas/sk2.tmx} por defecto). Solo mide el dibujado
+ * fuera de pantalla; la composición que hace Swing en pantalla con los paneles apilados no entra
+ * en la medida.
+ */
+public final class RendimientoCompositor {
+    private static final int ANCHO = 1920, ALTO = 1080;
+
+    private RendimientoCompositor() {
+    }
+
+    /**
+     * Panel apilado que hace de fuente del frame para las vistas que contiene.
+     */
+    @SuppressWarnings("serial")
+    private static final class Pantalla extends JLayeredPane implements Fotograma.Fuente {
+        private final Fotograma fotograma;
+
+        private Pantalla(Fotograma fotograma) {
+            this.fotograma = fotograma;
+        }
+
+        @Override
+        public Fotograma getFotograma() {
+            return fotograma;
+        }
+    }
+
+    /**
+     * Crea un frame con el personaje en el centro, unos cuantos NPCs alrededor y una acción a
+     * la vista.
+     *
+     * @param mapa Mapa del frame.
+     * @return El frame.
+     */
+    private static Fotograma crearFotograma(Pintable mapa) {
+        BufferedImage skin = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = skin.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillOval(8, 0, 48, 64);
+        g.dispose();
+        Image[] skins = new Image[6];
+        int[] npcX = new int[skins.length];
+        int[] npcY = new int[skins.length];
+        for (int i = 0; i < skins.length; i++) {
+            skins[i] = skin;
+            npcX[i] = 200 * i - 500;
+            npcY[i] = 120 * (i % 3) - 120;
+        }
+        return new Fotograma(mapa, 0, 0, skin, ANCHO / 2 - 32, ALTO / 2 - 32, skins, npcX, npcY,
+                Idioma.getRb().getString("entrarMazmorra"), null);
+    }
+
+    /**
+     * Mide el dibujado de las dos formas.
+     *
+     * @param args Opcionalmente, la ruta del mapa y el número de repeticiones (50 por defecto).
+     */
+    public static void main(String[] args) {
+        Idioma.setI("Español");
+        String ruta = args.length > 0 ? args[0] : "/mapas/sk2.tmx";
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        MapaVisual mapa = new MapaVisual(new Mapa(ruta));
+        mapa.getDibujo().setFondo(new Color(125, 219, 206));
+        Fotograma fotograma = crearFotograma(mapa.getDibujo());
+        JComponent[] vistas = {mapa, new NPCVisual(), new PersonajeVisual(), new v_notificacion()};
+
+        Pantalla apiladas = new Pantalla(fotograma);
+        apiladas.setBounds(0, 0, ANCHO, ALTO);
+        for (int i = 0; i < vistas.length; i++) {
+            vistas[i].setBounds(0, 0, ANCHO, ALTO);
+            vistas[i].setOpaque(i == 0);
+            apiladas.add(vistas[i], Integer.valueOf(i + 1));
+        }
+        Compositor compositor = new Compositor(() -> fotograma);
+        // El compositor toma el mapa del frame
+        for (int i = 1; i < vistas.length; i++) {
+            compositor.setCapa(i, (Pintable) vistas[i]);
+        }
+
+        BufferedImage imgApiladas = new BufferedImage(ANCHO, ALTO, BufferedImage.TYPE_INT_RGB);
+        BufferedImage imgCompositor = new BufferedImage(ANCHO, ALTO, BufferedImage.TYPE_INT_RGB);
+        long[] nanosApiladas = new long[repeticiones];
+        long[] nanosCompositor = new long[repeticiones];
+        for (int i = -1; i < repeticiones; i++) {
+            // La repetición -1 solo calienta y llena la caché de trozos del mapa
+            Graphics2D g = imgApiladas.createGraphics();
+            long inicio = System.nanoTime();
+            apiladas.paint(g);
+            long medio = System.nanoTime();
+            g.dispose();
+            g = imgCompositor.createGraphics();
+            long inicioCompositor = System.nanoTime();
+            compositor.pintarCapas(g, ANCHO, ALTO);
+            long fin = System.nanoTime();
+            g.dispose();
+            if (i >= 0) {
+                nanosApiladas[i] = medio - inicio;
+                nanosCompositor[i] = fin - inicioCompositor;
+            }
+        }
+        boolean iguales = Arrays.equals(imgApiladas.getRGB(0, 0, ANCHO, ALTO, null, 0, ANCHO),
+                imgCompositor.getRGB(0, 0, ANCHO, ALTO, null, 0, ANCHO));
+        Arrays.sort(nanosApiladas);
+        Arrays.sort(nanosCompositor);
+        System.out.printf("%s, %d repeticiones a %dx%d%n", ruta, repeticiones, ANCHO, ALTO);
+        System.out.printf("paneles apilados: mediana %.2f ms, p90 %.2f ms%n",
+                nanosApiladas[repeticiones / 2] / 1e6, nanosApiladas[repeticiones * 9 / 10] / 1e6);
+        System.out.printf("compositor:       mediana %.2f ms, p90 %.2f ms%n",
+                nanosCompositor[repeticiones / 2] / 1e6, nanosCompositor[repeticiones * 9 / 10] / 1e6);
+        System.out.println(iguales ? "Imágenes iguales" : "LAS IMÁGENES NO COINCIDEN");
+        mapa.liberar();
+    }
+}
@@ -0,0 +1,198 @@
+package game.simulacion;
+
+import game.casas.ubicaciones;
+import idiomas.Idioma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Prueba de {@link SimulacionMundo}: en el nivel 1 entra en una casa y sale por su puerta, y
+ * después entra en la mazmorra, falla una pregunta, derrota a todos los NPC malos y sale por la
+ * salida final al nivel 2, comprobando los avisos y eventos de cada paso. Comprueba también que
+ * el mismo guion de entradas da la misma huella en dos ejecuciones, tanto el recorrido anterior
+ * como un paseo aleatorio con semilla fija.
+ * <p>
+ * Se comprueba sola y se ejecuta como programa, sin pantalla. Termina con código 0 si todo va
+ * bien y 1 si falla alguna comprobación. Desde la raíz del proyecto:
+ * <pre>
+ * javac -encoding UTF-8 -cp "libs/*" -d out $(find src test -name '*.java')
+ * java -cp "out:resources:libs/*" game.simulacion.PruebaSimulacionMundo
+ * </pre>
+ */
+public final class PruebaSimulacionMundo {
+    private static final int TICKS_POR_SEGUNDO = 120;
+    private static final int TICKS_PASEO = 20_000;
+
+    private static int fallos;
+
+    private PruebaSimulacionMundo() {
+    }
+
+    /**
+     * Registra el resultado de una comprobación.
+     *
+     * @param correcto Si se cumple la comprobación.
+     * @param mensaje  Qué se comprueba.
+     */
+    private static void comprobar(boolean correcto, String mensaje) {
+        System.out.println((correcto ? "OK    " : "FALLO ") + mensaje);
+        if (!correcto) {
+            fallos++;
+        }
+    }
+
+    /**
+     * Suelta todas las teclas un tick y pulsa otras en el siguiente, para que la simulación las
+     * vea como recién pulsadas.
+     *
+     * @param simulacion Simulación a avanzar.
+     * @param entrada    Teclas a pulsar.
+     */
+    private static void pulsar(SimulacionMundo simulacion, Entrada entrada) {
+        simulacion.tick(Entrada.NINGUNA);
+        simulacion.tick(entrada);
+    }
+
+    /**
+     * Lleva al jugador a una posición y avanza un tick quieto para que se calcule el aviso.
+     *
+     * @param simulacion Simulación.
+     * @param posicion   Coordenadas, con las claves "coordX" y "coordY".
+     */
+    private static void ir(SimulacionMundo simulacion, Map<String, Integer> posicion) {
+        simulacion.setCoordenadas(posicion.get("coordX"), posicion.get("coordY"));
+        simulacion.tick(Entrada.NINGUNA);
+    }
+
+    /**
+     * Recorre el nivel 1: entra y sale de la primera casa y completa la mazmorra.
+     *
+     * @param comprobar Si se comprueba cada paso; la segunda ejecución solo repite el guion.
+     * @return La simulación al terminar.
+     */
+    private static SimulacionMundo recorrerNivel(boolean comprobar) {
+        SimulacionMundo simulacion = new SimulacionMundo(1, "java", TICKS_POR_SEGUNDO);
+        ubicaciones modelo = new ubicaciones(1);
+        Entrada interactuar = new Entrada(Entrada.INTERACTUAR);
+
+        Map<String, Integer> casa = modelo.getCasasSeleccionadas().get(0);
+        String tamaño = modelo.getTamañoCasasSeleccionadas(0);
+        ir(simulacion, casa);
+        String avisoCasa = simulacion.getAviso();
+        pulsar(simulacion, interactuar);
+        String lugarCasa = simulacion.getLugar();
+        simulacion.tick(Entrada.NINGUNA);
+        String avisoSalida = simulacion.getAviso();
+        pulsar(simulacion, interactuar);
+        if (comprobar) {
+            comprobar("entrarCasa".equals(avisoCasa), "en la puerta de la casa se avisa de entrar (" + avisoCasa + ")");
+            comprobar(tamaño.equals(lugarCasa), "la E entra en la casa " + tamaño + " (" + lugarCasa + ")");
+            comprobar("salirCasa".equals(avisoSalida), "dentro, junto a la puerta, se avisa de salir (" + avisoSalida + ")");
+            comprobar("mapa".equals(simulacion.getLugar())
+                            && simulacion.getCoordX() == casa.get("coordX") && simulacion.getCoordY() == casa.get("coordY"),
+                    "la E vuelve al pueblo por la puerta de la casa");
+            comprobar(simulacion.getEventos().isEmpty(), "entrar y salir de una casa no genera eventos");
+        }
+
+        ir(simulacion, modelo.getMazmorraEntradaSeleccionada());
+        String avisoMazmorra = simulacion.getAviso();
+        pulsar(simulacion, interactuar);
+        int numNpcs = simulacion.getNpcs().size();
+        if (comprobar) {
+            comprobar("entrarMazmorra".equals(avisoMazmorra),
+                    "en la entrada de la mazmorra se avisa de entrar (" + avisoMazmorra + ")");
+            comprobar("mazmorra".equals(simulacion.getLugar()) && numNpcs > 0,
+                    "la E entra en la mazmorra, con " + numNpcs + " NPCs");
+        }
+
+        for (int i = 0; i < numNpcs; i++) {
+            int npcX = simulacion.getNpcs().get(i).getCoordX();
+            int npcY = simulacion.getNpcs().get(i).getCoordY();
+            simulacion.setCoordenadas(npcX, npcY);
+            pulsar(simulacion, interactuar);
+            if (i == 0) {
+                // La respuesta correcta es la primera opción: la segunda falla y corta la conversación
+                pulsar(simulacion, new Entrada(Entrada.CONFIRMAR, 1));
+                if (comprobar) {
+                    comprobar(simulacion.getInterlocutor() == null, "una respuesta incorrecta termina la conversación");
+                }
+                pulsar(simulacion, interactuar);
+            }
+            while (simulacion.getInterlocutor() != null) {
+                pulsar(simulacion, new Entrada(Entrada.CONFIRMAR, 0));
+            }
+        }
+        if (comprobar) {
+            comprobar(simulacion.isPuertaFinal(), "derrotar a todos los NPC malos abre la salida final");
+        }
+
+        ir(simulacion, modelo.getMazmorraSalidaSeleccionada());
+        String avisoFinal = simulacion.getAviso();
+        pulsar(simulacion, interactuar);
+        if (comprobar) {
+            comprobar("salirMazmorra".equals(avisoFinal), "en la salida final se avisa de salir (" + avisoFinal + ")");
+            comprobar(simulacion.getNivel() == 2 && "mapa".equals(simulacion.getLugar()),
+                    "la salida final lleva al pueblo del nivel 2 (nivel " + simulacion.getNivel() + ", "
+                            + simulacion.getLugar() + ")");
+            List<String> esperados = new ArrayList<>();
+            esperados.add("incorrecto");
+            for (int i = 0; i < numNpcs; i++) {
+                esperados.add("derrotado");
+            }
+            esperados.addAll(Arrays.asList("nivel", "guardando"));
+            comprobar(esperados.equals(simulacion.getEventos()),
+                    "los eventos de la mazmorra son " + esperados + " (" + simulacion.getEventos() + ")");
+        }
+        return simulacion;
+    }
+
+    /**
+     * Pasea al jugador al azar por el nivel 1, cambiando de dirección cada medio segundo y
+     * pulsando a veces la E.
+     *
+     * @param semilla Semilla del generador aleatorio.
+     * @return La huella de la simulación al terminar.
+     */
+    private static long pasear(long semilla) {
+        SimulacionMundo simulacion = new SimulacionMundo(1, "java", TICKS_POR_SEGUNDO);
+        Random aleatorio = new Random(semilla);
+        int[] direcciones = {Entrada.AVANZAR, Entrada.ATRAS, Entrada.IZQUIERDA, Entrada.DERECHA};
+        Entrada entrada = Entrada.NINGUNA;
+        for (int i = 0; i < TICKS_PASEO; i++) {
+            if (i % (TICKS_POR_SEGUNDO / 2) == 0) {
+                int teclas = direcciones[aleatorio.nextInt(direcciones.length)];
+                if (aleatorio.nextInt(4) == 0) {
+                    teclas |= Entrada.INTERACTUAR;
+                }
+                entrada = new Entrada(teclas, 0);
+            }
+            simulacion.tick(entrada);
+        }
+        return simulacion.getHuella();
+    }
+
+    /**
+     * Ejecuta la prueba.
+     *
+     * @param args No se usan.
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Idioma.setI("Español");
+
+        SimulacionMundo primera = recorrerNivel(true);
+        SimulacionMundo segunda = recorrerNivel(false);
+        comprobar(primera.getHuella() == segunda.getHuella() && primera.getTicks() == segunda.getTicks(),
+                "el mismo recorrido da la misma huella dos veces");
+
+        long huella = pasear(7);
+        comprobar(huella == pasear(7), "el mismo paseo aleatorio da la misma huella dos veces");
+
+        System.out.println(fallos == 0 ? "Prueba superada" : fallos + " comprobaciones fallidas");
+        System.exit(fallos == 0 ? 0 : 1);
+    }
+}